@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+plugins {
+    id("java")
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_21
+    targetCompatibility = JavaVersion.VERSION_21
+}
+
+repositories {
+    mavenCentral()
+
+    maven("https://hub.spigotmc.org/nexus/content/repositories/snapshots/")
+}
+
+dependencies {
+    // The load harness only needs the engine
+    implementation(project(":core"))
+    compileOnly("org.jetbrains:annotations:" + findProperty("jetbrains_annotations_version"))
+
+    jmh(project(":core"))
+    jmh(project(":common"))
+    jmh("org.jetbrains:annotations:" + findProperty("jetbrains_annotations_version"))
+
+    // Only the API classes are used, every world access goes to the stand-ins
+    jmh("org.spigotmc:spigot-api:" + findProperty("spigot_version"))
+}
+
+jmh {
+    jmhVersion.set(findProperty("jmh_version").toString())
+    // Select benchmarks with -Pjmh.includes=Suppression
+    findProperty("jmh.includes")?.let { includes.set(listOf(it.toString())) }
+    resultFormat.set("JSON")
+}
+
+tasks {
+    compileJava {
+        options.encoding = "UTF-8"
+        options.release.set(21)
+    }
+
+    // Tune the run and the thresholds with -Pload.<setting>=<value>, see LoadHarness
+    register<JavaExec>("loadTest") {
+        group = "verification"
+        description = "Runs the explosion storm load harness and fails if a threshold is exceeded"
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("de.rafael.plugins.creeper.recover.benchmarks.load.LoadHarness")
+        maxHeapSize = "1g"
+        systemProperties(project.properties.filterKeys { it.startsWith("load.") })
+    }
+
+    // Replays recordings of the plugin, -Preplay.files=a.rec,b.rec
+    register<JavaExec>("replay") {
+        group = "verification"
+        description = "Replays explosion recordings through the load harness"
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("de.rafael.plugins.creeper.recover.benchmarks.load.Replay")
+        maxHeapSize = "2g"
+        args = findProperty("replay.files")?.toString()?.split(",") ?: listOf()
+        systemProperties(project.properties.filterKeys { it.startsWith("load.") || it.startsWith("replay.") })
+    }
+
+    compileJmhJava {
+        options.encoding = "UTF-8"
+        options.release.set(21)
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks;
+
+import de.rafael.plugins.creeper.recover.common.classes.list.BlockList;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterating the block list of an explosion like the {@link de.rafael.plugins.creeper.recover.common.classes.Explosion} constructor does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockListBenchmark {
+
+    @Param({"64", "512", "4096"})
+    public int explosionSize;
+
+    private List<Block> blocks;
+
+    @Setup
+    public void setup() {
+        this.blocks = StandIns.crater(new Location(StandIns.world("world"), 0, 64, 0), this.explosionSize, 1);
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        new BlockList(new ArrayList<>(this.blocks)).forEach((block, ignore, add) -> blackhole.consume(block));
+    }
+
+}
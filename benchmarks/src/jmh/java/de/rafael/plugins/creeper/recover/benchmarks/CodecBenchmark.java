@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks;
+
+import com.google.gson.Gson;
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.codec.ExplosionCodec;
+import de.rafael.plugins.creeper.recover.core.codec.Palette;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding an explosion with the {@link ExplosionCodec} compared to Gson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final String[] BLOCK_DATA = {
+            "minecraft:stone", "minecraft:dirt", "minecraft:grass_block[snowy=false]", "minecraft:oak_planks",
+            "minecraft:oak_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:chest[facing=north,type=single,waterlogged=false]"
+    };
+
+    @Param({"64", "512", "4096"})
+    public int explosionSize;
+
+    private final Gson gson = new Gson();
+    private RecordedExplosion explosion;
+    private byte[] snapshot;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        BlockPos origin = new BlockPos("world", 1200, 64, -800);
+        List<RecordedBlock> blocks = new ArrayList<>(this.explosionSize);
+        int radius = (int) Math.ceil(Math.cbrt(this.explosionSize));
+        for (int i = 0; i < this.explosionSize; i++) {
+            String blockData = BLOCK_DATA[random.nextInt(BLOCK_DATA.length)];
+            byte[] payload = new byte[0];
+            if (blockData.startsWith("minecraft:chest")) {
+                payload = new byte[200];
+                random.nextBytes(payload);
+            }
+            blocks.add(new RecordedBlock(new BlockPos("world", origin.x() + random.nextInt(radius * 2) - radius,
+                    origin.y() + random.nextInt(radius * 2) - radius, origin.z() + random.nextInt(radius * 2) - radius),
+                    blockData, payload));
+        }
+        this.explosion = new RecordedExplosion(System.currentTimeMillis(), origin, "CREEPER", blocks);
+        this.snapshot = ExplosionCodec.encode(this.explosion, new Palette(), false);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return ExplosionCodec.encode(this.explosion, new Palette(), false);
+    }
+
+    @Benchmark
+    public byte[] encodeCompressed() {
+        return ExplosionCodec.encode(this.explosion, new Palette(), true);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return this.gson.toJson(this.explosion).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public RecordedExplosion decode() throws IOException {
+        return ExplosionCodec.decode(this.snapshot, new Palette());
+    }
+
+}
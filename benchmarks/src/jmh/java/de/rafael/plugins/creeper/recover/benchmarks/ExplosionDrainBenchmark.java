@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks;
+
+import de.rafael.plugins.creeper.recover.common.classes.Explosion;
+import de.rafael.plugins.creeper.recover.common.classes.ExplodedBlock;
+import de.rafael.plugins.creeper.recover.common.classes.list.BlockList;
+import de.rafael.plugins.creeper.recover.core.RecoveryJob;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draining the blocks of an explosion, the block placement itself is replaced by a blackhole
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExplosionDrainBenchmark {
+
+    @Param({"64", "512", "4096"})
+    public int explosionSize;
+
+    // Blocks recovered per call, 1 is the scheduled recovery and 0 drains everything at once
+    @Param({"1", "0"})
+    public int batchSize;
+
+    private Explosion explosion;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        Location center = new Location(StandIns.world("world"), 0, 64, 0);
+        List<Block> blocks = StandIns.crater(center, this.explosionSize, 1);
+        this.explosion = new Explosion(center, new BlockList(new ArrayList<>(blocks)));
+    }
+
+    @Benchmark
+    public void drain(Blackhole blackhole) {
+        int amount = this.batchSize == 0 ? Integer.MAX_VALUE : this.batchSize;
+        RecoveryJob<ExplodedBlock> job = this.explosion.job();
+        while (job.poll(amount, pendingBlock -> blackhole.consume(pendingBlock.block())) > 0) {
+            blackhole.consume(job.remaining());
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks;
+
+import de.rafael.plugins.creeper.recover.common.classes.list.BlockList;
+import de.rafael.plugins.creeper.recover.common.listener.EntityExplodeListener;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protected block and blacklist filtering of the explode listener.
+ * Both benchmarks include copying the block list, {@link #copy()} measures that part alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({"64", "512", "4096"})
+    public int explosionSize;
+
+    private final Set<Material> protectedBlocks = Set.of(Material.PLAYER_HEAD, Material.PLAYER_WALL_HEAD);
+    private final Set<Material> blockBlacklist = Set.of(Material.GLASS, Material.OAK_LOG);
+    private List<Block> blocks;
+
+    @Setup
+    public void setup() {
+        this.blocks = StandIns.crater(new Location(StandIns.world("world"), 0, 64, 0), this.explosionSize, 1);
+    }
+
+    @Benchmark
+    public List<Block> copy() {
+        return new ArrayList<>(this.blocks);
+    }
+
+    @Benchmark
+    public int removeProtected() {
+        return EntityExplodeListener.removeProtected(new ArrayList<>(this.blocks), this.protectedBlocks);
+    }
+
+    @Benchmark
+    public BlockList removeBlacklisted() {
+        BlockList blockList = new BlockList(new ArrayList<>(this.blocks));
+        blockList.removeIf(block -> this.blockBlacklist.contains(block.getType()));
+        return blockList;
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Lightweight stand-ins for the Bukkit types the plugin touches, so the hot paths can run without a server.
+ * Every method that is not modelled returns the default value of its return type.
+ */
+public final class StandIns {
+
+    // Materials that are typical for an explosion crater, without TNT which would spawn an entity
+    private static final Material[] PALETTE = {
+            Material.STONE, Material.STONE, Material.STONE, Material.DIRT, Material.DIRT, Material.GRASS_BLOCK,
+            Material.COBBLESTONE, Material.OAK_PLANKS, Material.GLASS, Material.OAK_LOG, Material.PLAYER_HEAD
+    };
+
+    private StandIns() {
+    }
+
+    public static @NotNull World world(String name) {
+        return proxy(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> name;
+            default -> identity(proxy, method, args);
+        });
+    }
+
+    public static @NotNull Block block(World world, int x, int y, int z, Material material) {
+        BlockData data = proxy(BlockData.class, (proxy, method, args) -> switch (method.getName()) {
+            case "clone" -> proxy;
+            case "getMaterial" -> material;
+            default -> identity(proxy, method, args);
+        });
+        return proxy(Block.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getType" -> material;
+            case "getBlockData" -> data;
+            case "getWorld" -> world;
+            case "getLocation" -> args == null || args.length == 0 ? new Location(world, x, y, z) : null;
+            case "getX" -> x;
+            case "getY" -> y;
+            case "getZ" -> z;
+            default -> identity(proxy, method, args);
+        });
+    }
+
+    /**
+     * Creates the blocks of a roughly spherical explosion crater
+     *
+     * @param center The center of the explosion
+     * @param size   The amount of blocks
+     * @param seed   The seed for the materials
+     * @return The blocks in random order
+     */
+    public static @NotNull List<Block> crater(@NotNull Location center, int size, long seed) {
+        Random random = new Random(seed);
+        List<Block> blocks = new ArrayList<>(size);
+        int radius = (int) Math.ceil(Math.cbrt(size * 3 / (4 * Math.PI))) + 1;
+        while (blocks.size() < size) {
+            int x = center.getBlockX() + random.nextInt(radius * 2 + 1) - radius;
+            int y = center.getBlockY() + random.nextInt(radius * 2 + 1) - radius;
+            int z = center.getBlockZ() + random.nextInt(radius * 2 + 1) - radius;
+            blocks.add(block(center.getWorld(), x, y, z, PALETTE[random.nextInt(PALETTE.length)]));
+        }
+        return blocks;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> @NotNull T proxy(@NotNull Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, handler);
+    }
+
+    private static Object identity(Object proxy, @NotNull Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> method.getDeclaringClass().getSimpleName() + "@" + System.identityHashCode(proxy);
+            default -> defaultValue(method.getReturnType());
+        };
+    }
+
+    private static Object defaultValue(@NotNull Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == double.class) {
+            return 0d;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks;
+
+import de.rafael.plugins.creeper.recover.common.manager.ExplosionManager;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suppression lookups as done by the physics listener for every physics update while blocks are pending
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuppressionBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int backlog;
+
+    private ExplosionManager explosionManager;
+    private Location[] suppressed;
+    private Location[] unknown;
+
+    @Setup
+    public void setup() {
+        World world = StandIns.world("world");
+        this.explosionManager = new ExplosionManager();
+        this.suppressed = new Location[this.backlog];
+        this.unknown = new Location[1024];
+        for (int i = 0; i < this.backlog; i++) {
+            this.suppressed[i] = new Location(world, i % 256, 64 + i / 65536, (i / 256) % 256);
+            this.explosionManager.suppressBlock(this.suppressed[i]);
+        }
+        for (int i = 0; i < this.unknown.length; i++) {
+            this.unknown[i] = new Location(world, i, 300, i);
+        }
+    }
+
+    @Benchmark
+    public boolean lookupHit() {
+        return this.explosionManager.isBlockSuppressed(
+                this.suppressed[ThreadLocalRandom.current().nextInt(this.suppressed.length)].clone());
+    }
+
+    @Benchmark
+    public boolean lookupMiss() {
+        return this.explosionManager.isBlockSuppressed(
+                this.unknown[ThreadLocalRandom.current().nextInt(this.unknown.length)]);
+    }
+
+    @Benchmark
+    public void suppressAndFree() {
+        Location location = this.unknown[ThreadLocalRandom.current().nextInt(this.unknown.length)];
+        this.explosionManager.suppressBlock(location);
+        this.explosionManager.freeBlock(location);
+    }
+
+}
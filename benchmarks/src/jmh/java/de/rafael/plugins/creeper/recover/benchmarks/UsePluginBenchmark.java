@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import de.rafael.plugins.creeper.recover.common.classes.config.ConfigSnapshot;
+import de.rafael.plugins.creeper.recover.common.manager.ConfigManager;
+import de.rafael.plugins.creeper.recover.common.classes.enums.TargetTypes;
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Target evaluation that decides for every explosion whether it is recovered
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsePluginBenchmark {
+
+    // ignored: the default targets that are all ignored, active: every target type is evaluated
+    @Param({"ignored", "active"})
+    public String targets;
+
+    private ConfigSnapshot snapshot;
+    private Location location;
+
+    @Setup
+    public void setup() {
+        boolean ignore = this.targets.equals("ignored");
+        this.snapshot = ConfigSnapshot.builder()
+                .targetList(List.of(worldTarget(ignore), entityTarget(ignore), heightRangeTarget(ignore)))
+                .build();
+        this.location = new Location(StandIns.world("world"), 12, 64, -40);
+    }
+
+    @Benchmark
+    public boolean usePlugin() {
+        return ConfigManager.usePlugin(this.snapshot, this.location, EntityType.CREEPER);
+    }
+
+    private static @NotNull JsonObject worldTarget(boolean ignore) {
+        JsonObject target = target(TargetTypes.WORLD, ignore);
+        JsonArray whitelist = new JsonArray();
+        whitelist.add("world");
+        whitelist.add("world_survival");
+        target.add("whitelist", whitelist);
+        JsonArray blacklist = new JsonArray();
+        blacklist.add("world_creative");
+        target.add("blacklist", blacklist);
+        return target;
+    }
+
+    private static @NotNull JsonObject entityTarget(boolean ignore) {
+        JsonObject target = target(TargetTypes.ENTITY, ignore);
+        JsonArray entityTypes = new JsonArray();
+        entityTypes.add(EntityType.CREEPER.name());
+        entityTypes.add(EntityType.FIREBALL.name());
+        target.add("entityTypes", entityTypes);
+        return target;
+    }
+
+    private static @NotNull JsonObject heightRangeTarget(boolean ignore) {
+        JsonObject target = target(TargetTypes.HEIGHT_RANGE, ignore);
+        target.addProperty("from", -64);
+        target.addProperty("to", 320);
+        return target;
+    }
+
+    private static @NotNull JsonObject target(@NotNull TargetTypes type, boolean ignore) {
+        JsonObject target = new JsonObject();
+        target.addProperty("type", type.name());
+        target.addProperty("ignore", ignore);
+        return target;
+    }
+
+}
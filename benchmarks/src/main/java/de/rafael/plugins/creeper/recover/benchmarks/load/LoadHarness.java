@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks.load;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.RecoveryEngine;
+import de.rafael.plugins.creeper.recover.core.RecoveryJob;
+import de.rafael.plugins.creeper.recover.core.RecoveryListener;
+import de.rafael.plugins.creeper.recover.core.WorldAccess;
+import de.rafael.plugins.creeper.recover.core.memory.InMemoryWorld;
+import de.rafael.plugins.creeper.recover.core.memory.VirtualScheduler;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fires explosions through the recovery engine without a server and fails when the results are worse
+ * than the configured thresholds.
+ * <p>
+ * Every tick the harness captures the explosions of the tick, advances the {@link VirtualScheduler} by one tick
+ * and sends the physics updates a server would send: the six neighbours of every restored block and a number of
+ * random positions around the latest explosion. Blocks may only be restored by the region that owns them.
+ * Settings are read from system properties, see {@link #main(String[])}.
+ * <p>
+ * The Bukkit listeners are not part of the run. Explosions enter the engine as already captured jobs, and the
+ * physics updates are checked against the suppressed positions like the BlockPhysicsListener does.
+ *
+ * @param <B> The type of the captured block state
+ */
+public class LoadHarness<B> {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ExplosionSource<B> source;
+    private final long recoverDelay;
+    private final long recoverSpeed;
+    private final int physicsPerTick;
+    private final int maxTicks;
+
+    private final Random random;
+    private final InMemoryWorld<B> world = new InMemoryWorld<>();
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+    private final LongAdder finished = new LongAdder();
+    private final RecoveryEngine<B> engine;
+
+    // Physics updates caused by restored blocks, drained at the end of every tick
+    private final List<BlockPos> physicsQueue = new ArrayList<>();
+    private long physicsUpdates = 0;
+    private long cancelledUpdates = 0;
+
+    // Center of the latest explosion, background physics happens around it
+    private BlockPos hotspot;
+
+    /**
+     * @param source         Supplies the explosions of every tick
+     * @param seed           The seed of the background physics updates
+     * @param recoverDelay   The recovery delay in milliseconds
+     * @param recoverSpeed   The milliseconds between two blocks of an explosion
+     * @param physicsPerTick The amount of background physics updates per tick
+     * @param maxTicks       The amount of ticks after which the run is stopped
+     */
+    public LoadHarness(ExplosionSource<B> source, long seed, long recoverDelay, long recoverSpeed, int physicsPerTick,
+                       int maxTicks) {
+        this.source = source;
+        this.recoverDelay = recoverDelay;
+        this.recoverSpeed = recoverSpeed;
+        this.physicsPerTick = physicsPerTick;
+        this.maxTicks = maxTicks;
+        this.random = new Random(seed);
+
+        WorldAccess<B> access = (position, block) -> {
+            this.scheduler.checkOwner(position);
+            this.world.restore(position, block);
+            this.physicsQueue.add(position);
+        };
+        this.engine = new RecoveryEngine<>(access, this.scheduler, new RecoveryListener<>() {
+            @Override
+            public void finished(@NotNull RecoveryJob<B> job) {
+                LoadHarness.this.finished.increment();
+            }
+        }, () -> 0);
+    }
+
+    /**
+     * Runs the storms until every explosion is recovered
+     *
+     * @return The results of the run
+     */
+    public @NotNull Result run() {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long[] tickNanos = new long[this.maxTicks];
+        long capturedBlocks = 0;
+        int fired = 0;
+        int ticks = 0;
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        // Blocks of a finished job may still wait for their region on the next tick
+        while (ticks < this.maxTicks && (!this.source.exhausted() || this.engine.pendingJobs() > 0
+                || this.engine.hasSuppressed())) {
+            long tickStart = System.nanoTime();
+
+            for (RecoveryJob<B> job : this.source.explosions(ticks)) {
+                capturedBlocks += job.remaining();
+                this.engine.submit(job, this.recoverDelay, this.recoverSpeed, TimeUnit.MILLISECONDS);
+                this.hotspot = job.center();
+                fired++;
+            }
+
+            this.scheduler.tick();
+            physics();
+
+            tickNanos[ticks++] = System.nanoTime() - tickStart;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        long[] sorted = Arrays.copyOf(tickNanos, ticks);
+        Arrays.sort(sorted);
+        long overBudget = Arrays.stream(sorted).filter(nanos -> nanos > TICK_NANOS).count();
+
+        return new Result(fired, this.finished.sum(), capturedBlocks, this.world.restored(),
+                this.engine.suppressedCount(), ticks, elapsed, allocated, peakHeap,
+                this.scheduler.executedTasks(), this.scheduler.overheadNanos(),
+                percentile(sorted, 0.5), percentile(sorted, 0.99), ticks == 0 ? 0 : sorted[ticks - 1], overBudget,
+                this.physicsUpdates, this.cancelledUpdates);
+    }
+
+    // Every restored block updates its neighbours, the physics listener cancels the suppressed ones
+    private void physics() {
+        for (BlockPos position : this.physicsQueue) {
+            physics(position.world(), position.x() + 1, position.y(), position.z());
+            physics(position.world(), position.x() - 1, position.y(), position.z());
+            physics(position.world(), position.x(), position.y() + 1, position.z());
+            physics(position.world(), position.x(), position.y() - 1, position.z());
+            physics(position.world(), position.x(), position.y(), position.z() + 1);
+            physics(position.world(), position.x(), position.y(), position.z() - 1);
+        }
+        this.physicsQueue.clear();
+        if (this.hotspot == null) {
+            return;
+        }
+        for (int i = 0; i < this.physicsPerTick; i++) {
+            physics(this.hotspot.world(), this.hotspot.x() + this.random.nextInt(65) - 32,
+                    this.hotspot.y() + this.random.nextInt(33) - 16, this.hotspot.z() + this.random.nextInt(65) - 32);
+        }
+    }
+
+    private void physics(String world, int x, int y, int z) {
+        this.physicsUpdates++;
+        if (this.engine.hasSuppressed() && this.engine.isSuppressed(new BlockPos(world, x, y, z))) {
+            this.cancelledUpdates++;
+        }
+    }
+
+    private static long percentile(long @NotNull [] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    /**
+     * Settings, all optional:
+     * <ul>
+     *     <li>load.seed, load.explosions, load.stormSize, load.stormTicks and load.stormGap shape the storms</li>
+     *     <li>load.recoverDelay, load.recoverSpeed (milliseconds), load.physicsPerTick and load.maxTicks
+     *     shape the run</li>
+     *     <li>load.minBlocksPerSecond, load.maxTickP99Millis, load.maxPeakHeapMb and
+     *     load.maxAllocMbPerSecond are the thresholds, zero disables a threshold</li>
+     * </ul>
+     * The process exits with status 1 if a threshold is exceeded or the run did not recover every block.
+     */
+    public static void main(String[] args) {
+        long seed = Long.getLong("load.seed", 42);
+        StormGenerator storms = new StormGenerator(seed, 2048,
+                Integer.getInteger("load.explosions", 5000),
+                Integer.getInteger("load.stormSize", 250),
+                Integer.getInteger("load.stormTicks", 20),
+                Integer.getInteger("load.stormGap", 200));
+        exit(create(storms, seed).run());
+    }
+
+    /**
+     * Creates a harness with the run settings of the system properties
+     *
+     * @param source The explosions
+     * @param seed   The seed of the background physics updates
+     * @return The harness
+     */
+    public static <B> @NotNull LoadHarness<B> create(ExplosionSource<B> source, long seed) {
+        return new LoadHarness<>(source, seed,
+                Long.getLong("load.recoverDelay", 0),
+                Long.getLong("load.recoverSpeed", 50),
+                Integer.getInteger("load.physicsPerTick", 2000),
+                Integer.getInteger("load.maxTicks", 200_000));
+    }
+
+    /**
+     * Prints the report and exits with status 1 if the run failed a check
+     *
+     * @param result The result of the run
+     */
+    public static void exit(@NotNull Result result) {
+        System.out.println(result.report());
+
+        List<String> failures = new ArrayList<>();
+        if (result.finishedExplosions() != result.explosions() || result.restoredBlocks() != result.capturedBlocks()) {
+            failures.add("not every explosion was recovered within " + result.ticks() + " ticks");
+        }
+        if (result.suppressedBlocks() != 0) {
+            failures.add(result.suppressedBlocks() + " blocks are still suppressed");
+        }
+        check(failures, "blocks per second", result.blocksPerSecond(), Long.getLong("load.minBlocksPerSecond", 0), false);
+        check(failures, "tick p99 millis", result.tickP99Nanos() / 1_000_000d, Long.getLong("load.maxTickP99Millis", 50), true);
+        check(failures, "peak heap MB", result.peakHeapBytes() / 1048576d, Long.getLong("load.maxPeakHeapMb", 0), true);
+        check(failures, "allocation MB per second", result.allocationBytesPerSecond() / 1048576d,
+                Long.getLong("load.maxAllocMbPerSecond", 0), true);
+
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> System.out.println("FAILED: " + failure));
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+
+    private static void check(List<String> failures, String name, double value, long threshold, boolean maximum) {
+        if (threshold <= 0) {
+            return;
+        }
+        if (maximum ? value > threshold : value < threshold) {
+            failures.add(String.format("%s is %.2f, threshold %s %d", name, value, maximum ? "max" : "min", threshold));
+        }
+    }
+
+    /**
+     * @param explosions        The amount of fired explosions
+     * @param finishedExplosions The amount of explosions that completed recovery
+     * @param capturedBlocks    The amount of blocks removed by the explosions
+     * @param restoredBlocks    The amount of blocks placed back
+     * @param suppressedBlocks  The amount of positions that are still suppressed after the run
+     * @param ticks             The amount of simulated ticks
+     * @param elapsedNanos      The wall time of the run
+     * @param allocatedBytes    The bytes allocated by the simulation thread
+     * @param peakHeapBytes     The peak usage of all heap pools
+     * @param schedulerTasks    The amount of tasks run by the scheduler
+     * @param schedulerNanos    The time spent in the scheduler itself, without the tasks
+     * @param tickP50Nanos      The median tick cost
+     * @param tickP99Nanos      The 99th percentile tick cost
+     * @param tickMaxNanos      The most expensive tick
+     * @param ticksOverBudget   The amount of ticks that took longer than 50ms
+     * @param physicsUpdates    The amount of simulated physics updates
+     * @param cancelledUpdates  The amount of physics updates on suppressed positions
+     */
+    public record Result(int explosions, long finishedExplosions, long capturedBlocks, long restoredBlocks,
+                         int suppressedBlocks, int ticks, long elapsedNanos, long allocatedBytes, long peakHeapBytes,
+                         long schedulerTasks, long schedulerNanos,
+                         long tickP50Nanos, long tickP99Nanos, long tickMaxNanos, long ticksOverBudget,
+                         long physicsUpdates, long cancelledUpdates) {
+
+        public double blocksPerSecond() {
+            return this.restoredBlocks / (this.elapsedNanos / 1e9);
+        }
+
+        public double allocationBytesPerSecond() {
+            return this.allocatedBytes / (this.elapsedNanos / 1e9);
+        }
+
+        public @NotNull String report() {
+            return String.format("""
+                            Explosions:   %d fired, %d recovered
+                            Blocks:       %d captured, %d restored, %d still suppressed
+                            Ticks:        %d simulated in %.2fs
+                            Throughput:   %.0f blocks/s
+                            Tick cost:    p50 %.3fms, p99 %.3fms, max %.3fms, %d over budget
+                            Scheduler:    %d tasks, %.1fns overhead per task
+                            Physics:      %d updates, %d cancelled
+                            Peak heap:    %.1f MB
+                            Allocation:   %.1f MB/s (%.1f MB total)""",
+                    this.explosions, this.finishedExplosions,
+                    this.capturedBlocks, this.restoredBlocks, this.suppressedBlocks,
+                    this.ticks, this.elapsedNanos / 1e9,
+                    blocksPerSecond(),
+                    this.tickP50Nanos / 1e6, this.tickP99Nanos / 1e6, this.tickMaxNanos / 1e6, this.ticksOverBudget,
+                    this.schedulerTasks, this.schedulerTasks == 0 ? 0 : (double) this.schedulerNanos / this.schedulerTasks,
+                    this.physicsUpdates, this.cancelledUpdates,
+                    this.peakHeapBytes / 1048576d,
+                    allocationBytesPerSecond() / 1048576d, this.allocatedBytes / 1048576d);
+        }
+
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks.load;
+
+import de.rafael.plugins.creeper.recover.core.PendingBlock;
+import de.rafael.plugins.creeper.recover.core.RecoveryJob;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import de.rafael.plugins.creeper.recover.core.record.RecordingReader;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Feeds recordings of real explosions through the {@link LoadHarness}.
+ * The explosions keep the timing of the recording, compressed by the speed factor.
+ * <p>
+ * The recorded blocks go to the engine as they are. Rebuilding them with the Recordings of the plugin needs a
+ * server for the block data and items, so the capture is not replayed and tile payloads stay undecoded bytes.
+ */
+public class Replay implements ExplosionSource<RecordedBlock> {
+
+    private final List<RecordedExplosion> explosions;
+    private final long start;
+    private final double speed;
+    private int next = 0;
+
+    /**
+     * @param explosions The recorded explosions
+     * @param speed      The factor the time between two explosions is divided by
+     */
+    public Replay(@NotNull List<RecordedExplosion> explosions, double speed) {
+        this.explosions = new ArrayList<>(explosions);
+        this.explosions.sort(Comparator.comparingLong(RecordedExplosion::timestamp));
+        this.start = this.explosions.isEmpty() ? 0 : this.explosions.getFirst().timestamp();
+        this.speed = speed;
+    }
+
+    @Override
+    public @NotNull List<RecoveryJob<RecordedBlock>> explosions(int tick) {
+        List<RecoveryJob<RecordedBlock>> jobs = new ArrayList<>();
+        while (this.next < this.explosions.size() && tick(this.explosions.get(this.next)) <= tick) {
+            RecordedExplosion explosion = this.explosions.get(this.next++);
+            List<PendingBlock<RecordedBlock>> blocks = new ArrayList<>(explosion.blocks().size());
+            for (RecordedBlock block : explosion.blocks()) {
+                blocks.add(new PendingBlock<>(block.position(), block));
+            }
+            jobs.add(new RecoveryJob<>(explosion.origin(), blocks));
+        }
+        return jobs;
+    }
+
+    @Override
+    public boolean exhausted() {
+        return this.next >= this.explosions.size();
+    }
+
+    private long tick(@NotNull RecordedExplosion explosion) {
+        return (long) ((explosion.timestamp() - this.start) / 50d / this.speed);
+    }
+
+    /**
+     * Replays the given recordings. Takes the run settings and thresholds of {@link LoadHarness#main(String[])}
+     * and replay.speed, which defaults to 1.
+     *
+     * @param args The recording files
+     */
+    public static void main(String @NotNull [] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: Replay <recording>...");
+            System.exit(2);
+        }
+        List<RecordedExplosion> explosions = new ArrayList<>();
+        for (String file : args) {
+            explosions.addAll(RecordingReader.readAll(Path.of(file)));
+        }
+        long payloads = explosions.stream().flatMap(explosion -> explosion.blocks().stream())
+                .filter(block -> block.payload().length > 0).count();
+        System.out.println("Replaying " + explosions.size() + " explosions, " + payloads
+                + " blocks with tile payloads are restored without decoding them");
+
+        double speed = Double.parseDouble(System.getProperty("replay.speed", "1"));
+        LoadHarness.exit(LoadHarness.create(new Replay(explosions, speed), Long.getLong("load.seed", 42)).run());
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.benchmarks.load;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.PendingBlock;
+import de.rafael.plugins.creeper.recover.core.RecoveryJob;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Creates storms of synthetic explosions with a mix of sizes, block types, containers and signs.
+ * A storm fires its explosions spread over a few ticks and is followed by a quiet gap.
+ */
+public class StormGenerator implements ExplosionSource<SyntheticBlock> {
+
+    private static final String[] WORLDS = {"world", "world_pvp", "world_events"};
+    private static final String[] BLOCK_DATA = {
+            "minecraft:stone", "minecraft:dirt", "minecraft:grass_block[snowy=false]",
+            "minecraft:oak_planks", "minecraft:cobblestone", "minecraft:glass",
+            "minecraft:oak_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:redstone_wire[east=side,north=none,power=0,south=side,west=none]"
+    };
+
+    private final Random random;
+    private final int spread;
+    private final int explosions;
+    private final int stormSize;
+    private final int stormTicks;
+    private final int stormGap;
+    private int fired = 0;
+
+    /**
+     * @param seed       The seed of the storms
+     * @param spread     The size of the area the explosions happen in per axis
+     * @param explosions The amount of explosions of all storms
+     * @param stormSize  The amount of explosions per storm
+     * @param stormTicks The amount of ticks a storm lasts
+     * @param stormGap   The amount of ticks between two storms
+     */
+    public StormGenerator(long seed, int spread, int explosions, int stormSize, int stormTicks, int stormGap) {
+        this.random = new Random(seed);
+        this.spread = spread;
+        this.explosions = explosions;
+        this.stormSize = stormSize;
+        this.stormTicks = stormTicks;
+        this.stormGap = stormGap;
+    }
+
+    @Override
+    public @NotNull List<RecoveryJob<SyntheticBlock>> explosions(int tick) {
+        if (tick % (this.stormTicks + this.stormGap) >= this.stormTicks) {
+            return List.of();
+        }
+        int perTick = Math.min(Math.max(1, this.stormSize / this.stormTicks), this.explosions - this.fired);
+        List<RecoveryJob<SyntheticBlock>> jobs = new ArrayList<>(perTick);
+        for (int i = 0; i < perTick; i++) {
+            jobs.add(next());
+        }
+        this.fired += perTick;
+        return jobs;
+    }
+
+    @Override
+    public boolean exhausted() {
+        return this.fired >= this.explosions;
+    }
+
+    public @NotNull RecoveryJob<SyntheticBlock> next() {
+        BlockPos center = new BlockPos(WORLDS[this.random.nextInt(WORLDS.length)],
+                this.random.nextInt(this.spread) - this.spread / 2, 20 + this.random.nextInt(80),
+                this.random.nextInt(this.spread) - this.spread / 2);
+        int size = size();
+        int radius = (int) Math.ceil(Math.cbrt(size * 3 / (4 * Math.PI))) + 1;
+
+        Set<BlockPos> positions = new HashSet<>(size * 2);
+        List<PendingBlock<SyntheticBlock>> blocks = new ArrayList<>(size);
+        while (blocks.size() < size) {
+            BlockPos position = new BlockPos(center.world(),
+                    center.x() + this.random.nextInt(radius * 2 + 1) - radius,
+                    center.y() + this.random.nextInt(radius * 2 + 1) - radius,
+                    center.z() + this.random.nextInt(radius * 2 + 1) - radius);
+            if (positions.add(position)) {
+                blocks.add(new PendingBlock<>(position, block()));
+            }
+        }
+        return new RecoveryJob<>(center, blocks);
+    }
+
+    // Creepers are the most common, TNT chains and charged creepers are rare but large
+    private int size() {
+        int roll = this.random.nextInt(100);
+        if (roll < 70) {
+            return 30 + this.random.nextInt(50);
+        } else if (roll < 95) {
+            return 100 + this.random.nextInt(200);
+        } else {
+            return 400 + this.random.nextInt(800);
+        }
+    }
+
+    private @NotNull SyntheticBlock block() {
+        int roll = this.random.nextInt(1000);
+        String blockData = BLOCK_DATA[this.random.nextInt(BLOCK_DATA.length)];
+        if (roll < 15) {
+            byte[][] items = new byte[27][];
+            for (int i = 0; i < items.length; i++) {
+                if (this.random.nextInt(3) == 0) {
+                    items[i] = new byte[64 + this.random.nextInt(192)];
+                }
+            }
+            return new SyntheticBlock(1, "minecraft:chest[facing=north,type=single,waterlogged=false]", items, null);
+        } else if (roll < 25) {
+            String[] lines = {"Welcome", "to spawn", "#" + this.random.nextInt(1000), ""};
+            return new SyntheticBlock(2, "minecraft:oak_sign[rotation=0,waterlogged=false]", null, lines);
+        }
+        return new SyntheticBlock(3 + this.random.nextInt(BLOCK_DATA.length), blockData, null, null);
+    }
+
+}
@@ -45,6 +45,7 @@ repositories {
 }
 
 dependencies {
+    implementation(project(":core"))
     implementation("org.bstats:bstats-bukkit:" + findProperty("bstats_version"))
     implementation("org.jetbrains:annotations:" + findProperty("jetbrains_annotations_version"))
 
@@ -30,20 +30,38 @@
 
 package de.rafael.plugins.creeper.recover.common;
 
+import de.rafael.plugins.creeper.recover.common.classes.ExplodedBlock;
+import de.rafael.plugins.creeper.recover.common.classes.enums.StorageTypes;
+import de.rafael.plugins.creeper.recover.common.engine.BukkitBlockCodec;
+import de.rafael.plugins.creeper.recover.common.engine.ItemCodec;
 import de.rafael.plugins.creeper.recover.common.command.RecoverCommand;
+import de.rafael.plugins.creeper.recover.common.jmx.JmxManager;
 import de.rafael.plugins.creeper.recover.common.listener.BlockPhysicsListener;
+import de.rafael.plugins.creeper.recover.common.listener.ChunkLoadListener;
 import de.rafael.plugins.creeper.recover.common.listener.EntityExplodeListener;
 import de.rafael.plugins.creeper.recover.common.manager.ConfigManager;
 import de.rafael.plugins.creeper.recover.common.manager.ExplosionManager;
 import de.rafael.plugins.creeper.recover.common.manager.MessageManager;
+import de.rafael.plugins.creeper.recover.common.stats.Meter;
 import de.rafael.plugins.creeper.recover.common.stats.PluginStats;
+import de.rafael.plugins.creeper.recover.common.stats.Profiler;
+import de.rafael.plugins.creeper.recover.common.stats.PrometheusServer;
+import de.rafael.plugins.creeper.recover.common.utils.config.ConfigWatcher;
+import de.rafael.plugins.creeper.recover.common.utils.config.JsonStore;
 import de.rafael.plugins.creeper.recover.common.utils.version.PluginVersion;
 import de.rafael.plugins.creeper.recover.common.utils.version.UpdateChecker;
+import de.rafael.plugins.creeper.recover.core.journal.RecoveryJournal;
+import de.rafael.plugins.creeper.recover.core.persistence.PersistenceBackend;
+import de.rafael.plugins.creeper.recover.core.persistence.SqliteBackend;
+import de.rafael.plugins.creeper.recover.core.record.ExplosionRecorder;
+import de.rafael.plugins.creeper.recover.core.tier.SpillFile;
+import de.rafael.plugins.creeper.recover.core.tier.TieredStore;
 import lombok.Getter;
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.SingleLineChart;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandMap;
 import org.bukkit.command.PluginCommand;
@@ -51,7 +69,13 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -68,18 +92,29 @@ public abstract class CreeperPlugin extends JavaPlugin {
     @Getter
     private static CreeperPlugin instance;
     protected Scheduler scheduler;
+    // Null uses the Java serialization of Bukkit
+    protected ItemCodec itemCodec;
 
     protected ExplosionManager explosionManager;
     protected ConfigManager configManager;
     protected MessageManager messageManager;
     protected PluginStats pluginStats;
+    protected final Profiler profiler = new Profiler();
 
     protected UpdateChecker updateChecker;
+    protected ConfigWatcher configWatcher;
+    protected JmxManager jmxManager;
+    protected PrometheusServer prometheusServer;
+    protected ExplosionRecorder explosionRecorder;
 
     public static Scheduler scheduler() {
         return instance.scheduler;
     }
 
+    public static @Nullable ItemCodec itemCodec() {
+        return instance.itemCodec;
+    }
+
     @Override
     public void onLoad() {
         instance = this;
@@ -112,24 +147,11 @@ public abstract class CreeperPlugin extends JavaPlugin {
             e.printStackTrace();
         }
 
-        int amount = 0;
         boolean configLoaded = false;
         try {
-            while (!configManager.load()) {
-                amount++;
-                Bukkit.getConsoleSender()
-                        .sendMessage("§7[CreeperRecover] Config load attempt " + amount + " failed, retrying...");
-                if (amount > 10) {
-                    Bukkit.getConsoleSender().sendMessage(
-                            "§c[CreeperRecover] Failed to load config after 10 attempts. Plugin may not function correctly.");
-                    break;
-                }
-            }
-            if (amount <= 10) {
-                configLoaded = true;
-                Bukkit.getConsoleSender().sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
-                        + "§7The config §aloaded §7in §b" + amount + " §7cycles§8.");
-            }
+            configLoaded = configManager.load();
+            Bukkit.getConsoleSender().sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                    + "§7The config §aloaded§8.");
         } catch (Exception e) {
             Bukkit.getConsoleSender()
                     .sendMessage("§c[CreeperRecover] Exception during config loading: " + e.getMessage());
@@ -188,18 +210,146 @@ public abstract class CreeperPlugin extends JavaPlugin {
             });
         }
 
+        this.configWatcher = new ConfigWatcher(new File("plugins//CreeperRecover/"), "config.json");
+        refreshConfigWatcher();
+
+        scheduler().runAsyncAtFixedRate(cancel -> this.pluginStats.blockRate().tick(),
+                Meter.TICK_SECONDS, Meter.TICK_SECONDS, TimeUnit.SECONDS);
+        scheduler().runAsyncAtFixedRate(cancel -> this.explosionManager.loadParked(),
+                ExplosionManager.PRELOAD_AHEAD, ExplosionManager.PRELOAD_AHEAD, TimeUnit.MILLISECONDS);
+
+        this.pluginStats.trackQueue(this.explosionManager);
+        if (this.configManager.snapshot().metricsEnabled()) {
+            String host = this.configManager.snapshot().metricsHost();
+            int port = this.configManager.snapshot().metricsPort();
+            this.prometheusServer = new PrometheusServer(this.pluginStats.registry());
+            try {
+                this.prometheusServer.start(host, port);
+                Bukkit.getConsoleSender().sendMessage("§7[CreeperRecover] Serving metrics on §bhttp://" + host + ":"
+                        + port + "/metrics§8.");
+            } catch (Exception exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to start the metrics endpoint on "
+                        + host + ":" + port + ": " + exception.getMessage());
+            }
+        }
+        if (this.configManager.snapshot().jmx()) {
+            this.jmxManager = new JmxManager();
+            try {
+                this.jmxManager.register(this.explosionManager, this.pluginStats);
+            } catch (Exception exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to register the JMX beans: "
+                        + exception.getMessage());
+            }
+        }
+
+        if (this.configManager.snapshot().recordExplosions()) {
+            File file = new File("plugins//CreeperRecover/recordings/",
+                    "explosions-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".rec");
+            try {
+                this.explosionRecorder = new ExplosionRecorder(file.toPath());
+                Bukkit.getConsoleSender().sendMessage("§7[CreeperRecover] Recording explosions to §b"
+                        + file.getPath() + "§8.");
+            } catch (IOException exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to open the explosion recording "
+                        + file.getPath() + ": " + exception.getMessage());
+            }
+        }
+
+        if (this.configManager.snapshot().spillMemory() > 0) {
+            File directory = new File("plugins//CreeperRecover/", "spill");
+            try {
+                TieredStore<ExplodedBlock> tieredStore = new TieredStore<>(new SpillFile(directory.toPath()),
+                        new BukkitBlockCodec(), this.configManager.snapshot().spillMemory() * 1024L * 1024L,
+                        this.configManager.snapshot().spillAfter(), TimeUnit.MILLISECONDS);
+                this.explosionManager.engine().tieredStore(tieredStore);
+                scheduler().runAsyncAtFixedRate(cancel -> {
+                    try {
+                        tieredStore.maintain();
+                    } catch (IOException exception) {
+                        Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to spill pending explosions: "
+                                + exception.getMessage());
+                    }
+                }, 1, 1, TimeUnit.SECONDS);
+            } catch (IOException exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to open the spill directory "
+                        + directory.getPath() + ": " + exception.getMessage());
+            }
+        }
+
+        if (this.configManager.snapshot().journal()) {
+            boolean sqlite = this.configManager.snapshot().journalStorage() == StorageTypes.SQLITE;
+            File file = new File("plugins//CreeperRecover/", sqlite ? "journal.db" : "journal.bin");
+            try {
+                PersistenceBackend journal = sqlite
+                        ? new SqliteBackend(file.toPath())
+                        : new RecoveryJournal(file.toPath());
+                int resumed = this.explosionManager.journal(journal);
+                Bukkit.getConsoleSender().sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                        + "§7Resumed §b" + resumed + " §7explosions from the journal§8.");
+                scheduler().runAsyncAtFixedRate(cancel -> {
+                    try {
+                        this.explosionManager.pruneJournal();
+                        journal.maintain();
+                    } catch (IOException exception) {
+                        Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to maintain the journal: "
+                                + exception.getMessage());
+                    }
+                }, 60, 60, TimeUnit.SECONDS);
+            } catch (IOException exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to open the journal "
+                        + file.getPath() + ": " + exception.getMessage());
+            }
+        }
+
         // Commands
         registerCommand("recover", "Command to control the plugin", RecoverCommand.class);
 
         // Events
         Bukkit.getPluginManager().registerEvents(new EntityExplodeListener(), this);
         Bukkit.getPluginManager().registerEvents(new BlockPhysicsListener(), this);
+        Bukkit.getPluginManager().registerEvents(new ChunkLoadListener(), this);
     }
 
     @Override
     public void onDisable() {
+        if (this.configWatcher != null) {
+            this.configWatcher.stop();
+        }
+        if (this.jmxManager != null) {
+            this.jmxManager.unregister();
+        }
+        if (this.prometheusServer != null) {
+            this.prometheusServer.stop();
+        }
         if (this.explosionManager != null) {
-            int recovered = this.explosionManager.recoverBlocks(Integer.MAX_VALUE);
+            // Everything captured until now goes to the recorder and the journal before they are closed
+            this.explosionManager.closeWriter();
+        }
+        if (this.explosionRecorder != null) {
+            try {
+                this.explosionRecorder.close();
+            } catch (IOException exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to close the explosion recording: "
+                        + exception.getMessage());
+            }
+        }
+
+        if (this.explosionManager != null && this.explosionManager.journal() != null) {
+            // The pending explosions are resumed from the journal on the next start
+            long pending = this.explosionManager.pendingExplosions();
+            try {
+                this.explosionManager.journal().close();
+                Bukkit.getConsoleSender().sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                        + "§7Saved §b" + pending + " §7pending explosions in the journal§8.");
+            } catch (IOException exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to close the journal: "
+                        + exception.getMessage());
+            }
+        } else if (this.explosionManager != null) {
+            // The server is stopping, the shards don't need the main thread to run the recovery
+            int recovered = this.explosionManager.recoverBlocks(Integer.MAX_VALUE).join();
+            // Blocks of unloaded chunks would be lost without the journal
+            recovered += this.explosionManager.engine().releaseParked();
             if (this.messageManager != null) {
                 Bukkit.getConsoleSender().sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
                         + "§7The plugin recovered §b" + recovered + " §7blocks before the server §cstops§8.");
@@ -209,9 +359,37 @@ public abstract class CreeperPlugin extends JavaPlugin {
             }
         }
 
+        if (this.explosionManager != null && this.explosionManager.engine().tieredStore() != null) {
+            try {
+                this.explosionManager.engine().tieredStore().close();
+            } catch (IOException exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to delete the spill files: "
+                        + exception.getMessage());
+            }
+        }
+
         if (this.pluginStats != null) {
             this.pluginStats.save();
         }
+
+        // Wait for the writer thread, everything queued until now has to be on disk before the server stops
+        if (!JsonStore.flush(10, TimeUnit.SECONDS)) {
+            Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Not all files could be saved in time.");
+        }
+    }
+
+    /**
+     * Starts or stops the config watcher depending on the current config
+     */
+    public void refreshConfigWatcher() {
+        if (this.configWatcher == null) {
+            return;
+        }
+        if (this.configManager.snapshot().watchConfig()) {
+            this.configWatcher.start();
+        } else {
+            this.configWatcher.stop();
+        }
     }
 
     private void registerCommand(String name, String description,
@@ -244,10 +422,36 @@ public abstract class CreeperPlugin extends JavaPlugin {
 
         void runOnCorrectThread(Location location, Runnable runnable);
 
+        /**
+         * @param location The location a task would work on
+         * @return true if {@link #runOnCorrectThread(Location, Runnable)} called from the current thread runs the
+         * task right away
+         */
+        boolean runsInline(Location location);
+
         void runAsync(Runnable runnable);
 
         void runAsyncAtFixedRate(Consumer<Runnable> runnable, int delay, int period, TimeUnit unit);
 
+        /**
+         * Runs a task once off the server thread after a delay
+         *
+         * @param runnable The task
+         * @param delay    The delay, rounded down to ticks where the server schedules in ticks
+         * @param unit     The unit of the delay
+         */
+        void runAsyncLater(Runnable runnable, long delay, TimeUnit unit);
+
+        /**
+         * Loads a chunk, asynchronously where the server supports it
+         *
+         * @param world  The world of the chunk
+         * @param chunkX The x coordinate of the chunk
+         * @param chunkZ The z coordinate of the chunk
+         * @return Completes once the chunk is loaded
+         */
+        CompletableFuture<?> loadChunk(World world, int chunkX, int chunkZ);
+
     }
 
 }
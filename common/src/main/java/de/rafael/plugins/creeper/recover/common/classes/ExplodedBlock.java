@@ -40,6 +40,8 @@ package de.rafael.plugins.creeper.recover.common.classes;
 
 import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
 import de.rafael.plugins.creeper.recover.common.classes.data.IBlockData;
+import de.rafael.plugins.creeper.recover.common.engine.BukkitWorldAccess;
+import de.rafael.plugins.creeper.recover.common.stats.Profiler;
 import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.Location;
@@ -54,6 +56,10 @@ import java.util.List;
 @Setter
 public class ExplodedBlock {
 
+    // Rough heap size of the block, its location, block data and lists plus the pending block and position
+    // of the engine, on a 64 bit JVM with compressed oops
+    public static final long BASE_SIZE = 256;
+
     private Location location;
 
     // Material, BlockData and other data
@@ -78,15 +84,25 @@ public class ExplodedBlock {
         this.otherData.add(data);
     }
 
-    public void recover() {
-        for (ExplodedBlock connectedBlock : this.connectedBlocks) {
-            CreeperPlugin.scheduler().runOnCorrectThread(connectedBlock.location(), connectedBlock::recoverBasics);
+    /**
+     * @return The estimated heap bytes held by this block, its data and its connected blocks
+     */
+    public long retainedSize() {
+        long size = BASE_SIZE;
+        for (IBlockData blockData : this.otherData) {
+            size += blockData.retainedSize();
         }
-        CreeperPlugin.scheduler().runOnCorrectThread(this.location, this::recoverBasics);
+        for (ExplodedBlock connected : this.connectedBlocks) {
+            size += connected.retainedSize();
+        }
+        return size;
     }
 
+    /**
+     * Places the block without effects, the sound is played once per batch by the {@link BukkitWorldAccess}
+     */
     public void recoverBasics() {
-        CreeperPlugin.instance().explosionManager().freeBlock(this.location);
+        long start = System.nanoTime();
         Block block = this.location.getBlock();
 
         CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
@@ -97,19 +113,26 @@ public class ExplodedBlock {
         block.setType(this.material, false);
         block.setBlockData(this.data, false);
 
+        Profiler profiler = CreeperPlugin.instance().profiler();
         for (IBlockData blockData : this.otherData) {
+            long applyStart = profiler.begin();
             blockData.apply(block, IBlockData.RecoverPhase.PRE_STATE_UPDATE);
+            profiler.endApply(blockData.getClass(), applyStart);
         }
 
         block.getState().update(true, false);
 
         for (IBlockData blockData : this.otherData) {
+            long applyStart = profiler.begin();
             blockData.apply(block, IBlockData.RecoverPhase.POST_STATE_UPDATE);
+            profiler.endApply(blockData.getClass(), applyStart);
         }
 
         CreeperPlugin.instance().pluginStats().blockRecovered();
-        block.getWorld().playSound(block.getLocation(), CreeperPlugin.instance().configManager().blockRecoverSound(),
-                0.5f, 1f);
+        CreeperPlugin.instance().pluginStats().restoreTime().record(System.nanoTime() - start);
+        if (profiler.active()) {
+            profiler.end(Profiler.Phase.BLOCK_RESTORE, start);
+        }
     }
 
 }
@@ -38,12 +38,15 @@ package de.rafael.plugins.creeper.recover.common.classes;
 //
 //------------------------------
 
-import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
 import de.rafael.plugins.creeper.recover.common.classes.data.InventoryItems;
 import de.rafael.plugins.creeper.recover.common.classes.data.sign.SignLines;
 import de.rafael.plugins.creeper.recover.common.classes.data.sign.SignStyle;
 import de.rafael.plugins.creeper.recover.common.classes.list.BlockList;
+import de.rafael.plugins.creeper.recover.common.engine.Positions;
+import de.rafael.plugins.creeper.recover.common.jfr.RecoveryJobPrepareEvent;
 import de.rafael.plugins.creeper.recover.common.utils.MathUtils;
+import de.rafael.plugins.creeper.recover.core.PendingBlock;
+import de.rafael.plugins.creeper.recover.core.RecoveryJob;
 import lombok.Getter;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -57,16 +60,22 @@ import org.bukkit.inventory.DoubleChestInventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 @Getter
 public class Explosion {
 
     private final Location location;
-    private final List<ExplodedBlock> blocks;
+    // Ordering and bookkeeping of the captured blocks are done by the engine
+    private final RecoveryJob<ExplodedBlock> job;
 
     public Explosion(Location location, @NotNull BlockList blocks) {
+        RecoveryJobPrepareEvent prepareEvent = new RecoveryJobPrepareEvent();
+        prepareEvent.begin();
+        int inputBlocks = blocks.blocks().size();
+
         this.location = location;
 
         List<ExplodedBlock> explodedBlocks = new ArrayList<>();
@@ -136,54 +145,41 @@ public class Explosion {
             }
             explodedBlocks.add(explodedBlock);
         });
-        this.blocks = explodedBlocks
-                .stream().sorted(Comparator
-                        .comparingDouble(item -> ((ExplodedBlock) item).location().distance(location)).reversed())
-                .collect(Collectors.toCollection(ArrayList::new));
-    }
-
-    public synchronized boolean recoverBlock() {
-        Iterator<ExplodedBlock> iterator = this.blocks.iterator();
-        if (iterator.hasNext()) {
-            ExplodedBlock block = iterator.next();
-            block.recover();
-            iterator.remove();
-            return iterator.hasNext();
-        } else {
-            this.blocks.clear();
-            return false;
+        this.job = job(location, explodedBlocks);
+
+        prepareEvent.end();
+        if (prepareEvent.shouldCommit()) {
+            prepareEvent.world = location.getWorld() != null ? location.getWorld().getName() : null;
+            prepareEvent.inputBlocks = inputBlocks;
+            prepareEvent.jobBlocks = this.job.remaining();
+            prepareEvent.commit();
         }
     }
 
-    public int recoverBlocks() {
-        int recovered = 0;
-        while (recoverBlock()) {
-            recovered++;
-        }
-        return recovered;
+    /**
+     * Creates an explosion from blocks that were captured before, e.g. read from the journal
+     *
+     * @param location The location of the explosion
+     * @param blocks   The captured blocks
+     */
+    public Explosion(Location location, @NotNull List<ExplodedBlock> blocks) {
+        this.location = location;
+        this.job = job(location, blocks);
     }
 
-    public int recoverBlocks(int amount) {
-        int recovered = 0;
-        while (true) {
-            if (recovered >= amount) {
-                break;
-            }
-            if (!recoverBlock()) {
-                recovered++;
-                break;
-            }
-            recovered++;
+    private static @NotNull RecoveryJob<ExplodedBlock> job(Location location, @NotNull List<ExplodedBlock> blocks) {
+        List<PendingBlock<ExplodedBlock>> pendingBlocks = new ArrayList<>(blocks.size());
+        for (ExplodedBlock explodedBlock : blocks) {
+            pendingBlocks.add(new PendingBlock<>(Positions.of(explodedBlock.location()), explodedBlock));
         }
-        return recovered;
-    }
-
-    public boolean isFinished() {
-        return this.blocks.size() == 0;
+        return new RecoveryJob<>(Positions.of(location), pendingBlocks, ExplodedBlock::retainedSize);
     }
 
-    public void finished() {
-        CreeperPlugin.instance().pluginStats().explosionRecovered();
+    /**
+     * @return The estimated heap bytes of the blocks that were not recovered yet
+     */
+    public long retainedSize() {
+        return this.job.bytes();
     }
 
 }
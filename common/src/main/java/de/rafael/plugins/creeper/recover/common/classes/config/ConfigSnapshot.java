@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.classes.config;
+
+import com.google.gson.JsonObject;
+import de.rafael.plugins.creeper.recover.common.classes.enums.OverflowPolicies;
+import de.rafael.plugins.creeper.recover.common.classes.enums.StorageTypes;
+import de.rafael.plugins.creeper.recover.core.AdmissionLimits;
+import lombok.Builder;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.entity.EntityType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Immutable view of the whole plugin configuration.
+ * A new instance is built on every (re)load and published by the {@link de.rafael.plugins.creeper.recover.common.manager.ConfigManager}
+ * through a single volatile reference, so readers always see one consistent set of values without locking.
+ */
+@Builder(toBuilder = true)
+public record ConfigSnapshot(boolean enabled,
+                             boolean bStats,
+                             boolean ignoreUpdates,
+                             boolean debugEnabled,
+                             boolean worldguardTntCheck,
+                             boolean watchConfig,
+                             boolean jmx,
+                             boolean recordExplosions,
+                             boolean metricsEnabled,
+                             String metricsHost,
+                             int metricsPort,
+                             int recoverSpeed,
+                             int recoverDelay,
+                             int maxBlocksPerSecond,
+                             boolean journal,
+                             StorageTypes journalStorage,
+                             int journalMaxAge,
+                             int spillMemory,
+                             int spillAfter,
+                             int unloadedChunkTimeout,
+                             int maxTickTime,
+                             boolean instantUnseen,
+                             boolean coalesceUpdates,
+                             int maxExplosions,
+                             int maxBlocks,
+                             int maxMemory,
+                             int maxExplosionsPerWorld,
+                             int maxBlocksPerWorld,
+                             int maxMemoryPerWorld,
+                             OverflowPolicies overflowPolicy,
+                             Sound blockRecoverSound,
+                             double soundVolume,
+                             double soundVolumeScale,
+                             @Nullable Particle recoverParticle,
+                             Set<Material> blockBlacklist,
+                             Set<Material> protectedBlocks,
+                             Set<String> worldBlacklist,
+                             Set<EntityType> explosionBlacklist,
+                             List<JsonObject> targetList) {
+
+    public ConfigSnapshot {
+        blockBlacklist = freeze(blockBlacklist);
+        protectedBlocks = freeze(protectedBlocks);
+        worldBlacklist = freeze(worldBlacklist);
+        explosionBlacklist = freeze(explosionBlacklist);
+
+        List<JsonObject> targets = new ArrayList<>();
+        if (targetList != null) {
+            for (JsonObject target : targetList) {
+                targets.add(target.deepCopy());
+            }
+        }
+        targetList = Collections.unmodifiableList(targets);
+    }
+
+    /**
+     * @return The admission limits with the memory limits in bytes
+     */
+    public @NotNull AdmissionLimits admissionLimits() {
+        return new AdmissionLimits(maxExplosions, maxBlocks, maxMemory * 1024L * 1024L,
+                maxExplosionsPerWorld, maxBlocksPerWorld, maxMemoryPerWorld * 1024L * 1024L);
+    }
+
+    /**
+     * Creates the snapshot that is used until the config file was loaded successfully
+     *
+     * @return The default configuration
+     */
+    public static @NotNull ConfigSnapshot defaults() {
+        // Default protected blocks - player heads lose their skin when restored
+        List<Material> protectedBlocks = List.of(Material.PLAYER_HEAD, Material.PLAYER_WALL_HEAD);
+
+        // Default blacklisted worlds - don't recover explosions in nether/end
+        List<String> worldBlacklist = List.of("world_nether", "world_the_end");
+
+        // Default explosion blacklist - don't recover TNT explosions
+        // In 1.21+ PRIMED_TNT was renamed to TNT
+        List<EntityType> explosionBlacklist = new ArrayList<>();
+        try {
+            explosionBlacklist.add(EntityType.valueOf("TNT"));
+        } catch (IllegalArgumentException e1) {
+            try {
+                explosionBlacklist.add(EntityType.valueOf("PRIMED_TNT"));
+            } catch (IllegalArgumentException e2) {
+                // Neither exists, skip
+            }
+        }
+
+        // Default explosion blacklist - wind charges don't actually destroy most blocks
+        // They only break specific fragile blocks (decorated pots, buttons, etc.)
+        // so we ignore them to prevent false regeneration
+        try {
+            explosionBlacklist.add(EntityType.valueOf("WIND_CHARGE"));
+        } catch (IllegalArgumentException ignored) {
+            // WIND_CHARGE doesn't exist in older versions
+        }
+        try {
+            explosionBlacklist.add(EntityType.valueOf("BREEZE_WIND_CHARGE"));
+        } catch (IllegalArgumentException ignored) {
+            // BREEZE_WIND_CHARGE doesn't exist in older versions
+        }
+
+        Sound blockRecoverSound;
+        try {
+            blockRecoverSound = Sound.valueOf("BLOCK_ROOTED_DIRT_PLACE");
+        } catch (Exception exception) {
+            blockRecoverSound = Sound.BLOCK_GRAVEL_PLACE;
+        }
+
+        return ConfigSnapshot.builder()
+                .enabled(true)
+                .bStats(true)
+                .ignoreUpdates(false)
+                .debugEnabled(false)
+                .worldguardTntCheck(false)
+                .watchConfig(false)
+                .jmx(true)
+                .recordExplosions(false)
+                .metricsEnabled(false)
+                .metricsHost("127.0.0.1")
+                .metricsPort(9464)
+                .recoverSpeed(3 /* to milliseconds */ * 50)
+                .recoverDelay(20 * 5 /* to milliseconds */ * 50)
+                .maxBlocksPerSecond(0)
+                .journal(false)
+                .journalStorage(StorageTypes.FILE)
+                .journalMaxAge(0)
+                .spillMemory(0)
+                .spillAfter(30 * 1000)
+                .unloadedChunkTimeout(0)
+                .maxTickTime(0)
+                .instantUnseen(false)
+                .coalesceUpdates(false)
+                .maxExplosions(0)
+                .maxBlocks(0)
+                .maxMemory(0)
+                .maxExplosionsPerWorld(0)
+                .maxBlocksPerWorld(0)
+                .maxMemoryPerWorld(0)
+                .overflowPolicy(OverflowPolicies.RESTORE_OLDEST)
+                .blockRecoverSound(blockRecoverSound)
+                .soundVolume(0.5)
+                .soundVolumeScale(0.05)
+                .recoverParticle(null)
+                .blockBlacklist(Set.of())
+                .protectedBlocks(new LinkedHashSet<>(protectedBlocks))
+                .worldBlacklist(new LinkedHashSet<>(worldBlacklist))
+                .explosionBlacklist(new LinkedHashSet<>(explosionBlacklist))
+                .targetList(List.of())
+                .build();
+    }
+
+    private static <T> @NotNull Set<T> freeze(Collection<T> collection) {
+        if (collection == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(collection));
+    }
+
+}
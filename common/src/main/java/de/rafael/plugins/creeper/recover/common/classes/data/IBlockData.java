@@ -44,6 +44,11 @@ public interface IBlockData {
 
     void apply(Block block, RecoverPhase phase);
 
+    /**
+     * @return The estimated heap bytes held by this data
+     */
+    long retainedSize();
+
     enum RecoverPhase {
         PRE_STATE_UPDATE,
         POST_STATE_UPDATE
@@ -48,20 +48,42 @@ import java.util.HashMap;
 @Getter
 public class InventoryItems implements IBlockData {
 
+    // Rough heap sizes on a 64 bit JVM with compressed oops
+    private static final long BASE_SIZE = 64;
+    private static final long ENTRY_SIZE = 48;
+    private static final long ITEM_SIZE = 64;
+    private static final long META_SIZE = 512;
+
     private final HashMap<Integer, ItemStack> items = new HashMap<>();
+    // Kept up to date by set, so reading it never walks the items
+    private long retainedSize = BASE_SIZE;
 
     public void set(int slot, ItemStack stack) {
         if (items.containsKey(slot)) {
-            items.replace(slot, stack);
+            retainedSize -= size(items.replace(slot, stack));
         } else {
             items.put(slot, stack);
+            retainedSize += ENTRY_SIZE;
         }
+        retainedSize += size(stack);
     }
 
     public ItemStack get(int slot) {
         return items.getOrDefault(slot, null);
     }
 
+    @Override
+    public long retainedSize() {
+        return retainedSize;
+    }
+
+    private static long size(ItemStack stack) {
+        if (stack == null) {
+            return 0;
+        }
+        return stack.hasItemMeta() ? ITEM_SIZE + META_SIZE : ITEM_SIZE;
+    }
+
     @Override
     public void apply(Block block, RecoverPhase phase) {
         if (phase == RecoverPhase.POST_STATE_UPDATE && block.getState() instanceof InventoryHolder holder) {
@@ -41,6 +41,11 @@ import org.bukkit.block.Sign;
 
 public record SignData(boolean waxed) implements IBlockData {
 
+    @Override
+    public long retainedSize() {
+        return 16;
+    }
+
     @Override
     public void apply(Block block, RecoverPhase phase) {
         if (phase == RecoverPhase.POST_STATE_UPDATE && block.getState() instanceof Sign sign) {
@@ -45,6 +45,18 @@ import org.bukkit.block.sign.Side;
 
 public record SignLines(Side side, String[] lines) implements IBlockData {
 
+    @Override
+    public long retainedSize() {
+        // Record and array headers, every line is a string with its own byte array
+        long size = 32 + 4L * lines.length;
+        for (String line : lines) {
+            if (line != null) {
+                size += 40 + line.length();
+            }
+        }
+        return size;
+    }
+
     @Override
     @SuppressWarnings("deprecation")
     public void apply(Block block, RecoverPhase phase) {
@@ -47,6 +47,11 @@ import org.bukkit.block.sign.SignSide;
 
 public record SignStyle(Side side, DyeColor dyeColor, boolean glowing) implements IBlockData {
 
+    @Override
+    public long retainedSize() {
+        return 24;
+    }
+
     @Override
     @SuppressWarnings("deprecation")
     public void apply(Block block, RecoverPhase phase) {
@@ -39,7 +39,16 @@ package de.rafael.plugins.creeper.recover.common.command;
 //------------------------------
 
 import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
+import de.rafael.plugins.creeper.recover.common.classes.ExplodedBlock;
+import de.rafael.plugins.creeper.recover.common.manager.ExplosionManager;
 import de.rafael.plugins.creeper.recover.common.manager.MessageManager;
+import de.rafael.plugins.creeper.recover.common.stats.Histogram;
+import de.rafael.plugins.creeper.recover.common.stats.MemoryReport;
+import de.rafael.plugins.creeper.recover.common.stats.PluginStats;
+import de.rafael.plugins.creeper.recover.common.stats.Profiler;
+import de.rafael.plugins.creeper.recover.common.utils.FormatUtils;
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.tier.TieredStore;
 import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -51,6 +60,8 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class RecoverCommand implements CommandExecutor, TabCompleter {
 
@@ -65,32 +76,38 @@ public class RecoverCommand implements CommandExecutor, TabCompleter {
         }
         if (args.length == 2 && args[0].equalsIgnoreCase("fix")) {
             try {
-                CreeperPlugin.scheduler().runAsync(() -> {
-                    if (args[1].equalsIgnoreCase("all")) {
-                        CreeperPlugin.instance().configManager().sendDebugMessage(
-                                "Manual recovery command executed: recovering ALL blocks by " + sender.getName());
-                        int recovered = CreeperPlugin.instance().explosionManager().recoverBlocks(Integer.MAX_VALUE);
-                        sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
-                                + messageManager.getMessage(MessageManager.Message.BLOCKS_RECOVERED, recovered));
-                    } else {
-                        int amount = Integer.parseInt(args[1]);
-                        CreeperPlugin.instance().configManager().sendDebugMessage(
-                                "Manual recovery command executed: recovering " + amount + " blocks by "
-                                        + sender.getName());
-                        int recovered = CreeperPlugin.instance().explosionManager().recoverBlocks(amount);
+                int amount;
+                if (args[1].equalsIgnoreCase("all")) {
+                    amount = Integer.MAX_VALUE;
+                    CreeperPlugin.instance().configManager().sendDebugMessage(
+                            "Manual recovery command executed: recovering ALL blocks by " + sender.getName());
+                } else {
+                    amount = Integer.parseInt(args[1]);
+                    CreeperPlugin.instance().configManager().sendDebugMessage(
+                            "Manual recovery command executed: recovering " + amount + " blocks by "
+                                    + sender.getName());
+                }
+                // Recovered by the shards, the command thread never waits for them
+                CreeperPlugin.instance().explosionManager().recoverBlocks(amount).thenAccept(recovered ->
                         sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
-                                + messageManager.getMessage(MessageManager.Message.BLOCKS_RECOVERED, recovered));
-                    }
-                });
+                                + messageManager.getMessage(MessageManager.Message.BLOCKS_RECOVERED, recovered)));
             } catch (NumberFormatException exception) {
                 sender.sendMessage(
                         messageManager.getMessage(MessageManager.Message.PREFIX) + "§c" + exception.getMessage());
             }
         } else if (args.length == 1 && args[0].equalsIgnoreCase("reload")) {
-            CreeperPlugin.instance().configManager().load();
-            CreeperPlugin.instance().messageManager().load();
-            sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
-                    + messageManager.getMessage(MessageManager.Message.RELOADED));
+            // Build the new config off the tick thread, readers switch over to it atomically
+            CreeperPlugin.scheduler().runAsync(() -> {
+                if (!CreeperPlugin.instance().configManager().reload()) {
+                    sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                            + messageManager.getMessage(MessageManager.Message.RELOAD_FAILED));
+                    return;
+                }
+                CreeperPlugin.instance().messageManager().load();
+                CreeperPlugin.instance().refreshConfigWatcher();
+                sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                        + messageManager.getMessage(MessageManager.Message.RELOADED));
+            });
         } else if (args.length == 1 && args[0].equalsIgnoreCase("stats")) {
             sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
                     + messageManager.getMessage(MessageManager.Message.STATS_TITLE));
@@ -100,6 +117,21 @@ public class RecoverCommand implements CommandExecutor, TabCompleter {
             sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
                     + messageManager.getMessage(MessageManager.Message.STATS_LINE_EXPLOSIONS,
                             CreeperPlugin.instance().pluginStats().explosionsRecovered()));
+            showTimings(sender);
+        } else if ((args.length == 1 || args.length == 2) && args[0].equalsIgnoreCase("profile")) {
+            if (sender.hasPermission("creeper.recover.admin")) {
+                handleProfileCommand(sender, args);
+            } else {
+                sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                        + messageManager.getMessage(MessageManager.Message.NO_PERMISSION));
+            }
+        } else if (args.length == 1 && args[0].equalsIgnoreCase("memory")) {
+            if (sender.hasPermission("creeper.recover.admin")) {
+                showMemory(sender);
+            } else {
+                sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                        + messageManager.getMessage(MessageManager.Message.NO_PERMISSION));
+            }
         } else if (args.length >= 1 && args[0].equalsIgnoreCase("protected")) {
             if (sender.hasPermission("creeper.recover.admin")) {
                 handleProtectedCommand(sender, args);
@@ -168,8 +200,137 @@ public class RecoverCommand implements CommandExecutor, TabCompleter {
                     messageManager.getMessage(MessageManager.Message.HELP_LINE_4));
         }
         if (sender.hasPermission("creeper.recover.admin")) {
+            sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX) +
+                    messageManager.getMessage(MessageManager.Message.HELP_LINE_5));
             sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX) +
                     "§7/recover protected <list|add|remove> [material] - Manage protected blocks");
+            sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX) +
+                    "§7/recover memory - Show the estimated memory of pending explosions");
+        }
+    }
+
+    public void showTimings(@NotNull CommandSender sender) {
+        MessageManager messageManager = CreeperPlugin.instance().messageManager();
+        PluginStats stats = CreeperPlugin.instance().pluginStats();
+        sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                + messageManager.getMessage(MessageManager.Message.STATS_TIMINGS_TITLE));
+        for (Histogram histogram : List.of(stats.captureTime(), stats.restoreTime(), stats.recoveryDelay())) {
+            sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                    + messageManager.getMessage(MessageManager.Message.STATS_LINE_TIMING, histogram.help(),
+                            FormatUtils.formatNanos(histogram.percentile(0.5)),
+                            FormatUtils.formatNanos(histogram.percentile(0.95)),
+                            FormatUtils.formatNanos(histogram.percentile(0.99)),
+                            histogram.count()));
+        }
+        sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                + messageManager.getMessage(MessageManager.Message.STATS_LINE_QUEUE,
+                        CreeperPlugin.instance().explosionManager().pendingBlocks(),
+                        CreeperPlugin.instance().explosionManager().pendingExplosions(),
+                        stats.queueDepth().percentile(0.95)));
+        sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                + messageManager.getMessage(MessageManager.Message.STATS_LINE_PHYSICS,
+                        stats.physicsChecks().sum(), FormatUtils.formatPercent(stats.physicsCancelRate())));
+    }
+
+    public void showMemory(@NotNull CommandSender sender) {
+        MessageManager messageManager = CreeperPlugin.instance().messageManager();
+        ExplosionManager explosionManager = CreeperPlugin.instance().explosionManager();
+        sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                + messageManager.getMessage(MessageManager.Message.MEMORY_TITLE,
+                        FormatUtils.formatBytes(explosionManager.pendingBytes()),
+                        explosionManager.pendingExplosions()));
+        Map<String, Long> blocks = explosionManager.pendingBlocksByWorld();
+        explosionManager.pendingBytesByWorld().forEach((world, bytes) -> {
+            if (bytes > 0) {
+                sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                        + messageManager.getMessage(MessageManager.Message.MEMORY_LINE_WORLD, world,
+                                FormatUtils.formatBytes(bytes), blocks.getOrDefault(world, 0L)));
+            }
+        });
+        TieredStore<ExplodedBlock> tieredStore = explosionManager.engine().tieredStore();
+        if (tieredStore != null) {
+            sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                    + messageManager.getMessage(MessageManager.Message.MEMORY_LINE_SPILL, tieredStore.coldJobs(),
+                            FormatUtils.formatBytes(tieredStore.spilledBytes()),
+                            FormatUtils.formatBytes(tieredStore.residentBytes())));
+        }
+
+        List<MemoryReport.JobUsage> usages = MemoryReport.biggest(explosionManager.engine().jobs(), 10);
+        if (usages.isEmpty()) {
+            return;
+        }
+        sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                + messageManager.getMessage(MessageManager.Message.MEMORY_JOBS_TITLE));
+        for (MemoryReport.JobUsage usage : usages) {
+            BlockPos center = usage.center();
+            if (usage.cold()) {
+                sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                        + messageManager.getMessage(MessageManager.Message.MEMORY_LINE_COLD_JOB, center.world(),
+                                center.x(), center.y(), center.z(), FormatUtils.formatBytes(usage.bytes()),
+                                usage.blocks()));
+            } else {
+                sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                        + messageManager.getMessage(MessageManager.Message.MEMORY_LINE_JOB, center.world(),
+                                center.x(), center.y(), center.z(), FormatUtils.formatBytes(usage.bytes()),
+                                usage.blocks(), FormatUtils.formatBytes(usage.blockBytes()),
+                                usage.inventories(), FormatUtils.formatBytes(usage.inventoryBytes()),
+                                usage.signs(), FormatUtils.formatBytes(usage.signBytes())));
+            }
+        }
+    }
+
+    public void handleProfileCommand(@NotNull CommandSender sender, @NotNull String[] args) {
+        MessageManager messageManager = CreeperPlugin.instance().messageManager();
+        int seconds = 30;
+        if (args.length == 2) {
+            try {
+                seconds = Math.max(1, Math.min(300, Integer.parseInt(args[1])));
+            } catch (NumberFormatException exception) {
+                sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                        + "§cUsage: /recover profile [seconds]");
+                return;
+            }
+        }
+
+        Profiler profiler = CreeperPlugin.instance().profiler();
+        if (!profiler.start()) {
+            sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                    + messageManager.getMessage(MessageManager.Message.PROFILE_RUNNING));
+            return;
+        }
+        sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                + messageManager.getMessage(MessageManager.Message.PROFILE_STARTED, seconds));
+        CreeperPlugin.scheduler().runAsyncLater(() -> {
+            profiler.stop();
+            showProfile(sender, profiler);
+        }, seconds, TimeUnit.SECONDS);
+    }
+
+    public void showProfile(@NotNull CommandSender sender, @NotNull Profiler profiler) {
+        MessageManager messageManager = CreeperPlugin.instance().messageManager();
+        long elapsed = profiler.elapsed();
+        // Servers that report their tick times get the share of the measured ticks, the others of the wall time
+        long ticks = profiler.ticks();
+        long total = ticks > 0 ? profiler.tickTime() : elapsed;
+        sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX) + (ticks > 0
+                ? messageManager.getMessage(MessageManager.Message.PROFILE_TITLE,
+                        TimeUnit.NANOSECONDS.toSeconds(elapsed), ticks)
+                : messageManager.getMessage(MessageManager.Message.PROFILE_WALL_TITLE,
+                        TimeUnit.NANOSECONDS.toSeconds(elapsed))));
+        List<Histogram> samples = profiler.samples();
+        if (samples.isEmpty()) {
+            sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                    + messageManager.getMessage(MessageManager.Message.PROFILE_EMPTY));
+        }
+        for (Histogram histogram : samples) {
+            sender.sendMessage(messageManager.getMessage(MessageManager.Message.PREFIX)
+                    + messageManager.getMessage(MessageManager.Message.PROFILE_LINE, histogram.help(),
+                            FormatUtils.formatNanos(histogram.sum()),
+                            FormatUtils.formatPercent((double) histogram.sum() / Math.max(1, total)),
+                            FormatUtils.formatNanos(histogram.percentile(0.5)),
+                            FormatUtils.formatNanos(histogram.percentile(0.95)),
+                            FormatUtils.formatNanos(histogram.percentile(0.99)),
+                            histogram.count()));
         }
     }
 
@@ -253,11 +414,16 @@ public class RecoverCommand implements CommandExecutor, TabCompleter {
                 completions.add("debug");
             }
             if (sender.hasPermission("creeper.recover.admin")) {
+                completions.add("profile");
                 completions.add("protected");
+                completions.add("memory");
             }
             return completions;
         } else if (args.length == 2 && args[0].equalsIgnoreCase("fix")) {
             return Arrays.asList("all", "10", "100", "1000", "10000");
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("profile")
+                && sender.hasPermission("creeper.recover.admin")) {
+            return Arrays.asList("10", "30", "60");
         } else if (args.length == 2 && args[0].equalsIgnoreCase("debug")
                 && sender.hasPermission("creeper.recover.debug")) {
             return Arrays.asList("enable", "disable");
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.engine;
+
+import de.rafael.plugins.creeper.recover.common.classes.ExplodedBlock;
+import de.rafael.plugins.creeper.recover.core.PendingBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.tier.BlockCodec;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Spills {@link ExplodedBlock}s in the format of the {@link Recordings}. Decoding only wraps the recorded block in a
+ * {@link SpilledBlock}, it is rebuilt when it is placed.
+ */
+public class BukkitBlockCodec implements BlockCodec<ExplodedBlock> {
+
+    @Override
+    public @NotNull RecordedBlock encode(@NotNull PendingBlock<ExplodedBlock> block) {
+        if (block.block() instanceof SpilledBlock spilled) {
+            return spilled.recorded();
+        }
+        return new RecordedBlock(block.position(), block.block().data().getAsString(),
+                Recordings.payload(block.block()));
+    }
+
+    @Override
+    public @NotNull PendingBlock<ExplodedBlock> decode(@NotNull RecordedBlock block) {
+        return new PendingBlock<>(block.position(), new SpilledBlock(block));
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.engine;
+
+import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.TaskScheduler;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs the engine tasks with the {@link CreeperPlugin.Scheduler} of the platform
+ */
+public class BukkitTaskScheduler implements TaskScheduler {
+
+    @Override
+    public boolean runAt(BlockPos position, Runnable task) {
+        Location location = location(position);
+        if (location == null) {
+            // The world was unloaded, there is nothing to restore the block in
+            return false;
+        }
+        CreeperPlugin.scheduler().runOnCorrectThread(location, task);
+        return true;
+    }
+
+    @Override
+    public boolean runsInline(BlockPos position) {
+        Location location = location(position);
+        return location != null && CreeperPlugin.scheduler().runsInline(location);
+    }
+
+    @Override
+    public void runAtFixedRate(Consumer<Runnable> task, long delay, long period, TimeUnit unit) {
+        CreeperPlugin.scheduler().runAsyncAtFixedRate(task, (int) delay, (int) period, unit);
+    }
+
+    private static @Nullable Location location(BlockPos position) {
+        World world = Bukkit.getWorld(position.world());
+        return world == null ? null : new Location(world, position.x(), position.y(), position.z());
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.engine;
+
+import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
+import de.rafael.plugins.creeper.recover.common.classes.ExplodedBlock;
+import de.rafael.plugins.creeper.recover.common.classes.config.ConfigSnapshot;
+import de.rafael.plugins.creeper.recover.common.stats.Profiler;
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.WorldAccess;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Places captured blocks in a Bukkit world
+ */
+public class BukkitWorldAccess implements WorldAccess<ExplodedBlock> {
+
+    private static final int MAX_PARTICLES = 64;
+
+    @Override
+    public void restore(BlockPos position, ExplodedBlock block) {
+        if (block instanceof SpilledBlock spilled) {
+            try {
+                block = spilled.rebuild();
+            } catch (IOException exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to restore the spilled block at "
+                        + position + ": " + exception.getMessage());
+                return;
+            }
+        }
+        // The other half of a double chest is always next to the block, so it belongs to the same region,
+        // the engine checked that its chunk is loaded right before this call
+        for (ExplodedBlock connectedBlock : block.connectedBlocks()) {
+            connectedBlock.recoverBasics();
+        }
+        block.recoverBasics();
+    }
+
+    @Override
+    public void effects(List<BlockPos> positions) {
+        World world = Bukkit.getWorld(positions.get(0).world());
+        if (world == null) {
+            return;
+        }
+        Profiler profiler = CreeperPlugin.instance().profiler();
+        long start = profiler.begin();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (BlockPos position : positions) {
+            minX = Math.min(minX, position.x());
+            minY = Math.min(minY, position.y());
+            minZ = Math.min(minZ, position.z());
+            maxX = Math.max(maxX, position.x());
+            maxY = Math.max(maxY, position.y());
+            maxZ = Math.max(maxZ, position.z());
+        }
+        Location center = new Location(world, (minX + maxX + 1) / 2d, (minY + maxY + 1) / 2d, (minZ + maxZ + 1) / 2d);
+
+        ConfigSnapshot config = CreeperPlugin.instance().configManager().snapshot();
+        // Louder for bigger batches, but never above full volume
+        float volume = (float) Math.min(1, config.soundVolume() + config.soundVolumeScale() * (positions.size() - 1));
+        world.playSound(center, config.blockRecoverSound(), volume, 1f);
+        if (config.recoverParticle() != null) {
+            world.spawnParticle(config.recoverParticle(), center, Math.min(positions.size() * 4, MAX_PARTICLES),
+                    (maxX - minX + 1) / 2d, (maxY - minY + 1) / 2d, (maxZ - minZ + 1) / 2d, 0.02);
+        }
+        profiler.end(Profiler.Phase.SOUND, start);
+    }
+
+    @Override
+    public boolean isWatched(BlockPos position) {
+        if (!CreeperPlugin.instance().configManager().snapshot().instantUnseen()) {
+            return true;
+        }
+        // One chunk more than the view distance, the blocks of an explosion spread around its center
+        int distance = Bukkit.getViewDistance() + 1;
+        // The online players are a copy on write list, so they can be read from the recovery thread
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            Location location = player.getLocation();
+            if (location.getWorld() != null && location.getWorld().getName().equals(position.world())
+                    && Math.abs((location.getBlockX() >> 4) - position.chunkX()) <= distance
+                    && Math.abs((location.getBlockZ() >> 4) - position.chunkZ()) <= distance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean coalesceSections() {
+        return CreeperPlugin.instance().configManager().snapshot().coalesceUpdates();
+    }
+
+    @Override
+    public boolean isLoaded(BlockPos position) {
+        World world = Bukkit.getWorld(position.world());
+        return world != null && world.isChunkLoaded(position.chunkX(), position.chunkZ());
+    }
+
+    @Override
+    public @Nullable BlockPos unloaded(BlockPos position, ExplodedBlock block) {
+        if (!isLoaded(position)) {
+            return position;
+        }
+        if (block instanceof SpilledBlock spilled) {
+            try {
+                block = spilled.rebuild();
+            } catch (IOException exception) {
+                // Reported by restore
+                return null;
+            }
+        }
+        // The other half of a double chest can be across a chunk border
+        for (ExplodedBlock connectedBlock : block.connectedBlocks()) {
+            BlockPos connected = Positions.of(connectedBlock.location());
+            if (!isLoaded(connected)) {
+                return connected;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<?> load(BlockPos position) {
+        World world = Bukkit.getWorld(position.world());
+        if (world == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("World " + position.world()
+                    + " is not loaded"));
+        }
+        return CreeperPlugin.scheduler().loadChunk(world, position.chunkX(), position.chunkZ());
+    }
+
+}
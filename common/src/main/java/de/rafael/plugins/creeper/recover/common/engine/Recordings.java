@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.engine;
+
+import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
+import de.rafael.plugins.creeper.recover.common.classes.ExplodedBlock;
+import de.rafael.plugins.creeper.recover.common.classes.Explosion;
+import de.rafael.plugins.creeper.recover.common.classes.data.IBlockData;
+import de.rafael.plugins.creeper.recover.common.classes.data.InventoryItems;
+import de.rafael.plugins.creeper.recover.common.classes.data.sign.SignData;
+import de.rafael.plugins.creeper.recover.common.classes.data.sign.SignLines;
+import de.rafael.plugins.creeper.recover.common.classes.data.sign.SignStyle;
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.PendingBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import org.bukkit.Bukkit;
+import org.bukkit.DyeColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.sign.Side;
+import org.bukkit.entity.EntityType;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts captured explosions to the Bukkit-free {@link RecordedExplosion} and back
+ */
+public final class Recordings {
+
+    private static final byte INVENTORY = 1;
+    private static final byte SIGN_LINES = 2;
+    private static final byte SIGN_STYLE = 3;
+    private static final byte SIGN_DATA = 4;
+    private static final byte CONNECTED_BLOCK = 5;
+    private static final byte CODEC_INVENTORY = 6;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private Recordings() {
+    }
+
+    /**
+     * Encodes the block data and inventories of captured blocks. The capture holds copies of the block data and
+     * items, so this runs on any thread and the tick that captured the explosion doesn't pay for it.
+     *
+     * @param timestamp  The {@link System#currentTimeMillis()} of the explosion
+     * @param center     The center of the explosion
+     * @param entityType The entity that exploded
+     * @param pending    The captured blocks, taken before any of them were recovered
+     * @return The recorded explosion
+     */
+    public static @NotNull RecordedExplosion of(long timestamp, @NotNull BlockPos center,
+                                                @NotNull EntityType entityType,
+                                                @NotNull List<PendingBlock<ExplodedBlock>> pending) {
+        List<RecordedBlock> blocks = new ArrayList<>(pending.size());
+        for (PendingBlock<ExplodedBlock> block : pending) {
+            blocks.add(new RecordedBlock(block.position(), block.block().data().getAsString(),
+                    payload(block.block())));
+        }
+        return new RecordedExplosion(timestamp, center, entityType.name(), blocks);
+    }
+
+    /**
+     * Encodes the tile data and connected blocks of a block as a list of tagged entries
+     *
+     * @param block The block
+     * @return The payload, empty if the block has no extra data
+     */
+    public static byte[] payload(@NotNull ExplodedBlock block) {
+        if (block.otherData().isEmpty() && block.connectedBlocks().isEmpty()) {
+            return EMPTY;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            for (IBlockData data : block.otherData()) {
+                if (data instanceof InventoryItems inventory) {
+                    ItemCodec codec = CreeperPlugin.itemCodec();
+                    output.writeByte(codec == null ? INVENTORY : CODEC_INVENTORY);
+                    output.writeInt(inventory.items().size());
+                    for (Map.Entry<Integer, ItemStack> entry : inventory.items().entrySet()) {
+                        output.writeInt(entry.getKey());
+                        byte[] item = codec == null ? item(entry.getValue()) : codec.encode(entry.getValue());
+                        output.writeInt(item.length);
+                        output.write(item);
+                    }
+                } else if (data instanceof SignLines lines) {
+                    output.writeByte(SIGN_LINES);
+                    output.writeUTF(lines.side() == null ? "" : lines.side().name());
+                    output.writeInt(lines.lines().length);
+                    for (String line : lines.lines()) {
+                        output.writeUTF(line == null ? "" : line);
+                    }
+                } else if (data instanceof SignStyle style) {
+                    output.writeByte(SIGN_STYLE);
+                    output.writeUTF(style.side() == null ? "" : style.side().name());
+                    output.writeUTF(style.dyeColor() == null ? "" : style.dyeColor().name());
+                    output.writeBoolean(style.glowing());
+                } else if (data instanceof SignData sign) {
+                    output.writeByte(SIGN_DATA);
+                    output.writeBoolean(sign.waxed());
+                }
+            }
+            for (ExplodedBlock connected : block.connectedBlocks()) {
+                output.writeByte(CONNECTED_BLOCK);
+                output.writeInt(connected.location().getBlockX() - block.location().getBlockX());
+                output.writeInt(connected.location().getBlockY() - block.location().getBlockY());
+                output.writeInt(connected.location().getBlockZ() - block.location().getBlockZ());
+                output.writeUTF(connected.data().getAsString());
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to encode the data of " + block.material(), exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Rebuilds a captured explosion, has to be called on the server thread
+     *
+     * @param recorded The recorded explosion
+     * @return The explosion or null if its world is not loaded
+     * @throws IOException If the payload of a block can't be decoded
+     */
+    public static @Nullable Explosion explosion(@NotNull RecordedExplosion recorded) throws IOException {
+        World world = Bukkit.getWorld(recorded.origin().world());
+        if (world == null) {
+            return null;
+        }
+        List<ExplodedBlock> blocks = new ArrayList<>(recorded.blocks().size());
+        for (RecordedBlock block : recorded.blocks()) {
+            blocks.add(block(world, block.position().x(), block.position().y(), block.position().z(),
+                    block.blockData(), block.payload()));
+        }
+        BlockPos origin = recorded.origin();
+        return new Explosion(new Location(world, origin.x(), origin.y(), origin.z()), blocks);
+    }
+
+    /**
+     * Rebuilds a single block
+     *
+     * @param recorded The recorded block
+     * @return The block
+     * @throws IOException If its world is not loaded or the payload can't be decoded
+     */
+    public static @NotNull ExplodedBlock block(@NotNull RecordedBlock recorded) throws IOException {
+        BlockPos position = recorded.position();
+        World world = Bukkit.getWorld(position.world());
+        if (world == null) {
+            throw new IOException("The world " + position.world() + " is not loaded");
+        }
+        return block(world, position.x(), position.y(), position.z(), recorded.blockData(), recorded.payload());
+    }
+
+    private static @NotNull ExplodedBlock block(World world, int x, int y, int z, String blockData,
+                                                byte @NotNull [] payload) throws IOException {
+        BlockData data = Bukkit.createBlockData(blockData);
+        ExplodedBlock block = new ExplodedBlock(new Location(world, x, y, z), data.getMaterial(), data);
+        if (payload.length == 0) {
+            return block;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            while (input.available() > 0) {
+                byte tag = input.readByte();
+                switch (tag) {
+                    case INVENTORY -> {
+                        InventoryItems inventory = new InventoryItems();
+                        int size = input.readInt();
+                        for (int i = 0; i < size; i++) {
+                            int slot = input.readInt();
+                            byte[] item = blob(input);
+                            inventory.set(slot, item(item));
+                        }
+                        block.addData(inventory);
+                    }
+                    case CODEC_INVENTORY -> {
+                        ItemCodec codec = CreeperPlugin.itemCodec();
+                        if (codec == null) {
+                            throw new IOException("The items were written by the Paper build of the plugin");
+                        }
+                        InventoryItems inventory = new InventoryItems();
+                        int size = input.readInt();
+                        for (int i = 0; i < size; i++) {
+                            int slot = input.readInt();
+                            byte[] item = blob(input);
+                            inventory.set(slot, codec.decode(item));
+                        }
+                        block.addData(inventory);
+                    }
+                    case SIGN_LINES -> {
+                        Side side = side(input.readUTF());
+                        // Every line takes at least its two byte length
+                        String[] lines = new String[length(input, input.readInt(), 2)];
+                        for (int i = 0; i < lines.length; i++) {
+                            lines[i] = input.readUTF();
+                        }
+                        block.addData(new SignLines(side, lines));
+                    }
+                    case SIGN_STYLE -> {
+                        Side side = side(input.readUTF());
+                        String color = input.readUTF();
+                        block.addData(new SignStyle(side, color.isEmpty() ? null : DyeColor.valueOf(color),
+                                input.readBoolean()));
+                    }
+                    case SIGN_DATA -> block.addData(new SignData(input.readBoolean()));
+                    case CONNECTED_BLOCK -> block.connectBlock(block(world, x + input.readInt(), y + input.readInt(),
+                            z + input.readInt(), input.readUTF(), EMPTY));
+                    default -> throw new IOException("Unknown block data " + tag);
+                }
+            }
+        }
+        return block;
+    }
+
+    private static byte @NotNull [] blob(@NotNull DataInputStream input) throws IOException {
+        byte[] blob = new byte[length(input, input.readInt(), 1)];
+        input.readFully(blob);
+        return blob;
+    }
+
+    /**
+     * Checks a length read from a payload against the bytes that are left, so damaged data can't allocate more
+     */
+    private static int length(@NotNull DataInputStream input, int length, int bytesPerEntry) throws IOException {
+        if (length < 0 || length > input.available() / bytesPerEntry) {
+            throw new IOException("Damaged payload, invalid length " + length);
+        }
+        return length;
+    }
+
+    private static @Nullable Side side(@NotNull String name) {
+        return name.isEmpty() ? null : Side.valueOf(name);
+    }
+
+    private static ItemStack item(byte[] bytes) throws IOException {
+        try (BukkitObjectInputStream input = new BukkitObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (ItemStack) input.readObject();
+        } catch (ClassNotFoundException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    private static byte[] item(ItemStack item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream output = new BukkitObjectOutputStream(bytes)) {
+            output.writeObject(item);
+        }
+        return bytes.toByteArray();
+    }
+
+}
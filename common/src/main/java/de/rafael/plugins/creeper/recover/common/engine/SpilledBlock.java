@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.rafael.plugins.creeper.recover.common.engine;
+
+import de.rafael.plugins.creeper.recover.common.classes.ExplodedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * A block loaded back from the spill file. Spilled jobs are loaded on the recovery thread, where block data and
+ * items must not be created, so the block is only rebuilt by the {@link BukkitWorldAccess} that places it.
+ */
+public class SpilledBlock extends ExplodedBlock {
+
+    private final RecordedBlock recorded;
+    // Only touched by the thread that owns the block
+    private ExplodedBlock rebuilt;
+
+    public SpilledBlock(@NotNull RecordedBlock recorded) {
+        super(null, null, null);
+        this.recorded = recorded;
+    }
+
+    public @NotNull RecordedBlock recorded() {
+        return this.recorded;
+    }
+
+    /**
+     * Has to be called on the thread that owns the block, the block is rebuilt once
+     *
+     * @return The block with its data and connected blocks
+     * @throws IOException If the world of the block is not loaded or the payload can't be decoded
+     */
+    public @NotNull ExplodedBlock rebuild() throws IOException {
+        if (this.rebuilt == null) {
+            this.rebuilt = Recordings.block(this.recorded);
+        }
+        return this.rebuilt;
+    }
+
+    @Override
+    public long retainedSize() {
+        return BASE_SIZE + this.recorded.blockData().length() * 2L + this.recorded.payload().length;
+    }
+
+}
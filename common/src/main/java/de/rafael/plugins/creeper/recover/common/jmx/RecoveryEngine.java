@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.jmx;
+
+import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
+import de.rafael.plugins.creeper.recover.common.manager.ExplosionManager;
+import de.rafael.plugins.creeper.recover.common.stats.PluginStats;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+
+@RequiredArgsConstructor
+public class RecoveryEngine implements RecoveryEngineMXBean {
+
+    private final ExplosionManager explosionManager;
+    private final PluginStats pluginStats;
+
+    @Override
+    public long getPendingExplosions() {
+        return this.explosionManager.pendingExplosions();
+    }
+
+    @Override
+    public long getPendingBlocks() {
+        return this.explosionManager.pendingBlocks();
+    }
+
+    @Override
+    public int getSuppressedPositions() {
+        return this.explosionManager.suppressedBlocks();
+    }
+
+    @Override
+    public double getThroughputBlocksPerSecond() {
+        return this.pluginStats.blockRate().rate(TimeUnit.SECONDS);
+    }
+
+    @Override
+    public int getRateLimit() {
+        return this.explosionManager.rateLimit();
+    }
+
+    @Override
+    public void setRateLimit(int blocksPerSecond) {
+        this.explosionManager.rateLimit(blocksPerSecond);
+        CreeperPlugin.instance().configManager().sendDebugMessage("Rate limit changed over JMX to " + blocksPerSecond);
+    }
+
+    @Override
+    public boolean isPaused() {
+        return this.explosionManager.paused();
+    }
+
+    @Override
+    public void pause() {
+        this.explosionManager.paused(true);
+        CreeperPlugin.instance().configManager().sendDebugMessage("Recovery paused over JMX");
+    }
+
+    @Override
+    public void resume() {
+        this.explosionManager.paused(false);
+        CreeperPlugin.instance().configManager().sendDebugMessage("Recovery resumed over JMX");
+    }
+
+    @Override
+    public int flushWorld(String worldName) {
+        // Called on a JMX thread, so waiting for the shard doesn't hold a tick
+        return this.explosionManager.recoverWorld(worldName).join();
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.jmx;
+
+/**
+ * Management interface of the recovery engine, exposes the queue state and allows tuning it at runtime
+ */
+public interface RecoveryEngineMXBean {
+
+    long getPendingExplosions();
+
+    long getPendingBlocks();
+
+    int getSuppressedPositions();
+
+    double getThroughputBlocksPerSecond();
+
+    /**
+     * @return The maximum amount of blocks recovered per second, zero means unlimited
+     */
+    int getRateLimit();
+
+    /**
+     * @param blocksPerSecond The new limit, zero means unlimited and a negative value restores the configured limit
+     */
+    void setRateLimit(int blocksPerSecond);
+
+    boolean isPaused();
+
+    void pause();
+
+    void resume();
+
+    /**
+     * Instantly recovers all pending explosions in a world
+     *
+     * @param worldName The name of the world
+     * @return The amount of recovered blocks
+     */
+    int flushWorld(String worldName);
+
+}
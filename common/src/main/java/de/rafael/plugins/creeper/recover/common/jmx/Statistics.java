@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.jmx;
+
+import de.rafael.plugins.creeper.recover.common.stats.PluginStats;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class Statistics implements StatisticsMXBean {
+
+    private final PluginStats pluginStats;
+
+    @Override
+    public int getBlocksRecoveredToday() {
+        return this.pluginStats.blocksRecovered();
+    }
+
+    @Override
+    public int getExplosionsRecoveredToday() {
+        return this.pluginStats.explosionsRecovered();
+    }
+
+    @Override
+    public long getBlocksRecoveredTotal() {
+        return this.pluginStats.blocksRecoveredTotal().sum();
+    }
+
+    @Override
+    public long getExplosionsRecoveredTotal() {
+        return this.pluginStats.explosionsRecoveredTotal().sum();
+    }
+
+    @Override
+    public long getExplosionsCapturedTotal() {
+        return this.pluginStats.explosionsCaptured().sum();
+    }
+
+    @Override
+    public double getPhysicsCancelRate() {
+        return this.pluginStats.physicsCancelRate();
+    }
+
+    @Override
+    public long getCaptureTimeP99() {
+        return this.pluginStats.captureTime().percentile(0.99);
+    }
+
+    @Override
+    public long getBlockRestoreTimeP99() {
+        return this.pluginStats.restoreTime().percentile(0.99);
+    }
+
+    @Override
+    public long getRecoveryDelayP50() {
+        return this.pluginStats.recoveryDelay().percentile(0.5);
+    }
+
+    @Override
+    public long getRecoveryDelayP99() {
+        return this.pluginStats.recoveryDelay().percentile(0.99);
+    }
+
+}
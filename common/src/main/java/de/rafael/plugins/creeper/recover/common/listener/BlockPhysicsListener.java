@@ -31,6 +31,8 @@
 package de.rafael.plugins.creeper.recover.common.listener;
 
 import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
+import de.rafael.plugins.creeper.recover.common.jfr.PhysicsCancelEvent;
+import de.rafael.plugins.creeper.recover.common.stats.Profiler;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockPhysicsEvent;
@@ -46,8 +48,27 @@ public class BlockPhysicsListener implements Listener {
     public void on(BlockPhysicsEvent event) {
         if (!CreeperPlugin.instance().configManager().enabled()) return;
 
-        if (CreeperPlugin.instance().explosionManager().hasSuppressedBlocks() && CreeperPlugin.instance().explosionManager().isBlockSuppressed(event.getBlock().getLocation())) {
-            event.setCancelled(true);
+        if (CreeperPlugin.instance().explosionManager().hasSuppressedBlocks()) {
+            CreeperPlugin.instance().pluginStats().physicsChecks().increment();
+            Profiler profiler = CreeperPlugin.instance().profiler();
+            long checkStart = profiler.begin();
+            boolean suppressed = CreeperPlugin.instance().explosionManager()
+                    .isBlockSuppressed(event.getBlock().getLocation());
+            profiler.end(Profiler.Phase.PHYSICS_CHECK, checkStart);
+            if (suppressed) {
+                CreeperPlugin.instance().pluginStats().physicsCancels().increment();
+                event.setCancelled(true);
+
+                PhysicsCancelEvent cancelEvent = new PhysicsCancelEvent();
+                if (cancelEvent.shouldCommit()) {
+                    cancelEvent.world = event.getBlock().getWorld().getName();
+                    cancelEvent.x = event.getBlock().getX();
+                    cancelEvent.y = event.getBlock().getY();
+                    cancelEvent.z = event.getBlock().getZ();
+                    cancelEvent.sourceMaterial = event.getChangedType().name();
+                    cancelEvent.commit();
+                }
+            }
         }
     }
 
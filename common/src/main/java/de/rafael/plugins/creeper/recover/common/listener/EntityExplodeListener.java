@@ -40,35 +40,42 @@ package de.rafael.plugins.creeper.recover.common.listener;
 
 import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
 import de.rafael.plugins.creeper.recover.common.classes.Explosion;
+import de.rafael.plugins.creeper.recover.common.classes.config.ConfigSnapshot;
+import de.rafael.plugins.creeper.recover.common.classes.enums.OverflowPolicies;
 import de.rafael.plugins.creeper.recover.common.classes.list.BlockList;
+import de.rafael.plugins.creeper.recover.common.jfr.ExplosionCaptureEvent;
+import de.rafael.plugins.creeper.recover.common.stats.Profiler;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.block.TileState;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityExplodeEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 public class EntityExplodeListener implements Listener {
 
     @EventHandler
     public void on(EntityExplodeEvent event) {
-        if (!CreeperPlugin.instance().configManager().enabled())
+        // Read the config once so the whole event is handled with the same values
+        ConfigSnapshot config = CreeperPlugin.instance().configManager().snapshot();
+        if (!config.enabled())
             return;
+        Profiler profiler = CreeperPlugin.instance().profiler();
 
         // Check if world is blacklisted (but still protect blocks)
         String worldName = event.getLocation().getWorld().getName();
-        boolean worldBlacklisted = CreeperPlugin.instance().configManager().isWorldBlacklisted(worldName);
+        boolean worldBlacklisted = config.worldBlacklist().contains(worldName);
 
         // ALWAYS remove protected blocks from explosion - they are ALWAYS protected
         // regardless of world blacklist or WorldGuard
-        int protectedRemoved = 0;
-        var iterator = event.blockList().iterator();
-        while (iterator.hasNext()) {
-            var block = iterator.next();
-            if (CreeperPlugin.instance().configManager().isProtectedBlock(block.getType())) {
-                iterator.remove();
-                protectedRemoved++;
-            }
-        }
+        long filterStart = profiler.begin();
+        int protectedRemoved = removeProtected(event.blockList(), config.protectedBlocks());
+        profiler.end(Profiler.Phase.FILTERING, filterStart);
 
         if (protectedRemoved > 0) {
             CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
@@ -84,14 +91,29 @@ public class EntityExplodeListener implements Listener {
         }
 
         // Check if this explosion type is blacklisted
-        if (CreeperPlugin.instance().configManager().isExplosionBlacklisted(event.getEntityType())) {
+        if (config.explosionBlacklist().contains(event.getEntityType())) {
             CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
                     "Explosion recovery skipped - entity type %s is blacklisted",
                     event.getEntityType().name()));
             return;
         }
 
-        if (CreeperPlugin.instance().configManager().usePlugin(event)) {
+        long targetStart = profiler.begin();
+        boolean usePlugin = CreeperPlugin.instance().configManager().usePlugin(config, event);
+        profiler.end(Profiler.Phase.TARGET_EVALUATION, targetStart);
+        if (usePlugin) {
+            // Checked before anything is captured, the vanilla policy leaves the explosion untouched
+            OverflowPolicies overflow = CreeperPlugin.instance().explosionManager().overflow(worldName,
+                    event.blockList().size());
+            if (overflow == OverflowPolicies.VANILLA) {
+                CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
+                        "Explosion recovery in world '%s' skipped - admission limits exceeded", worldName));
+                return;
+            }
+
+            ExplosionCaptureEvent captureEvent = new ExplosionCaptureEvent();
+            captureEvent.begin();
+
             var blocks = new BlockList(event.blockList());
 
             CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
@@ -106,8 +128,13 @@ public class EntityExplodeListener implements Listener {
 
             // Remove blacklisted blocks from recovery (they get destroyed but won't be
             // restored)
-            blocks.removeIf(
-                    block -> CreeperPlugin.instance().configManager().blockBlacklist().contains(block.getType()));
+            filterStart = profiler.begin();
+            blocks.removeIf(block -> config.blockBlacklist().contains(block.getType()));
+            if (overflow == OverflowPolicies.DROP_LOW_VALUE) {
+                // Only blocks with tile data are worth the memory, the others are destroyed
+                blocks.removeIf(block -> !(block.getState() instanceof TileState));
+            }
+            profiler.end(Profiler.Phase.FILTERING, filterStart);
             int filteredBlockCount = blocks.blocks().size();
 
             if (originalBlockCount != filteredBlockCount) {
@@ -118,19 +145,59 @@ public class EntityExplodeListener implements Listener {
                         filteredBlockCount));
             }
 
-            // Store blocks
-            CreeperPlugin.instance().explosionManager().handle(new Explosion(event.getLocation().clone(), blocks));
+            // Store blocks, only copying the block states counts as capture
+            long captureStart = System.nanoTime();
+            Explosion explosion = new Explosion(event.getLocation().clone(), blocks);
+            CreeperPlugin.instance().pluginStats().captureTime().record(System.nanoTime() - captureStart);
+            if (profiler.active()) {
+                profiler.end(Profiler.Phase.CAPTURE, captureStart);
+            }
+            CreeperPlugin.instance().explosionManager().handle(explosion, event.getEntityType(), overflow);
+            CreeperPlugin.instance().pluginStats().explosionsCaptured().increment();
 
             CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
                     "Started recovery process for %d blocks",
                     filteredBlockCount));
 
+            long clearStart = profiler.begin();
             // Remove all blocks without collision. To prevent redstone and other blocks
             // from being without support blocks.
             blocks.stream().filter(Block::isPassable).forEach(block -> block.setType(Material.AIR, false));
             // Remove the rest of the blocks
             blocks.stream().filter(block -> !block.isPassable()).forEach(block -> block.setType(Material.AIR, false));
+            profiler.end(Profiler.Phase.BLOCK_CLEARING, clearStart);
+
+            captureEvent.end();
+            if (captureEvent.shouldCommit()) {
+                captureEvent.world = worldName;
+                captureEvent.entityType = event.getEntityType().name();
+                captureEvent.x = event.getLocation().getBlockX();
+                captureEvent.y = event.getLocation().getBlockY();
+                captureEvent.z = event.getLocation().getBlockZ();
+                captureEvent.explodedBlocks = originalBlockCount;
+                captureEvent.capturedBlocks = filteredBlockCount;
+                captureEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * Removes all protected blocks from the block list of an explosion
+     *
+     * @param blocks          The blocks of the explosion
+     * @param protectedBlocks The protected materials
+     * @return The amount of removed blocks
+     */
+    public static int removeProtected(@NotNull List<Block> blocks, @NotNull Set<Material> protectedBlocks) {
+        int removed = 0;
+        Iterator<Block> iterator = blocks.iterator();
+        while (iterator.hasNext()) {
+            if (protectedBlocks.contains(iterator.next().getType())) {
+                iterator.remove();
+                removed++;
+            }
         }
+        return removed;
     }
 
 }
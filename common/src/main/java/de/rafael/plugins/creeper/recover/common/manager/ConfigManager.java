@@ -41,91 +41,42 @@ package de.rafael.plugins.creeper.recover.common.manager;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
 import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
+import de.rafael.plugins.creeper.recover.common.classes.config.ConfigSnapshot;
+import de.rafael.plugins.creeper.recover.common.classes.enums.OverflowPolicies;
+import de.rafael.plugins.creeper.recover.common.classes.enums.StorageTypes;
 import de.rafael.plugins.creeper.recover.common.classes.enums.TargetTypes;
 import de.rafael.plugins.creeper.recover.common.utils.config.JsonConfiguration;
-import lombok.Getter;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.entity.EntityType;
 import org.bukkit.event.entity.EntityExplodeEvent;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 
-@Getter
 public class ConfigManager {
 
     public static final Gson GSON = new GsonBuilder().create();
 
     public static final int latestConfigVersion = 2;
 
-    private int recoverSpeed = 3 /* to milliseconds */ * 50;
-    private int recoverDelay = 20 * 5 /* to milliseconds */ * 50;
+    // Replaced as a whole on every (re)load or change, never mutated in place
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.defaults();
 
-    private Sound blockRecoverSound;
-    private List<Material> blockBlacklist;
-    private List<Material> protectedBlocks;
-    private List<String> worldBlacklist;
-
-    private boolean enabled = true;
-    private boolean bStats = true;
-    private boolean ignoreUpdates = false;
-    private boolean debugEnabled = false;
-    private boolean worldguardTntCheck = false;
-
-    private List<EntityType> explosionBlacklist;
-    private List<JsonObject> targetList;
-
-    public boolean load() {
-
-        this.blockBlacklist = new ArrayList<>();
-        this.protectedBlocks = new ArrayList<>();
-        this.worldBlacklist = new ArrayList<>();
-        this.explosionBlacklist = new ArrayList<>();
-
-        // Default protected blocks - player heads lose their skin when restored
-        this.protectedBlocks.add(Material.PLAYER_HEAD);
-        this.protectedBlocks.add(Material.PLAYER_WALL_HEAD);
-
-        // Default blacklisted worlds - don't recover explosions in nether/end
-        this.worldBlacklist.add("world_nether");
-        this.worldBlacklist.add("world_the_end");
-
-        // Default explosion blacklist - don't recover TNT explosions
-        // In 1.21+ PRIMED_TNT was renamed to TNT
-        try {
-            this.explosionBlacklist.add(EntityType.valueOf("TNT"));
-        } catch (IllegalArgumentException e1) {
-            try {
-                this.explosionBlacklist.add(EntityType.valueOf("PRIMED_TNT"));
-            } catch (IllegalArgumentException e2) {
-                // Neither exists, skip
-            }
-        }
-
-        // Default explosion blacklist - wind charges don't actually destroy most blocks
-        // They only break specific fragile blocks (decorated pots, buttons, etc.)
-        // so we ignore them to prevent false regeneration
-        try {
-            this.explosionBlacklist.add(EntityType.valueOf("WIND_CHARGE"));
-        } catch (IllegalArgumentException ignored) {
-            // WIND_CHARGE doesn't exist in older versions
-        }
-        try {
-            this.explosionBlacklist.add(EntityType.valueOf("BREEZE_WIND_CHARGE"));
-        } catch (IllegalArgumentException ignored) {
-            // BREEZE_WIND_CHARGE doesn't exist in older versions
-        }
+    /**
+     * Reads the config file and publishes a new {@link ConfigSnapshot}.
+     * Missing values are filled in with their defaults and written back in a single save.
+     *
+     * @return true if the new snapshot was published
+     */
+    public synchronized boolean load() {
 
-        try {
-            this.blockRecoverSound = Sound.valueOf("BLOCK_ROOTED_DIRT_PLACE");
-        } catch (Exception exception) {
-            this.blockRecoverSound = Sound.BLOCK_GRAVEL_PLACE;
-        }
+        ConfigSnapshot defaults = ConfigSnapshot.defaults();
+        ConfigSnapshot.ConfigSnapshotBuilder builder = defaults.toBuilder();
 
         JsonConfiguration jsonConfiguration = JsonConfiguration.loadConfig(new File("plugins//CreeperRecover/"),
                 "config.json");
@@ -133,14 +84,11 @@ public class ConfigManager {
         // Config Version
         if (!jsonConfiguration.jsonObject().has("configVersion")) {
             jsonConfiguration.jsonObject().addProperty("configVersion", latestConfigVersion);
-            jsonConfiguration.saveConfig();
-
-            return false;
         } else {
             int currentConfigVersion = jsonConfiguration.jsonObject().get("configVersion").getAsInt();
             if (currentConfigVersion < latestConfigVersion) {
                 updateConfig(currentConfigVersion, latestConfigVersion);
-                return false;
+                jsonConfiguration = JsonConfiguration.loadConfig(new File("plugins//CreeperRecover/"), "config.json");
             }
         }
 
@@ -150,135 +98,292 @@ public class ConfigManager {
         if (!jsonConfiguration.jsonObject().has("recover")) {
             jsonConfiguration.jsonObject().add("recover", new JsonObject());
         }
+        if (!jsonConfiguration.jsonObject().has("metrics")) {
+            jsonConfiguration.jsonObject().add("metrics", new JsonObject());
+        }
+        if (!jsonConfiguration.jsonObject().has("admission")) {
+            jsonConfiguration.jsonObject().add("admission", new JsonObject());
+        }
 
         // Plugin
         if (!jsonConfiguration.jsonObject().getAsJsonObject("plugin").has("enabled")) {
-            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("enabled", this.enabled);
-            jsonConfiguration.saveConfig();
-
-            return false;
+            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("enabled", defaults.enabled());
         } else {
-            this.enabled = jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("enabled").getAsBoolean();
+            builder.enabled(jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("enabled").getAsBoolean());
         }
         if (!jsonConfiguration.jsonObject().getAsJsonObject("plugin").has("bStats")) {
-            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("bStats", this.bStats);
-            jsonConfiguration.saveConfig();
-
-            return false;
+            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("bStats", defaults.bStats());
         } else {
-            this.bStats = jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("bStats").getAsBoolean();
+            builder.bStats(jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("bStats").getAsBoolean());
         }
         if (!jsonConfiguration.jsonObject().getAsJsonObject("plugin").has("ignoreUpdates")) {
-            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("ignoreUpdates", this.ignoreUpdates);
-            jsonConfiguration.saveConfig();
-
-            return false;
+            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("ignoreUpdates",
+                    defaults.ignoreUpdates());
         } else {
-            this.ignoreUpdates = jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("ignoreUpdates")
-                    .getAsBoolean();
+            builder.ignoreUpdates(jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("ignoreUpdates")
+                    .getAsBoolean());
         }
         if (!jsonConfiguration.jsonObject().getAsJsonObject("plugin").has("debugEnabled")) {
-            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("debugEnabled", this.debugEnabled);
-            jsonConfiguration.saveConfig();
+            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("debugEnabled",
+                    defaults.debugEnabled());
+        } else {
+            builder.debugEnabled(jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("debugEnabled")
+                    .getAsBoolean());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("plugin").has("watchConfig")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("watchConfig",
+                    defaults.watchConfig());
+        } else {
+            builder.watchConfig(jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("watchConfig")
+                    .getAsBoolean());
+        }
 
-            return false;
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("plugin").has("jmx")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("jmx", defaults.jmx());
+        } else {
+            builder.jmx(jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("jmx").getAsBoolean());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("plugin").has("recordExplosions")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("recordExplosions",
+                    defaults.recordExplosions());
+        } else {
+            builder.recordExplosions(jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("recordExplosions")
+                    .getAsBoolean());
+        }
+
+        // Metrics
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("metrics").has("enabled")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("metrics").addProperty("enabled",
+                    defaults.metricsEnabled());
+        } else {
+            builder.metricsEnabled(jsonConfiguration.jsonObject().getAsJsonObject("metrics").get("enabled")
+                    .getAsBoolean());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("metrics").has("host")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("metrics").addProperty("host", defaults.metricsHost());
+        } else {
+            builder.metricsHost(jsonConfiguration.jsonObject().getAsJsonObject("metrics").get("host").getAsString());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("metrics").has("port")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("metrics").addProperty("port", defaults.metricsPort());
         } else {
-            this.debugEnabled = jsonConfiguration.jsonObject().getAsJsonObject("plugin").get("debugEnabled")
-                    .getAsBoolean();
+            builder.metricsPort(jsonConfiguration.jsonObject().getAsJsonObject("metrics").get("port").getAsInt());
+        }
+
+        // Admission
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("admission").has("maxExplosions")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("admission").addProperty("maxExplosions",
+                    defaults.maxExplosions());
+        } else {
+            builder.maxExplosions(jsonConfiguration.jsonObject().getAsJsonObject("admission")
+                    .get("maxExplosions").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("admission").has("maxBlocks")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("admission").addProperty("maxBlocks",
+                    defaults.maxBlocks());
+        } else {
+            builder.maxBlocks(jsonConfiguration.jsonObject().getAsJsonObject("admission")
+                    .get("maxBlocks").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("admission").has("maxMemory")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("admission").addProperty("maxMemory",
+                    defaults.maxMemory());
+        } else {
+            builder.maxMemory(jsonConfiguration.jsonObject().getAsJsonObject("admission")
+                    .get("maxMemory").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("admission").has("maxExplosionsPerWorld")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("admission").addProperty("maxExplosionsPerWorld",
+                    defaults.maxExplosionsPerWorld());
+        } else {
+            builder.maxExplosionsPerWorld(jsonConfiguration.jsonObject().getAsJsonObject("admission")
+                    .get("maxExplosionsPerWorld").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("admission").has("maxBlocksPerWorld")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("admission").addProperty("maxBlocksPerWorld",
+                    defaults.maxBlocksPerWorld());
+        } else {
+            builder.maxBlocksPerWorld(jsonConfiguration.jsonObject().getAsJsonObject("admission")
+                    .get("maxBlocksPerWorld").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("admission").has("maxMemoryPerWorld")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("admission").addProperty("maxMemoryPerWorld",
+                    defaults.maxMemoryPerWorld());
+        } else {
+            builder.maxMemoryPerWorld(jsonConfiguration.jsonObject().getAsJsonObject("admission")
+                    .get("maxMemoryPerWorld").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("admission").has("policy")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("admission").addProperty("policy",
+                    defaults.overflowPolicy().name());
+        } else {
+            builder.overflowPolicy(OverflowPolicies.valueOf(
+                    jsonConfiguration.jsonObject().getAsJsonObject("admission").get("policy").getAsString()));
         }
 
         // Recover
         if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("recoverSpeed")) {
-            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("recoverSpeed", this.recoverSpeed);
-            jsonConfiguration.saveConfig();
-
-            return false;
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("recoverSpeed",
+                    defaults.recoverSpeed());
         } else {
-            this.recoverSpeed = jsonConfiguration.jsonObject().getAsJsonObject("recover").get("recoverSpeed")
-                    .getAsInt();
+            builder.recoverSpeed(jsonConfiguration.jsonObject().getAsJsonObject("recover").get("recoverSpeed")
+                    .getAsInt());
         }
         if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("recoverDelay")) {
-            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("recoverDelay", this.recoverDelay);
-            jsonConfiguration.saveConfig();
-
-            return false;
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("recoverDelay",
+                    defaults.recoverDelay());
+        } else {
+            builder.recoverDelay(jsonConfiguration.jsonObject().getAsJsonObject("recover").get("recoverDelay")
+                    .getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("maxBlocksPerSecond")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("maxBlocksPerSecond",
+                    defaults.maxBlocksPerSecond());
+        } else {
+            builder.maxBlocksPerSecond(jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("maxBlocksPerSecond").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("journal")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("journal", defaults.journal());
+        } else {
+            builder.journal(jsonConfiguration.jsonObject().getAsJsonObject("recover").get("journal").getAsBoolean());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("journalStorage")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("journalStorage",
+                    defaults.journalStorage().name());
+        } else {
+            builder.journalStorage(StorageTypes.valueOf(
+                    jsonConfiguration.jsonObject().getAsJsonObject("recover").get("journalStorage").getAsString()));
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("journalMaxAge")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("journalMaxAge",
+                    defaults.journalMaxAge());
+        } else {
+            builder.journalMaxAge(jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("journalMaxAge").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("spillMemory")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("spillMemory",
+                    defaults.spillMemory());
         } else {
-            this.recoverDelay = jsonConfiguration.jsonObject().getAsJsonObject("recover").get("recoverDelay")
-                    .getAsInt();
+            builder.spillMemory(jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("spillMemory").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("spillAfter")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("spillAfter",
+                    defaults.spillAfter());
+        } else {
+            builder.spillAfter(jsonConfiguration.jsonObject().getAsJsonObject("recover").get("spillAfter").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("unloadedChunkTimeout")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("unloadedChunkTimeout",
+                    defaults.unloadedChunkTimeout());
+        } else {
+            builder.unloadedChunkTimeout(jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("unloadedChunkTimeout").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("maxTickTime")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("maxTickTime",
+                    defaults.maxTickTime());
+        } else {
+            builder.maxTickTime(jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("maxTickTime").getAsInt());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("instantUnseen")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("instantUnseen",
+                    defaults.instantUnseen());
+        } else {
+            builder.instantUnseen(jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("instantUnseen").getAsBoolean());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("coalesceUpdates")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("coalesceUpdates",
+                    defaults.coalesceUpdates());
+        } else {
+            builder.coalesceUpdates(jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("coalesceUpdates").getAsBoolean());
         }
         if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("blockRecoverSound")) {
             jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("blockRecoverSound",
-                    this.blockRecoverSound.name());
-            jsonConfiguration.saveConfig();
-
-            return false;
+                    defaults.blockRecoverSound().name());
+        } else {
+            builder.blockRecoverSound(Sound.valueOf(
+                    jsonConfiguration.jsonObject().getAsJsonObject("recover").get("blockRecoverSound").getAsString()));
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("soundVolume")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("soundVolume",
+                    defaults.soundVolume());
+        } else {
+            builder.soundVolume(jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("soundVolume").getAsDouble());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("soundVolumeScale")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("soundVolumeScale",
+                    defaults.soundVolumeScale());
         } else {
-            this.blockRecoverSound = Sound.valueOf(
-                    jsonConfiguration.jsonObject().getAsJsonObject("recover").get("blockRecoverSound").getAsString());
+            builder.soundVolumeScale(jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("soundVolumeScale").getAsDouble());
+        }
+        if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("recoverParticle")) {
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").addProperty("recoverParticle",
+                    defaults.recoverParticle() == null ? "" : defaults.recoverParticle().name());
+        } else {
+            String particle = jsonConfiguration.jsonObject().getAsJsonObject("recover")
+                    .get("recoverParticle").getAsString();
+            builder.recoverParticle(particle.isEmpty() ? null : Particle.valueOf(particle));
         }
         if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("blockBlacklist")) {
             jsonConfiguration.jsonObject().getAsJsonObject("recover").add("blockBlacklist",
-                    GSON.toJsonTree(this.blockBlacklist, new TypeToken<List<Material>>() {
+                    GSON.toJsonTree(new ArrayList<>(defaults.blockBlacklist()), new TypeToken<List<Material>>() {
                     }.getType()));
-            jsonConfiguration.saveConfig();
-
-            return false;
         } else {
-            this.blockBlacklist = GSON.fromJson(
+            builder.blockBlacklist(new LinkedHashSet<>(GSON.<List<Material>>fromJson(
                     jsonConfiguration.jsonObject().getAsJsonObject("recover").getAsJsonArray("blockBlacklist"),
                     new TypeToken<List<Material>>() {
-                    }.getType());
+                    }.getType())));
         }
         if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("protectedBlocks")) {
             jsonConfiguration.jsonObject().getAsJsonObject("recover").add("protectedBlocks",
-                    GSON.toJsonTree(this.protectedBlocks, new TypeToken<List<Material>>() {
+                    GSON.toJsonTree(new ArrayList<>(defaults.protectedBlocks()), new TypeToken<List<Material>>() {
                     }.getType()));
-            jsonConfiguration.saveConfig();
-
-            return false;
         } else {
-            this.protectedBlocks = GSON.fromJson(
+            builder.protectedBlocks(new LinkedHashSet<>(GSON.<List<Material>>fromJson(
                     jsonConfiguration.jsonObject().getAsJsonObject("recover").getAsJsonArray("protectedBlocks"),
                     new TypeToken<List<Material>>() {
-                    }.getType());
+                    }.getType())));
         }
         if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("worldBlacklist")) {
             jsonConfiguration.jsonObject().getAsJsonObject("recover").add("worldBlacklist",
-                    GSON.toJsonTree(this.worldBlacklist, new TypeToken<List<String>>() {
+                    GSON.toJsonTree(new ArrayList<>(defaults.worldBlacklist()), new TypeToken<List<String>>() {
                     }.getType()));
-            jsonConfiguration.saveConfig();
-
-            return false;
         } else {
-            this.worldBlacklist = GSON.fromJson(
+            builder.worldBlacklist(new LinkedHashSet<>(GSON.<List<String>>fromJson(
                     jsonConfiguration.jsonObject().getAsJsonObject("recover").get("worldBlacklist"),
                     new TypeToken<List<String>>() {
-                    }.getType());
+                    }.getType())));
         }
         if (!jsonConfiguration.jsonObject().getAsJsonObject("recover").has("explosionBlacklist")) {
             JsonArray explosionBlacklistArray = new JsonArray();
-            for (EntityType type : this.explosionBlacklist) {
+            for (EntityType type : defaults.explosionBlacklist()) {
                 explosionBlacklistArray.add(type.name());
             }
             jsonConfiguration.jsonObject().getAsJsonObject("recover").add("explosionBlacklist",
                     explosionBlacklistArray);
-            jsonConfiguration.saveConfig();
-
-            return false;
         } else {
             List<String> explosionTypeNames = GSON.fromJson(
                     jsonConfiguration.jsonObject().getAsJsonObject("recover").get("explosionBlacklist"),
                     new TypeToken<List<String>>() {
                     }.getType());
-            this.explosionBlacklist.clear();
+            List<EntityType> explosionBlacklist = new ArrayList<>();
             for (String typeName : explosionTypeNames) {
                 try {
-                    this.explosionBlacklist.add(EntityType.valueOf(typeName));
+                    explosionBlacklist.add(EntityType.valueOf(typeName));
                 } catch (IllegalArgumentException e) {
                     Bukkit.getConsoleSender().sendMessage(
                             "§c[CreeperRecover] Invalid explosion type in blacklist: " + typeName);
                 }
             }
+            builder.explosionBlacklist(new LinkedHashSet<>(explosionBlacklist));
         }
 
         // Target
@@ -326,26 +431,110 @@ public class ConfigManager {
             }
 
             jsonConfiguration.jsonObject().add("target", jsonArray);
-            jsonConfiguration.saveConfig();
-
-            return false;
         } else {
-            this.targetList = new ArrayList<>();
+            List<JsonObject> targetList = new ArrayList<>();
             for (JsonElement target : jsonConfiguration.jsonObject().get("target").getAsJsonArray()) {
-                this.targetList.add(target.getAsJsonObject());
+                targetList.add(target.getAsJsonObject());
             }
+            builder.targetList(targetList);
         }
         jsonConfiguration.saveConfig();
 
+        this.snapshot = builder.build();
         return true;
 
     }
 
+    /**
+     * Loads the config again, used by the reload command and the config watcher.
+     * If the file can't be read the previous snapshot stays published.
+     *
+     * @return true if a new snapshot was published
+     */
+    public boolean reload() {
+        try {
+            return load();
+        } catch (RuntimeException exception) {
+            Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to reload the config: "
+                    + exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the currently published configuration. Callers that read more than one value
+     * should keep the returned snapshot instead of calling the accessors one by one.
+     *
+     * @return The current configuration snapshot
+     */
+    public ConfigSnapshot snapshot() {
+        return this.snapshot;
+    }
+
+    public boolean enabled() {
+        return this.snapshot.enabled();
+    }
+
+    public boolean bStats() {
+        return this.snapshot.bStats();
+    }
+
+    public boolean ignoreUpdates() {
+        return this.snapshot.ignoreUpdates();
+    }
+
+    public boolean debugEnabled() {
+        return this.snapshot.debugEnabled();
+    }
+
+    public boolean worldguardTntCheck() {
+        return this.snapshot.worldguardTntCheck();
+    }
+
+    public int recoverSpeed() {
+        return this.snapshot.recoverSpeed();
+    }
+
+    public int recoverDelay() {
+        return this.snapshot.recoverDelay();
+    }
+
+    public Sound blockRecoverSound() {
+        return this.snapshot.blockRecoverSound();
+    }
+
+    public Set<Material> blockBlacklist() {
+        return this.snapshot.blockBlacklist();
+    }
+
+    public List<JsonObject> targetList() {
+        return this.snapshot.targetList();
+    }
+
     public boolean usePlugin(EntityExplodeEvent event) {
+        return usePlugin(this.snapshot, event);
+    }
+
+    public boolean usePlugin(@NotNull ConfigSnapshot snapshot, @NotNull EntityExplodeEvent event) {
+        return usePlugin(snapshot, event.getLocation(), event.getEntity().getType());
+    }
+
+    /**
+     * Evaluates the targets of the config for an explosion
+     *
+     * @param snapshot   The config to use
+     * @param location   The location of the explosion
+     * @param entityType The type of the exploding entity
+     * @return true if the explosion should be recovered
+     */
+    public static boolean usePlugin(@NotNull ConfigSnapshot snapshot, @NotNull Location location,
+                                    EntityType entityType) {
         boolean usePlugin = true;
+        List<JsonObject> targetList = snapshot.targetList();
+
 
         // World
-        List<JsonObject> worldTargets = this.targetList.stream()
+        List<JsonObject> worldTargets = targetList.stream()
                 .filter(item -> item.get("type").getAsString().equals(TargetTypes.WORLD.name())).toList();
         for (JsonObject worldTarget : worldTargets) {
             if (!worldTarget.get("ignore").getAsBoolean()) {
@@ -353,7 +542,7 @@ public class ConfigManager {
                     JsonArray whiteList = worldTarget.getAsJsonArray("whitelist");
                     if (whiteList.size() > 0
                             && whiteList.asList().stream().map(JsonElement::getAsString).noneMatch(s -> Objects
-                                    .requireNonNull(event.getLocation().getWorld()).getName().equalsIgnoreCase(s))) {
+                                    .requireNonNull(location.getWorld()).getName().equalsIgnoreCase(s))) {
                         usePlugin = false;
                     }
                 }
@@ -361,7 +550,7 @@ public class ConfigManager {
                     JsonArray blacklist = worldTarget.getAsJsonArray("blacklist");
                     if (blacklist.size() > 0
                             && blacklist.asList().stream().map(JsonElement::getAsString).anyMatch(s -> Objects
-                                    .requireNonNull(event.getLocation().getWorld()).getName().equalsIgnoreCase(s))) {
+                                    .requireNonNull(location.getWorld()).getName().equalsIgnoreCase(s))) {
                         usePlugin = false;
                     }
                 }
@@ -369,7 +558,7 @@ public class ConfigManager {
         }
 
         // Entity
-        List<JsonObject> entityTargets = this.targetList.stream()
+        List<JsonObject> entityTargets = targetList.stream()
                 .filter(item -> item.get("type").getAsString().equals(TargetTypes.ENTITY.name())).toList();
         for (JsonObject entityTarget : entityTargets) {
             if (!entityTarget.get("ignore").getAsBoolean()) {
@@ -378,19 +567,17 @@ public class ConfigManager {
                     entityTypes.add(EntityType.valueOf(types.getAsString()));
                 }
 
-                if (!entityTypes.contains(event.getEntity().getType())) {
+                if (!entityTypes.contains(entityType)) {
                     usePlugin = false;
                 }
             }
         }
 
         // Height Range
-        List<JsonObject> rangeHeightTargets = this.targetList.stream()
+        List<JsonObject> rangeHeightTargets = targetList.stream()
                 .filter(item -> item.get("type").getAsString().equals(TargetTypes.HEIGHT_RANGE.name())).toList();
         for (JsonObject rangeHeightTarget : rangeHeightTargets) {
             if (!rangeHeightTarget.get("ignore").getAsBoolean()) {
-                Location location = event.getLocation().clone();
-
                 int from = rangeHeightTarget.get("from").getAsInt();
                 int to = rangeHeightTarget.get("to").getAsInt();
                 if (location.getY() >= from && location.getY() <= to) {
@@ -401,12 +588,10 @@ public class ConfigManager {
         }
 
         // Height Fixed
-        List<JsonObject> fixedHeightTargets = this.targetList.stream()
+        List<JsonObject> fixedHeightTargets = targetList.stream()
                 .filter(item -> item.get("type").getAsString().equals(TargetTypes.HEIGHT_FIXED.name())).toList();
         for (JsonObject fixedHeightTarget : fixedHeightTargets) {
             if (!fixedHeightTarget.get("ignore").getAsBoolean()) {
-                Location location = event.getLocation().clone();
-
                 int fixed = fixedHeightTarget.get("fixed").getAsInt();
                 if (((int) location.getY()) == fixed) {
                     continue;
@@ -488,7 +673,7 @@ public class ConfigManager {
      * @param message The debug message to send
      */
     public void sendDebugMessage(String message) {
-        if (!debugEnabled)
+        if (!this.snapshot.debugEnabled())
             return;
 
         String formattedMessage = CreeperPlugin.instance().messageManager().getMessage(MessageManager.Message.PREFIX)
@@ -508,33 +693,32 @@ public class ConfigManager {
      * 
      * @param enabled Whether debug should be enabled
      */
-    public void setDebugEnabled(boolean enabled) {
-        this.debugEnabled = enabled;
+    public synchronized void setDebugEnabled(boolean enabled) {
+        this.snapshot = this.snapshot.toBuilder().debugEnabled(enabled).build();
     }
 
     /**
-     * Saves the current configuration to the config file
+     * Saves the current configuration to the config file.
+     * The file is updated on the writer thread, so this is safe to call from command handlers.
      */
     public void saveConfig() {
-        JsonConfiguration jsonConfiguration = JsonConfiguration.loadConfig(new File("plugins//CreeperRecover/"),
-                "config.json");
-
-        // Update the debugEnabled value in the config
-        if (!jsonConfiguration.jsonObject().has("plugin")) {
-            jsonConfiguration.jsonObject().add("plugin", new JsonObject());
-        }
-        jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("debugEnabled", this.debugEnabled);
-
-        // Update protected blocks in the config
-        if (!jsonConfiguration.jsonObject().has("recover")) {
-            jsonConfiguration.jsonObject().add("recover", new JsonObject());
-        }
-        jsonConfiguration.jsonObject().getAsJsonObject("recover").add("protectedBlocks",
-                GSON.toJsonTree(this.protectedBlocks, new TypeToken<List<Material>>() {
-                }.getType()));
+        ConfigSnapshot snapshot = this.snapshot;
+        JsonConfiguration.modifyConfig(new File("plugins//CreeperRecover/"), "config.json", jsonConfiguration -> {
+            // Update the debugEnabled value in the config
+            if (!jsonConfiguration.jsonObject().has("plugin")) {
+                jsonConfiguration.jsonObject().add("plugin", new JsonObject());
+            }
+            jsonConfiguration.jsonObject().getAsJsonObject("plugin").addProperty("debugEnabled",
+                    snapshot.debugEnabled());
 
-        // Save the config
-        jsonConfiguration.saveConfig();
+            // Update protected blocks in the config
+            if (!jsonConfiguration.jsonObject().has("recover")) {
+                jsonConfiguration.jsonObject().add("recover", new JsonObject());
+            }
+            jsonConfiguration.jsonObject().getAsJsonObject("recover").add("protectedBlocks",
+                    GSON.toJsonTree(new ArrayList<>(snapshot.protectedBlocks()), new TypeToken<List<Material>>() {
+                    }.getType()));
+        });
     }
 
     /**
@@ -544,7 +728,7 @@ public class ConfigManager {
      * @return true if the material is protected
      */
     public boolean isProtectedBlock(Material material) {
-        return this.protectedBlocks.contains(material);
+        return this.snapshot.protectedBlocks().contains(material);
     }
 
     /**
@@ -553,12 +737,15 @@ public class ConfigManager {
      * @param material The material to add
      * @return true if the material was added, false if it was already in the list
      */
-    public boolean addProtectedBlock(Material material) {
-        if (!this.protectedBlocks.contains(material)) {
-            this.protectedBlocks.add(material);
-            return true;
+    public synchronized boolean addProtectedBlock(Material material) {
+        ConfigSnapshot current = this.snapshot;
+        if (current.protectedBlocks().contains(material)) {
+            return false;
         }
-        return false;
+        Set<Material> protectedBlocks = new LinkedHashSet<>(current.protectedBlocks());
+        protectedBlocks.add(material);
+        this.snapshot = current.toBuilder().protectedBlocks(protectedBlocks).build();
+        return true;
     }
 
     /**
@@ -567,8 +754,15 @@ public class ConfigManager {
      * @param material The material to remove
      * @return true if the material was removed, false if it wasn't in the list
      */
-    public boolean removeProtectedBlock(Material material) {
-        return this.protectedBlocks.remove(material);
+    public synchronized boolean removeProtectedBlock(Material material) {
+        ConfigSnapshot current = this.snapshot;
+        if (!current.protectedBlocks().contains(material)) {
+            return false;
+        }
+        Set<Material> protectedBlocks = new LinkedHashSet<>(current.protectedBlocks());
+        protectedBlocks.remove(material);
+        this.snapshot = current.toBuilder().protectedBlocks(protectedBlocks).build();
+        return true;
     }
 
     /**
@@ -577,7 +771,7 @@ public class ConfigManager {
      * @return A copy of the protected blocks list
      */
     public List<Material> getProtectedBlocks() {
-        return new ArrayList<>(this.protectedBlocks);
+        return new ArrayList<>(this.snapshot.protectedBlocks());
     }
 
     /**
@@ -587,7 +781,7 @@ public class ConfigManager {
      * @return true if the world is blacklisted
      */
     public boolean isWorldBlacklisted(String worldName) {
-        return this.worldBlacklist.contains(worldName);
+        return this.snapshot.worldBlacklist().contains(worldName);
     }
 
     /**
@@ -596,7 +790,7 @@ public class ConfigManager {
      * @return A copy of the world blacklist
      */
     public List<String> getWorldBlacklist() {
-        return new ArrayList<>(this.worldBlacklist);
+        return new ArrayList<>(this.snapshot.worldBlacklist());
     }
 
     /**
@@ -606,7 +800,7 @@ public class ConfigManager {
      * @return true if the explosion type is blacklisted
      */
     public boolean isExplosionBlacklisted(EntityType entityType) {
-        return this.explosionBlacklist.contains(entityType);
+        return this.snapshot.explosionBlacklist().contains(entityType);
     }
 
     /**
@@ -615,7 +809,7 @@ public class ConfigManager {
      * @return A copy of the explosion blacklist
      */
     public List<EntityType> getExplosionBlacklist() {
-        return new ArrayList<>(this.explosionBlacklist);
+        return new ArrayList<>(this.snapshot.explosionBlacklist());
     }
 
 }
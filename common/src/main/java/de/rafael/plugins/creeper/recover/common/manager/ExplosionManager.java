@@ -38,81 +38,499 @@ package de.rafael.plugins.creeper.recover.common.manager;
 //
 //------------------------------
 
+
 import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
+import de.rafael.plugins.creeper.recover.common.classes.ExplodedBlock;
 import de.rafael.plugins.creeper.recover.common.classes.Explosion;
+import de.rafael.plugins.creeper.recover.common.classes.config.ConfigSnapshot;
+import de.rafael.plugins.creeper.recover.common.classes.enums.OverflowPolicies;
+import de.rafael.plugins.creeper.recover.common.engine.BukkitTaskScheduler;
+import de.rafael.plugins.creeper.recover.common.engine.BukkitWorldAccess;
+import de.rafael.plugins.creeper.recover.common.engine.Positions;
+import de.rafael.plugins.creeper.recover.common.engine.Recordings;
+import de.rafael.plugins.creeper.recover.core.AdmissionLimits;
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.PendingBlock;
+import de.rafael.plugins.creeper.recover.core.RecoveryEngine;
+import de.rafael.plugins.creeper.recover.core.RecoveryJob;
+import de.rafael.plugins.creeper.recover.core.RecoveryListener;
+import de.rafael.plugins.creeper.recover.core.persistence.PersistenceBackend;
+import de.rafael.plugins.creeper.recover.core.persistence.StoredExplosion;
+import de.rafael.plugins.creeper.recover.core.record.ExplosionRecorder;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import de.rafael.plugins.creeper.recover.core.tier.TieredStore;
+import lombok.Getter;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
-public class ExplosionManager {
-
-    private final List<Location> suppressedLocations = new ArrayList<>();
-    private final List<Explosion> explosionList = new ArrayList<>();
-
-    public void handle(Explosion explosion) {
-        this.explosionList.add(explosion);
-        explosion.blocks().forEach(explodedBlock -> this.suppressBlock(explodedBlock.location()));
-        List<Explosion> explosions = Collections.singletonList(explosion);
-        CreeperPlugin.scheduler().runAsyncAtFixedRate(cancel -> {
-            recoverBlocks(explosions, false, 1);
-            if (explosion.isFinished())
-                cancel.run();
-        }, CreeperPlugin.instance().configManager().recoverDelay(),
-                CreeperPlugin.instance().configManager().recoverSpeed(), TimeUnit.MILLISECONDS);
-    }
-
-    public int recoverBlocks(int amount) {
-        return recoverBlocks(this.explosionList, true, amount);
-    }
-
-    public synchronized int recoverBlocks(@NotNull List<Explosion> explosions, boolean removeFinished, int amount) {
-        if (explosions.size() > 0) {
-            Iterator<Explosion> iterator = explosions.iterator();
-            int recovered = 0;
-            while (recovered < amount && iterator.hasNext()) {
-                Explosion explosion = iterator.next();
-                int blocksRecovered = explosion.recoverBlocks(amount);
-                recovered += blocksRecovered;
-
-                if (blocksRecovered > 0) {
-                    CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
-                            "Recovered %d blocks from explosion at %s",
-                            blocksRecovered,
-                            explosion.location().toString()));
+/**
+ * Adapts the {@link RecoveryEngine} to Bukkit
+ */
+public class ExplosionManager implements RecoveryListener<ExplodedBlock> {
+
+    // Chunks are requested this many milliseconds before the timeout, also the interval of the check
+    public static final int PRELOAD_AHEAD = 1000;
+
+    @Getter
+    private final RecoveryEngine<ExplodedBlock> engine = new RecoveryEngine<>(new BukkitWorldAccess(),
+            new BukkitTaskScheduler(), this,
+            () -> CreeperPlugin.instance().configManager().snapshot().maxBlocksPerSecond());
+
+    // Set once on enable when the journal is enabled
+    @Getter
+    private PersistenceBackend journal;
+    // Ids of journaled explosions that are resumed once the chunk of their origin loads
+    private final Map<ChunkKey, Set<Long>> deferred = new ConcurrentHashMap<>();
+    // Encodes and journals the captured explosions off the tick thread, the markers of a job queue up behind it
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CreeperRecover-Journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Checks a new explosion against the admission limits, only reads counters so it is cheap enough for every event
+     *
+     * @param worldName The world of the explosion
+     * @param blocks    The amount of blocks the explosion destroys
+     * @return The configured overflow policy or null if the explosion fits
+     */
+    public @Nullable OverflowPolicies overflow(@NotNull String worldName, int blocks) {
+        ConfigSnapshot config = CreeperPlugin.instance().configManager().snapshot();
+        // Nothing is captured yet, so the heap of the explosion is estimated from the size of an empty block
+        AdmissionLimits.Limit limit = config.admissionLimits().exceeded(this.engine, worldName, blocks,
+                blocks * ExplodedBlock.BASE_SIZE);
+        if (limit == null) {
+            return null;
+        }
+        CreeperPlugin.instance().pluginStats().explosionsOverflowed().increment();
+        CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
+                "Explosion in world '%s' exceeds the %s limit, applying %s",
+                worldName,
+                limit.name(),
+                config.overflowPolicy().name()));
+        return config.overflowPolicy();
+    }
+
+    /**
+     * Records, journals and schedules a captured explosion
+     *
+     * @param explosion  The explosion
+     * @param entityType The entity that exploded
+     * @param overflow   The overflow policy to apply or null if the explosion fits in the admission limits
+     */
+    public void handle(@NotNull Explosion explosion, @NotNull EntityType entityType,
+                       @Nullable OverflowPolicies overflow) {
+        TieredStore<ExplodedBlock> tieredStore = this.engine.tieredStore();
+        if (overflow == OverflowPolicies.RESTORE_OLDEST
+                || (overflow == OverflowPolicies.SPILL && tieredStore == null)) {
+            makeRoom(explosion.job().center().world(), explosion.job().remaining(), explosion.job().bytes());
+        }
+        // The blocks are taken before the job is submitted, the engine removes the blocks it recovers
+        ExplosionRecorder recorder = CreeperPlugin.instance().explosionRecorder();
+        PersistenceBackend journal = this.journal;
+        if (recorder != null || journal != null) {
+            RecoveryJob<ExplodedBlock> job = explosion.job();
+            List<PendingBlock<ExplodedBlock>> pending = job.pending();
+            long timestamp = System.currentTimeMillis();
+            write(() -> {
+                RecordedExplosion recorded = Recordings.of(timestamp, job.center(), entityType, pending);
+                if (recorder != null) {
+                    recorder.record(recorded);
+                }
+                if (journal != null) {
+                    try {
+                        job.id(journal.store(recorded));
+                    } catch (IllegalStateException exception) {
+                        // The explosion is still recovered, it only doesn't survive a restart
+                        Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to journal the explosion at "
+                                + job.center() + ": " + exception.getMessage());
+                    }
                 }
+            });
+        }
+        submit(explosion);
 
-                if (removeFinished && explosion.isFinished()) {
+        if (overflow == OverflowPolicies.SPILL && tieredStore != null) {
+            try {
+                tieredStore.spill(explosion.job());
+            } catch (IOException exception) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to spill the explosion at "
+                        + explosion.job().center() + ": " + exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Instantly recovers the oldest explosions until a new explosion fits in the admission limits.
+     * The explosions are recovered by their shards, so the calling thread never waits for a shard.
+     *
+     * @param worldName The world of the new explosion
+     * @param blocks    The blocks of the new explosion
+     * @param bytes     The estimated heap bytes of the blocks of the new explosion
+     * @return The amount of blocks that are recovered
+     */
+    public int makeRoom(@NotNull String worldName, int blocks, long bytes) {
+        AdmissionLimits limits = CreeperPlugin.instance().configManager().snapshot().admissionLimits();
+        AdmissionLimits.Usage total = AdmissionLimits.Usage.of(this.engine);
+        AdmissionLimits.Usage world = AdmissionLimits.Usage.of(this.engine, worldName);
+        List<RecoveryJob<ExplodedBlock>> jobs = null;
+        int recovered = 0;
+        AdmissionLimits.Limit limit;
+        while ((limit = limits.exceeded(total, world, blocks, bytes)) != null) {
+            if (jobs == null) {
+                jobs = new ArrayList<>(this.engine.jobs());
+            }
+            RecoveryJob<ExplodedBlock> oldest = null;
+            for (Iterator<RecoveryJob<ExplodedBlock>> iterator = jobs.iterator(); iterator.hasNext(); ) {
+                RecoveryJob<ExplodedBlock> job = iterator.next();
+                if (!limit.perWorld() || job.center().world().equals(worldName)) {
                     iterator.remove();
-                    CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
-                            "Explosion at %s completed recovery",
-                            explosion.location().toString()));
+                    oldest = job;
+                    break;
                 }
             }
-            return recovered;
-        } else {
+            if (oldest == null) {
+                // The new explosion alone exceeds the limit
+                break;
+            }
+            total = total.without(oldest);
+            if (oldest.center().world().equals(worldName)) {
+                world = world.without(oldest);
+            }
+            recovered += oldest.remaining();
+            report(this.engine.recover(oldest));
+        }
+        return recovered;
+    }
+
+    /**
+     * Queues a task on the journal writer, tasks queued after {@link #closeWriter()} are dropped
+     */
+    private void write(@NotNull Runnable task) {
+        try {
+            this.writer.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException exception) {
+                    Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to journal an explosion: "
+                            + exception.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // The server is stopping, the journal already has the last state it gets
+        }
+    }
+
+    /**
+     * Waits for the journal writer to write everything that was queued, has to be called before the journal and
+     * the explosion recorder are closed
+     */
+    public void closeWriter() {
+        this.writer.shutdown();
+        try {
+            if (!this.writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Timed out waiting for the journal writer");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(@NotNull Explosion explosion) {
+        ConfigSnapshot config = CreeperPlugin.instance().configManager().snapshot();
+        this.engine.submit(explosion.job(), config.recoverDelay(), config.recoverSpeed(), TimeUnit.MILLISECONDS);
+        CreeperPlugin.instance().pluginStats().queueDepth().record(this.engine.pendingBlocks());
+    }
+
+    /**
+     * Starts journaling and resumes the explosions that were pending when the server stopped.
+     * Explosions in chunks that are not loaded stay in the journal until their chunk loads.
+     *
+     * @param journal The opened persistence backend
+     * @return The amount of resumed explosions
+     * @throws IOException If the pending explosions can't be read
+     */
+    public int journal(@NotNull PersistenceBackend journal) throws IOException {
+        this.journal = journal;
+        int resumed = 0;
+        for (StoredExplosion journaled : journal.pending()) {
+            BlockPos origin = journaled.explosion().origin();
+            World world = Bukkit.getWorld(origin.world());
+            if (world == null || !world.isChunkLoaded(origin.chunkX(), origin.chunkZ())) {
+                this.deferred.computeIfAbsent(new ChunkKey(origin.world(), origin.chunkX(), origin.chunkZ()),
+                        key -> ConcurrentHashMap.newKeySet()).add(journaled.id());
+                continue;
+            }
+            if (resume(journal, journaled)) {
+                resumed++;
+            }
+        }
+        return resumed;
+    }
+
+    /**
+     * Drops journaled explosions that are older than the configured maximum age
+     *
+     * @return The amount of dropped explosions
+     * @throws IOException If the journal can't be written
+     */
+    public int pruneJournal() throws IOException {
+        int maxAge = CreeperPlugin.instance().configManager().snapshot().journalMaxAge();
+        if (this.journal == null || maxAge <= 0) {
             return 0;
         }
+        return this.journal.prune(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(maxAge));
+    }
+
+    private boolean resume(@NotNull PersistenceBackend journal, @NotNull StoredExplosion journaled) {
+        try {
+            Explosion explosion = Recordings.explosion(journaled.explosion());
+            if (explosion == null) {
+                // The world is not loaded, the explosion stays in the journal for the next start
+                return false;
+            }
+            explosion.job().id(journaled.id());
+            submit(explosion);
+            return true;
+        } catch (Exception exception) {
+            Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to resume the explosion at "
+                    + journaled.explosion().origin() + " from the journal: " + exception.getMessage());
+            journal.discard(journaled.id());
+            return false;
+        }
+    }
+
+    private void resumeDeferred(@NotNull String worldName, int chunkX, int chunkZ, @NotNull Set<Long> ids) {
+        PersistenceBackend journal = this.journal;
+        List<StoredExplosion> explosions;
+        try {
+            explosions = journal.pendingIn(worldName, chunkX, chunkZ);
+        } catch (IOException exception) {
+            Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to read the journaled explosions in "
+                    + "chunk " + chunkX + ", " + chunkZ + " of world '" + worldName + "': " + exception.getMessage());
+            return;
+        }
+        int resumed = 0;
+        for (StoredExplosion journaled : explosions) {
+            // Explosions captured since the start are already pending in the engine
+            if (ids.contains(journaled.id()) && resume(journal, journaled)) {
+                resumed++;
+            }
+        }
+        if (resumed > 0) {
+            CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
+                    "Chunk %d, %d in world '%s' loaded, resuming %d explosions from the journal",
+                    chunkX, chunkZ, worldName, resumed));
+        }
+    }
+
+    /**
+     * Instantly recovers blocks of all explosions, oldest explosion first
+     *
+     * @param amount The maximum amount of blocks
+     * @return The amount of recovered blocks, completed once every shard ran its part
+     */
+    public CompletableFuture<Integer> recoverBlocks(int amount) {
+        return report(this.engine.recover(amount));
+    }
+
+    /**
+     * Instantly recovers all pending explosions in a world
+     *
+     * @param worldName The name of the world
+     * @return The amount of recovered blocks, completed once the shard of the world ran the recovery
+     */
+    public CompletableFuture<Integer> recoverWorld(String worldName) {
+        return report(this.engine.recoverWorld(worldName));
+    }
+
+    /**
+     * Reports a failed instant recovery, nobody waits for the recovery of {@link #makeRoom(String, int, long)}
+     */
+    private <T> CompletableFuture<T> report(@NotNull CompletableFuture<T> recovery) {
+        recovery.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Instant recovery failed: "
+                        + failure.getMessage());
+            }
+        });
+        return recovery;
+    }
+
+    /**
+     * Restores the blocks that were parked because their chunk was not loaded
+     *
+     * @param worldName The world of the chunk
+     * @param chunkX    The x coordinate of the chunk
+     * @param chunkZ    The z coordinate of the chunk
+     */
+    public void chunkLoaded(@NotNull String worldName, int chunkX, int chunkZ) {
+        Set<Long> ids = this.journal == null ? null : this.deferred.remove(new ChunkKey(worldName, chunkX, chunkZ));
+        if (ids != null) {
+            // The journal may have to be read from disk, keep it off the chunk loading thread
+            CreeperPlugin.scheduler().runAsync(() -> resumeDeferred(worldName, chunkX, chunkZ, ids));
+        }
+        int released = this.engine.chunkLoaded(worldName, chunkX, chunkZ);
+        if (released > 0) {
+            CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
+                    "Chunk %d, %d in world '%s' loaded, restoring %d parked blocks",
+                    chunkX, chunkZ, worldName, released));
+        }
+    }
+
+    /**
+     * Loads the chunks of blocks that are parked for almost the configured timeout, the blocks are restored once
+     * their chunk is ready
+     *
+     * @return The amount of requested chunks
+     */
+    public int loadParked() {
+        int timeout = CreeperPlugin.instance().configManager().snapshot().unloadedChunkTimeout();
+        return timeout <= 0 ? 0 : this.engine.loadParked(Math.max(0, timeout - PRELOAD_AHEAD), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void recovered(@NotNull RecoveryJob<ExplodedBlock> job, int amount) {
+        CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
+                "Recovered %d blocks from explosion at %s",
+                amount,
+                job.center()));
+    }
+
+    @Override
+    public void restored(@NotNull RecoveryJob<ExplodedBlock> job, @NotNull PendingBlock<ExplodedBlock> block) {
+        PersistenceBackend journal = this.journal;
+        if (journal != null) {
+            // Behind the explosion on the writer, so a new explosion has its id by the time the marker is written
+            write(() -> {
+                if (job.id() != 0) {
+                    journal.restored(job.id(), block.position());
+                }
+            });
+        }
+    }
+
+    @Override
+    public void finished(@NotNull RecoveryJob<ExplodedBlock> job) {
+        CreeperPlugin.instance().pluginStats().explosionRecovered();
+        CreeperPlugin.instance().pluginStats().recoveryDelay().record(System.nanoTime() - job.createdAt());
+        CreeperPlugin.instance().configManager().sendDebugMessage(String.format(
+                "Explosion at %s completed recovery",
+                job.center()));
+    }
+
+    @Override
+    public void discarded(@NotNull RecoveryJob<ExplodedBlock> job, @NotNull Exception cause) {
+        Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Gave up on the explosion at " + job.center()
+                + ", its spilled blocks can't be loaded: " + cause.getMessage());
+        PersistenceBackend journal = this.journal;
+        if (journal != null) {
+            write(() -> {
+                if (job.id() != 0) {
+                    journal.discard(job.id());
+                }
+            });
+        }
+    }
+
+    @Override
+    public void failed(@NotNull RuntimeException cause) {
+        Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] A recovery task failed: " + cause);
+        cause.printStackTrace();
+    }
+
+    /**
+     * Throttles the scheduled recovery while ticks take longer than the configured budget,
+     * called after every tick on servers that report their tick times
+     *
+     * @param tickMillis The duration of the tick in milliseconds
+     */
+    public void tickEnded(double tickMillis) {
+        CreeperPlugin.instance().profiler().tickEnded((long) (tickMillis * 1_000_000));
+        int maxTickTime = CreeperPlugin.instance().configManager().snapshot().maxTickTime();
+        this.engine.throttled(maxTickTime > 0 && tickMillis > maxTickTime);
+    }
+
+    public boolean paused() {
+        return this.engine.paused();
+    }
+
+    public void paused(boolean paused) {
+        this.engine.paused(paused);
+    }
+
+    public int rateLimit() {
+        return this.engine.rateLimit();
+    }
+
+    public void rateLimit(int blocksPerSecond) {
+        this.engine.rateLimit(blocksPerSecond);
+    }
+
+    public int suppressedBlocks() {
+        return this.engine.suppressedCount();
+    }
+
+    public long parkedBlocks() {
+        return this.engine.parkedBlocks();
+    }
+
+    public long pendingBlocks() {
+        return this.engine.pendingBlocks();
+    }
+
+    public Map<String, Long> pendingBlocksByWorld() {
+        return this.engine.pendingBlocksByWorld();
+    }
+
+    public long pendingBytes() {
+        return this.engine.pendingBytes();
+    }
+
+    public Map<String, Long> pendingBytesByWorld() {
+        return this.engine.pendingBytesByWorld();
+    }
+
+    public long pendingExplosions() {
+        return this.engine.pendingJobs();
     }
 
     public boolean hasSuppressedBlocks() {
-        return this.suppressedLocations.size() > 0;
+        return this.engine.hasSuppressed();
     }
 
     public void suppressBlock(Location location) {
-        this.suppressedLocations.add(location);
+        this.engine.suppress(Positions.of(location));
     }
 
     public void freeBlock(Location location) {
-        this.suppressedLocations.remove(location);
+        this.engine.free(Positions.of(location));
     }
 
     public boolean isBlockSuppressed(Location location) {
-        return this.suppressedLocations.contains(location);
+        return this.engine.isSuppressed(Positions.of(location));
+    }
+
+    private record ChunkKey(@NotNull String world, int x, int z) {
     }
 
 }
@@ -33,7 +33,9 @@ package de.rafael.plugins.creeper.recover.common.manager;
 import de.rafael.plugins.creeper.recover.common.utils.config.JsonConfiguration;
 
 import java.io.File;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * @author Rafael K.
@@ -42,10 +44,11 @@ import java.util.HashMap;
 
 public class MessageManager {
 
-    private final HashMap<Message, String> messages = new HashMap<>();
+    // Swapped as a whole on reload so async readers never see a half filled map
+    private volatile Map<Message, String> messages = Collections.emptyMap();
 
     public void load() {
-        this.messages.clear();
+        Map<Message, String> messages = new EnumMap<>(Message.class);
 
         JsonConfiguration jsonConfiguration = JsonConfiguration.loadConfig(new File("plugins//CreeperRecover/"),
                 "messages.json");
@@ -60,6 +63,7 @@ public class MessageManager {
         }
 
         jsonConfiguration.saveConfig();
+        this.messages = messages;
 
     }
 
@@ -74,13 +78,35 @@ public class MessageManager {
         NO_PERMISSION("no.permission", "§cYou don't have permission to use this command§8."),
         BLOCKS_RECOVERED("blocks.recovered", "§b%d §7blocks recovered§8."),
         RELOADED("reloaded", "§7Configuration was §breloaded§8."),
+        RELOAD_FAILED("reload.failed", "§cThe configuration could not be reloaded§8, §7check the console§8."),
         STATS_TITLE("stats.title", "§7Daily§8:"),
         STATS_LINE_BLOCKS("stats.line.blocks", "   §bBlocks recovered §8» §7%d"),
         STATS_LINE_EXPLOSIONS("stats.line.explosions", "   §bExplosions recovered §8» §7%d"),
+        STATS_TIMINGS_TITLE("stats.timings.title", "§7Since start§8:"),
+        STATS_LINE_TIMING("stats.line.timing", "   §b%s §8» §7p50 §3%s §7p95 §3%s §7p99 §3%s §8(§7%d§8)"),
+        STATS_LINE_QUEUE("stats.line.queue", "   §bPending §8» §7%d blocks in %d explosions §8(§7p95 §3%d§8)"),
+        STATS_LINE_PHYSICS("stats.line.physics", "   §bPhysics checks §8» §7%d §8(§3%s §7cancelled§8)"),
+        PROFILE_STARTED("profile.started", "§7Profiling for §b%d §7seconds§8..."),
+        PROFILE_RUNNING("profile.running", "§cA profile is already running§8."),
+        PROFILE_TITLE("profile.title", "§7Profile of §b%ds §8(§7share of §b%d §7measured ticks§8):"),
+        PROFILE_WALL_TITLE("profile.wall.title", "§7Profile of §b%ds §8(§7share of wall time§8):"),
+        PROFILE_LINE("profile.line",
+                "   §b%s §8» §7total §3%s §8(§3%s§8) §7p50 §3%s §7p95 §3%s §7p99 §3%s §8(§7%d§8)"),
+        PROFILE_EMPTY("profile.empty", "   §7Nothing was sampled§8."),
+        MEMORY_TITLE("memory.title", "§7Pending §b%s §7in §b%d §7explosions§8:"),
+        MEMORY_LINE_WORLD("memory.line.world", "   §b%s §8» §3%s §8(§7%d blocks§8)"),
+        MEMORY_LINE_SPILL("memory.line.spill",
+                "   §bSpilled §8» §7%d explosions §8(§3%s §7on disk, §3%s §7in heap§8)"),
+        MEMORY_JOBS_TITLE("memory.jobs.title", "§7Biggest explosions§8:"),
+        MEMORY_LINE_JOB("memory.line.job",
+                "   §b%s %d %d %d §8» §3%s §8(§7%d blocks §3%s§8, §7%d inventories §3%s§8, §7%d signs §3%s§8)"),
+        MEMORY_LINE_COLD_JOB("memory.line.job.cold",
+                "   §b%s %d %d %d §8» §3%s §8(§7%d blocks, spilled§8)"),
         HELP_LINE_1("help.line.1", "§8/§7recover §bfix §8[§3blocks§8/§3all§8]"),
         HELP_LINE_2("help.line.2", "§8/§7recover §breload"),
         HELP_LINE_3("help.line.3", "§8/§7recover §bstats"),
-        HELP_LINE_4("help.line.4", "§8/§7recover §bdebug");
+        HELP_LINE_4("help.line.4", "§8/§7recover §bdebug"),
+        HELP_LINE_5("help.line.5", "§8/§7recover §bprofile §8[§3seconds§8]");
 
         private final String id;
         private final String defaultMessage;
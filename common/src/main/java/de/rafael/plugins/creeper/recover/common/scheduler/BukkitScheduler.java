@@ -28,18 +28,22 @@
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-package de.rafael.plugins.creeper.recover.scheduler;
+package de.rafael.plugins.creeper.recover.common.scheduler;
 
-import de.rafael.plugins.creeper.recover.CreeperRecover;
 import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
+ * Runs tasks on the Bukkit scheduler, shared by the Spigot and Paper plugins
+ *
  * @author Rafael K.
  * @since 06/07/2023
  */
@@ -55,14 +59,37 @@ public class BukkitScheduler implements CreeperPlugin.Scheduler {
         }
     }
 
+    @Override
+    public boolean runsInline(Location location) {
+        return Bukkit.isPrimaryThread();
+    }
+
     @Override
     public void runAsync(Runnable runnable) {
-        Bukkit.getScheduler().runTaskAsynchronously(CreeperRecover.instance(), runnable);
+        Bukkit.getScheduler().runTaskAsynchronously(CreeperPlugin.instance(), runnable);
     }
 
     @Override
     public void runAsyncAtFixedRate(Consumer<Runnable> runnable, int delay, int period, @NotNull TimeUnit unit) {
-        Bukkit.getScheduler().runTaskTimerAsynchronously(CreeperPlugin.instance(), bukkitTask -> runnable.accept(bukkitTask::cancel), unit.toMillis(delay) / 50, unit.toMillis(period) / 50);
+        Bukkit.getScheduler().runTaskTimerAsynchronously(CreeperPlugin.instance(),
+                bukkitTask -> runnable.accept(bukkitTask::cancel),
+                unit.toMillis(delay) / 50, unit.toMillis(period) / 50);
+    }
+
+    @Override
+    public void runAsyncLater(Runnable runnable, long delay, @NotNull TimeUnit unit) {
+        Bukkit.getScheduler().runTaskLaterAsynchronously(CreeperPlugin.instance(), runnable, unit.toMillis(delay) / 50);
+    }
+
+    /**
+     * Loads the chunk on the main thread, the Bukkit API has no async chunk loading
+     */
+    @Override
+    public CompletableFuture<?> loadChunk(World world, int chunkX, int chunkZ) {
+        CompletableFuture<Chunk> future = new CompletableFuture<>();
+        runOnCorrectThread(new Location(world, chunkX << 4, 0, chunkZ << 4),
+                () -> future.complete(world.getChunkAt(chunkX, chunkZ)));
+        return future;
     }
 
 }
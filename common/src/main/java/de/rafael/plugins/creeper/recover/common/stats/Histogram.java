@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.stats;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram with fixed bucket bounds. Recording only increments striped counters,
+ * so it is safe and cheap to use from many threads at once.
+ * Percentiles are estimated with the upper bound of the bucket they fall into.
+ */
+public class Histogram implements MetricsRegistry.Metric {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final String help;
+    @Getter
+    private final MetricsRegistry.Unit unit;
+
+    // Inclusive upper bounds, the last bucket collects everything above the last bound
+    private final long[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public Histogram(String name, String help, MetricsRegistry.Unit unit, long @NotNull [] bounds) {
+        this.name = name;
+        this.help = help;
+        this.unit = unit;
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Creates bucket bounds that grow by a fixed factor
+     *
+     * @param start  The first upper bound
+     * @param factor The factor between two bounds
+     * @param count  The amount of bounds
+     * @return The bucket bounds
+     */
+    public static long @NotNull [] exponentialBounds(long start, double factor, int count) {
+        long[] bounds = new long[count];
+        double bound = start;
+        for (int i = 0; i < count; i++) {
+            bounds[i] = (long) bound;
+            bound *= factor;
+        }
+        return bounds;
+    }
+
+    public void record(long value) {
+        int index = Arrays.binarySearch(this.bounds, value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        this.buckets[index].increment();
+        this.count.increment();
+        this.sum.add(value);
+        this.max.accumulate(value);
+    }
+
+    /**
+     * @return A copy of the inclusive upper bounds of the buckets
+     */
+    public long[] bounds() {
+        return this.bounds.clone();
+    }
+
+    public long count() {
+        return this.count.sum();
+    }
+
+    public long sum() {
+        return this.sum.sum();
+    }
+
+    public long max() {
+        return this.max.get();
+    }
+
+    /**
+     * @return The amount of recorded values per bucket, the last entry is the overflow bucket
+     */
+    public long[] bucketCounts() {
+        long[] counts = new long[this.buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Estimates a percentile from the bucket counts
+     *
+     * @param percentile The percentile between 0 and 1
+     * @return The upper bound of the bucket that contains the percentile or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] counts = bucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return i < this.bounds.length ? Math.min(this.bounds[i], max()) : max();
+            }
+        }
+        return max();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : this.buckets) {
+            bucket.reset();
+        }
+        this.count.reset();
+        this.sum.reset();
+        this.max.reset();
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.stats;
+
+import de.rafael.plugins.creeper.recover.common.classes.ExplodedBlock;
+import de.rafael.plugins.creeper.recover.common.classes.data.IBlockData;
+import de.rafael.plugins.creeper.recover.common.classes.data.InventoryItems;
+import de.rafael.plugins.creeper.recover.common.classes.data.sign.SignData;
+import de.rafael.plugins.creeper.recover.common.classes.data.sign.SignLines;
+import de.rafael.plugins.creeper.recover.common.classes.data.sign.SignStyle;
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.PendingBlock;
+import de.rafael.plugins.creeper.recover.core.RecoveryJob;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Breaks the estimated heap use of the biggest pending explosions down into plain blocks, inventories and signs
+ */
+public final class MemoryReport {
+
+    private MemoryReport() {
+    }
+
+    /**
+     * Only the selected jobs are walked block by block, cold jobs are not loaded and only report their total
+     *
+     * @param jobs  The pending jobs
+     * @param limit The maximum amount of jobs in the report
+     * @return The biggest jobs, biggest first
+     */
+    public static @NotNull List<JobUsage> biggest(@NotNull List<RecoveryJob<ExplodedBlock>> jobs, int limit) {
+        List<RecoveryJob<ExplodedBlock>> sorted = new ArrayList<>(jobs);
+        sorted.sort(Comparator.comparingLong(RecoveryJob<ExplodedBlock>::bytes).reversed());
+
+        List<JobUsage> usages = new ArrayList<>();
+        for (RecoveryJob<ExplodedBlock> job : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            usages.add(usage(job));
+        }
+        return usages;
+    }
+
+    private static @NotNull JobUsage usage(@NotNull RecoveryJob<ExplodedBlock> job) {
+        if (job.isCold()) {
+            return new JobUsage(job.center(), job.bytes(), job.remaining(), 0, 0, 0, 0, true);
+        }
+        List<PendingBlock<ExplodedBlock>> pending = job.pending();
+        long bytes = 0;
+        int inventories = 0;
+        long inventoryBytes = 0;
+        int signs = 0;
+        long signBytes = 0;
+        for (PendingBlock<ExplodedBlock> block : pending) {
+            boolean sign = false;
+            for (IBlockData data : block.block().otherData()) {
+                if (data instanceof InventoryItems) {
+                    inventories++;
+                    inventoryBytes += data.retainedSize();
+                } else if (data instanceof SignLines || data instanceof SignStyle || data instanceof SignData) {
+                    sign = true;
+                    signBytes += data.retainedSize();
+                }
+            }
+            if (sign) {
+                signs++;
+            }
+            bytes += block.block().retainedSize();
+        }
+        return new JobUsage(job.center(), bytes, pending.size(), inventories, inventoryBytes, signs, signBytes,
+                false);
+    }
+
+    /**
+     * @param center         The center of the explosion
+     * @param bytes          The estimated heap bytes of all pending blocks
+     * @param blocks         The pending blocks
+     * @param inventories    The pending inventories
+     * @param inventoryBytes The estimated heap bytes of the inventories
+     * @param signs          The pending signs
+     * @param signBytes      The estimated heap bytes of the sign text and style
+     * @param cold           Whether the job is spilled, the breakdown is empty then
+     */
+    public record JobUsage(BlockPos center, long bytes, int blocks, int inventories, long inventoryBytes,
+                           int signs, long signBytes, boolean cold) {
+
+        /**
+         * @return The estimated heap bytes that are neither inventories nor signs
+         */
+        public long blockBytes() {
+            return this.bytes - this.inventoryBytes - this.signBytes;
+        }
+
+    }
+
+}
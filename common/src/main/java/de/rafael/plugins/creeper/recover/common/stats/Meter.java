@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.stats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures a rate as an exponentially weighted moving average over one minute.
+ * Marking is lock-free, {@link #tick()} has to be called every {@link #TICK_SECONDS} seconds.
+ */
+public class Meter {
+
+    public static final int TICK_SECONDS = 5;
+
+    private static final double ALPHA = 1 - Math.exp(-TICK_SECONDS / 60d);
+
+    private final LongAdder uncounted = new LongAdder();
+    private volatile boolean initialized = false;
+    private volatile double rate = 0;
+
+    public void mark() {
+        this.uncounted.increment();
+    }
+
+    public void mark(long amount) {
+        this.uncounted.add(amount);
+    }
+
+    public synchronized void tick() {
+        double instantRate = this.uncounted.sumThenReset() / (double) TICK_SECONDS;
+        if (this.initialized) {
+            this.rate += ALPHA * (instantRate - this.rate);
+        } else {
+            this.rate = instantRate;
+            this.initialized = true;
+        }
+    }
+
+    /**
+     * @param unit The time unit of the rate
+     * @return The one minute average rate
+     */
+    public double rate(TimeUnit unit) {
+        return this.rate * unit.toNanos(1) / 1e9;
+    }
+
+}
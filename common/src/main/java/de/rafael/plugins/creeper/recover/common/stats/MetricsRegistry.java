@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.stats;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds all runtime metrics of the plugin. Metrics are registered once on startup,
+ * updating them never takes a lock.
+ */
+public class MetricsRegistry {
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    public Counter counter(String name, String help) {
+        return register(new Counter(name, help));
+    }
+
+    public Gauge gauge(String name, String help, LongSupplier supplier) {
+        return register(new Gauge(name, help, supplier));
+    }
+
+    public GaugeFamily gaugeFamily(String name, String help, String label, Supplier<Map<String, Long>> supplier) {
+        return register(new GaugeFamily(name, help, label, supplier));
+    }
+
+    public Histogram histogram(String name, String help, Unit unit, long[] bounds) {
+        return register(new Histogram(name, help, unit, bounds));
+    }
+
+    public List<Metric> metrics() {
+        return List.copyOf(this.metrics);
+    }
+
+    private <T extends Metric> @NotNull T register(T metric) {
+        if (this.metrics.stream().anyMatch(item -> item.name().equals(metric.name()))) {
+            throw new IllegalArgumentException("Metric " + metric.name() + " is already registered");
+        }
+        this.metrics.add(metric);
+        return metric;
+    }
+
+    public enum Unit {
+        NONE,
+        NANOSECONDS
+    }
+
+    public interface Metric {
+
+        String name();
+
+        String help();
+
+    }
+
+    public static final class Counter implements Metric {
+
+        private final String name;
+        private final String help;
+        private final LongAdder adder = new LongAdder();
+
+        private Counter(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public void increment() {
+            this.adder.increment();
+        }
+
+        public void add(long amount) {
+            this.adder.add(amount);
+        }
+
+        public long sum() {
+            return this.adder.sum();
+        }
+
+        @Override
+        public String name() {
+            return this.name;
+        }
+
+        @Override
+        public String help() {
+            return this.help;
+        }
+
+    }
+
+    public record Gauge(String name, String help, LongSupplier supplier) implements Metric {
+
+        public long value() {
+            return this.supplier.getAsLong();
+        }
+
+    }
+
+    /**
+     * Gauge with one value per label value, e.g. per world
+     */
+    public record GaugeFamily(String name, String help, String label,
+                              Supplier<Map<String, Long>> supplier) implements Metric {
+
+        public Map<String, Long> values() {
+            return this.supplier.get();
+        }
+
+    }
+
+}
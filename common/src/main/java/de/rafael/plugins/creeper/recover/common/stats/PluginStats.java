@@ -39,10 +39,13 @@ package de.rafael.plugins.creeper.recover.common.stats;
 //------------------------------
 
 import com.google.gson.JsonObject;
+import de.rafael.plugins.creeper.recover.common.manager.ExplosionManager;
 import de.rafael.plugins.creeper.recover.common.utils.config.JsonConfiguration;
 import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.concurrent.atomic.LongAdder;
 
 @Getter
 public class PluginStats {
@@ -50,14 +53,55 @@ public class PluginStats {
     private static final long DAY_MILLIS = 86400000;
     //private static final long DAY_MILLIS = 300000;
 
-    // Daily
-    private long lastReset = System.currentTimeMillis();
+    // 1µs up to ~9.5h, doubling each bucket
+    private static final long[] TIME_BOUNDS = Histogram.exponentialBounds(1_000, 2, 36);
+    // 1 up to ~1M, doubling each bucket
+    private static final long[] SIZE_BOUNDS = Histogram.exponentialBounds(1, 2, 21);
 
-    private int blocksRecovered = 0;
-    private int explosionsRecovered = 0;
+    // Daily
+    private volatile long lastReset = System.currentTimeMillis();
+
+    // Striped counters, these are updated from many region threads at once on Folia
+    private final LongAdder blocksRecovered = new LongAdder();
+    private final LongAdder explosionsRecovered = new LongAdder();
+
+    // Since the server started
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final MetricsRegistry.Counter blocksRecoveredTotal = registry.counter("blocks_recovered_total",
+            "Blocks that were recovered");
+    private final MetricsRegistry.Counter explosionsRecoveredTotal = registry.counter("explosions_recovered_total",
+            "Explosions that were recovered completely");
+    private final MetricsRegistry.Counter explosionsCaptured = registry.counter("explosions_captured_total",
+            "Explosions that were captured for recovery");
+    private final MetricsRegistry.Counter explosionsOverflowed = registry.counter("explosions_overflowed_total",
+            "Explosions that exceeded the admission limits");
+    private final MetricsRegistry.Counter physicsChecks = registry.counter("physics_checks_total",
+            "Physics events that were checked against suppressed blocks");
+    private final MetricsRegistry.Counter physicsCancels = registry.counter("physics_cancels_total",
+            "Physics events that were cancelled because the block is suppressed");
+    private final Histogram captureTime = registry.histogram("capture_time",
+            "Explosion capture time", MetricsRegistry.Unit.NANOSECONDS, TIME_BOUNDS);
+    private final Histogram restoreTime = registry.histogram("block_restore_time",
+            "Block restore time", MetricsRegistry.Unit.NANOSECONDS, TIME_BOUNDS);
+    private final Histogram recoveryDelay = registry.histogram("recovery_delay",
+            "Explosion to full recovery", MetricsRegistry.Unit.NANOSECONDS, TIME_BOUNDS);
+    private final MetricsRegistry.Gauge blocksRecoveredToday = registry.gauge("blocks_recovered_today",
+            "Blocks that were recovered since the last daily reset", blocksRecovered::sum);
+    private final MetricsRegistry.Gauge explosionsRecoveredToday = registry.gauge("explosions_recovered_today",
+            "Explosions that were recovered since the last daily reset", explosionsRecovered::sum);
+    // Recovered blocks per second, averaged over the last minute
+    private final Meter blockRate = new Meter();
+    private final Histogram queueDepth = registry.histogram("queue_depth",
+            "Pending blocks right after an explosion was queued", MetricsRegistry.Unit.NONE, SIZE_BOUNDS);
+
+    // The loaded stats file, kept in memory so saving never has to read it again
+    private JsonConfiguration jsonConfiguration;
+    // Counter values of the last save, the file is only written if something changed since then
+    private long savedBlocks = -1;
+    private long savedExplosions = -1;
 
     public void load() {
-        JsonConfiguration jsonConfiguration = JsonConfiguration.loadConfig(new File("plugins//CreeperRecover/"), "stats.json");
+        this.jsonConfiguration = JsonConfiguration.loadConfig(new File("plugins//CreeperRecover/"), "stats.json");
 
         if (!jsonConfiguration.jsonObject().has("daily")) {
             JsonObject jsonObject = new JsonObject();
@@ -72,50 +116,90 @@ public class PluginStats {
         }
 
         if (jsonConfiguration.jsonObject().getAsJsonObject("daily").has("explosionsRecovered")) {
-            this.explosionsRecovered = jsonConfiguration.jsonObject().getAsJsonObject("daily").get("explosionsRecovered").getAsInt();
+            this.explosionsRecovered.add(jsonConfiguration.jsonObject().getAsJsonObject("daily").get("explosionsRecovered").getAsInt());
         } else {
-            jsonConfiguration.jsonObject().getAsJsonObject("daily").addProperty("explosionsRecovered", this.explosionsRecovered);
+            jsonConfiguration.jsonObject().getAsJsonObject("daily").addProperty("explosionsRecovered", explosionsRecovered());
         }
 
         if (jsonConfiguration.jsonObject().getAsJsonObject("daily").has("blocksRecovered")) {
-            this.blocksRecovered = jsonConfiguration.jsonObject().getAsJsonObject("daily").get("blocksRecovered").getAsInt();
+            this.blocksRecovered.add(jsonConfiguration.jsonObject().getAsJsonObject("daily").get("blocksRecovered").getAsInt());
         } else {
-            jsonConfiguration.jsonObject().getAsJsonObject("daily").addProperty("blocksRecovered", this.blocksRecovered);
+            jsonConfiguration.jsonObject().getAsJsonObject("daily").addProperty("blocksRecovered", blocksRecovered());
         }
 
         jsonConfiguration.saveConfig();
     }
 
-    public void save() {
-        JsonConfiguration jsonConfiguration = JsonConfiguration.loadConfig(new File("plugins//CreeperRecover/"), "stats.json");
+    public synchronized void save() {
+        if (this.jsonConfiguration == null) {
+            return;
+        }
+        this.savedBlocks = this.blocksRecovered.sum();
+        this.savedExplosions = this.explosionsRecovered.sum();
 
-        jsonConfiguration.jsonObject().getAsJsonObject("daily").addProperty("explosionsRecovered", this.explosionsRecovered);
-        jsonConfiguration.jsonObject().getAsJsonObject("daily").addProperty("blocksRecovered", this.blocksRecovered);
+        jsonConfiguration.jsonObject().getAsJsonObject("daily").addProperty("lastReset", this.lastReset);
+        jsonConfiguration.jsonObject().getAsJsonObject("daily").addProperty("explosionsRecovered", this.savedExplosions);
+        jsonConfiguration.jsonObject().getAsJsonObject("daily").addProperty("blocksRecovered", this.savedBlocks);
 
         jsonConfiguration.saveConfig();
     }
 
-    public void tick() {
+    public synchronized void tick() {
         if ((lastReset + DAY_MILLIS) <= System.currentTimeMillis()) {
-            JsonConfiguration jsonConfiguration = JsonConfiguration.loadConfig(new File("plugins//CreeperRecover/"), "stats.json");
-            jsonConfiguration.jsonObject().remove("daily");
-
-            JsonObject jsonObject = new JsonObject();
-            jsonObject.addProperty("lastReset", System.currentTimeMillis());
-            jsonConfiguration.jsonObject().add("daily", jsonObject);
-
-            this.explosionsRecovered = 0;
-            this.blocksRecovered = 0;
+            this.lastReset = System.currentTimeMillis();
+            this.explosionsRecovered.reset();
+            this.blocksRecovered.reset();
+            this.savedBlocks = -1;
+        }
+        if (this.savedBlocks != this.blocksRecovered.sum() || this.savedExplosions != this.explosionsRecovered.sum()) {
+            save();
         }
-        save();
+    }
+
+    /**
+     * Registers the gauges that read the recovery queue, they only read counters and never take a lock
+     *
+     * @param explosionManager The explosion manager of the plugin
+     */
+    public void trackQueue(@NotNull ExplosionManager explosionManager) {
+        this.registry.gauge("pending_blocks", "Blocks waiting for recovery", explosionManager::pendingBlocks);
+        this.registry.gauge("pending_explosions", "Explosions waiting for recovery",
+                explosionManager::pendingExplosions);
+        this.registry.gaugeFamily("world_pending_blocks", "Blocks waiting for recovery per world", "world",
+                explosionManager::pendingBlocksByWorld);
+        this.registry.gauge("pending_bytes", "Estimated heap bytes of the blocks waiting for recovery",
+                explosionManager::pendingBytes);
+        this.registry.gaugeFamily("world_pending_bytes", "Estimated heap bytes of the blocks waiting for recovery "
+                + "per world", "world", explosionManager::pendingBytesByWorld);
+        this.registry.gauge("parked_blocks", "Blocks waiting for their chunk to load",
+                explosionManager::parkedBlocks);
     }
 
     public void blockRecovered() {
-        this.blocksRecovered++;
+        this.blocksRecovered.increment();
+        this.blocksRecoveredTotal.increment();
+        this.blockRate.mark();
     }
 
     public void explosionRecovered() {
-        this.explosionsRecovered++;
+        this.explosionsRecovered.increment();
+        this.explosionsRecoveredTotal.increment();
+    }
+
+    public int blocksRecovered() {
+        return this.blocksRecovered.intValue();
+    }
+
+    public int explosionsRecovered() {
+        return this.explosionsRecovered.intValue();
+    }
+
+    /**
+     * @return The share of checked physics events that were cancelled, between 0 and 1
+     */
+    public double physicsCancelRate() {
+        long checks = this.physicsChecks.sum();
+        return checks == 0 ? 0 : (double) this.physicsCancels.sum() / checks;
     }
 
 }
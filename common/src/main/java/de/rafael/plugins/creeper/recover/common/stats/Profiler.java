@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.stats;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Samples the time spent in each phase of the explosion handling while a profiling session is running.
+ * Outside of a session every probe costs a single volatile read.
+ */
+public class Profiler {
+
+    // 100ns up to ~1.9h, doubling each bucket
+    private static final long[] BOUNDS = Histogram.exponentialBounds(100, 2, 36);
+
+    private final Map<Phase, Histogram> phases;
+    private final Map<String, Histogram> dataApply = new ConcurrentHashMap<>();
+
+    @Getter
+    private volatile boolean active = false;
+    private volatile long startedAt;
+    private volatile long stoppedAt;
+    private final LongAdder tickTime = new LongAdder();
+    private final LongAdder ticks = new LongAdder();
+
+    public Profiler() {
+        Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new Histogram(phase.name().toLowerCase(), phase.label(),
+                    MetricsRegistry.Unit.NANOSECONDS, BOUNDS));
+        }
+        this.phases = Collections.unmodifiableMap(phases);
+    }
+
+    /**
+     * Starts a new session and drops the samples of the previous one
+     *
+     * @return false if a session is already running
+     */
+    public synchronized boolean start() {
+        if (this.active) {
+            return false;
+        }
+        this.phases.values().forEach(Histogram::reset);
+        this.dataApply.clear();
+        this.tickTime.reset();
+        this.ticks.reset();
+        this.startedAt = System.nanoTime();
+        this.active = true;
+        return true;
+    }
+
+    public synchronized void stop() {
+        if (this.active) {
+            this.active = false;
+            this.stoppedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return The start time of a probe or 0 if no session is running
+     */
+    public long begin() {
+        return this.active ? System.nanoTime() : 0;
+    }
+
+    public void end(Phase phase, long begin) {
+        if (begin != 0) {
+            this.phases.get(phase).record(System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * Ends the probe of a single {@link de.rafael.plugins.creeper.recover.common.classes.data.IBlockData#apply} call
+     *
+     * @param type  The type of the applied data
+     * @param begin The start time of the probe
+     */
+    public void endApply(Class<?> type, long begin) {
+        if (begin != 0) {
+            long time = System.nanoTime() - begin;
+            this.dataApply.computeIfAbsent(type.getSimpleName(), name -> new Histogram(name, "Apply " + name,
+                    MetricsRegistry.Unit.NANOSECONDS, BOUNDS)).record(time);
+        }
+    }
+
+    /**
+     * Adds a server tick to the session, only called on servers that report their tick times
+     *
+     * @param nanos The duration of the tick
+     */
+    public void tickEnded(long nanos) {
+        if (this.active) {
+            this.tickTime.add(nanos);
+            this.ticks.increment();
+        }
+    }
+
+    /**
+     * @return The measured tick time of the current or last session in nanoseconds
+     */
+    public long tickTime() {
+        return this.tickTime.sum();
+    }
+
+    /**
+     * @return The measured ticks of the current or last session, zero if the server doesn't report tick times
+     */
+    public long ticks() {
+        return this.ticks.sum();
+    }
+
+    /**
+     * @return The duration of the current or last session in nanoseconds
+     */
+    public long elapsed() {
+        return (this.active ? System.nanoTime() : this.stoppedAt) - this.startedAt;
+    }
+
+    /**
+     * @return The sampled phases that were hit at least once, block data types are sorted by name
+     */
+    public @NotNull List<Histogram> samples() {
+        List<Histogram> samples = new ArrayList<>();
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = this.phases.get(phase);
+            if (histogram.count() > 0) {
+                samples.add(histogram);
+            }
+            if (phase == Phase.BLOCK_RESTORE) {
+                // Data types are part of the block restore
+                new TreeMap<>(this.dataApply).values().forEach(samples::add);
+            }
+        }
+        return samples;
+    }
+
+    @Getter
+    public enum Phase {
+
+        TARGET_EVALUATION("Target evaluation"),
+        FILTERING("Filtering"),
+        CAPTURE("Capture"),
+        BLOCK_CLEARING("Block clearing"),
+        BLOCK_RESTORE("Block restore"),
+        SOUND("Sound"),
+        PHYSICS_CHECK("Physics checks");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+    }
+
+}
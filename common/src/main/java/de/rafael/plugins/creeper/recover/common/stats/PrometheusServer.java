@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.stats;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the {@link MetricsRegistry} in the Prometheus text exposition format on {@code /metrics}.
+ * A scrape only reads the counters of the registry, it never touches a world or takes a plugin lock.
+ */
+public class PrometheusServer {
+
+    private static final String PREFIX = "creeper_recover_";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public PrometheusServer(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public synchronized void start(String host, int port) throws IOException {
+        if (this.server != null) {
+            return;
+        }
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CreeperRecover-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/metrics", this::handle);
+        this.server.start();
+    }
+
+    public synchronized void stop() {
+        if (this.server == null) {
+            return;
+        }
+        this.server.stop(0);
+        this.executor.shutdownNow();
+        this.server = null;
+        this.executor = null;
+    }
+
+    private void handle(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        }
+    }
+
+    /**
+     * @return All metrics of the registry in the Prometheus text format
+     */
+    public @NotNull String render() {
+        StringBuilder builder = new StringBuilder(8192);
+        for (MetricsRegistry.Metric metric : this.registry.metrics()) {
+            if (metric instanceof MetricsRegistry.Counter counter) {
+                header(builder, counter.name(), counter.help(), "counter");
+                sample(builder, counter.name(), "", counter.sum());
+            } else if (metric instanceof MetricsRegistry.Gauge gauge) {
+                header(builder, gauge.name(), gauge.help(), "gauge");
+                sample(builder, gauge.name(), "", gauge.value());
+            } else if (metric instanceof MetricsRegistry.GaugeFamily family) {
+                header(builder, family.name(), family.help(), "gauge");
+                for (Map.Entry<String, Long> entry : family.values().entrySet()) {
+                    sample(builder, family.name(), label(family.label(), entry.getKey()), entry.getValue());
+                }
+            } else if (metric instanceof Histogram histogram) {
+                renderHistogram(builder, histogram);
+            }
+        }
+        return builder.toString();
+    }
+
+    private void renderHistogram(StringBuilder builder, @NotNull Histogram histogram) {
+        boolean nanos = histogram.unit() == MetricsRegistry.Unit.NANOSECONDS;
+        String name = nanos ? histogram.name() + "_seconds" : histogram.name();
+        header(builder, name, histogram.help(), "histogram");
+
+        // The count is derived from the buckets so that it always matches the +Inf bucket
+        long[] counts = histogram.bucketCounts();
+        long[] bounds = histogram.bounds();
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += counts[i];
+            String bound = nanos ? number(bounds[i] / 1e9) : Long.toString(bounds[i]);
+            sample(builder, name + "_bucket", label("le", bound), cumulative);
+        }
+        cumulative += counts[bounds.length];
+        sample(builder, name + "_bucket", label("le", "+Inf"), cumulative);
+        builder.append(PREFIX).append(name).append("_sum ")
+                .append(nanos ? number(histogram.sum() / 1e9) : Long.toString(histogram.sum())).append('\n');
+        sample(builder, name + "_count", "", cumulative);
+    }
+
+    private static void header(@NotNull StringBuilder builder, String name, @NotNull String help, String type) {
+        builder.append("# HELP ").append(PREFIX).append(name).append(' ')
+                .append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        builder.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(@NotNull StringBuilder builder, String name, String labels, long value) {
+        builder.append(PREFIX).append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static @NotNull String label(String name, @NotNull String value) {
+        return "{" + name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"}";
+    }
+
+    private static @NotNull String number(double value) {
+        return String.format(Locale.ROOT, "%.9g", value).replaceFirst("\\.?0+(e|$)", "$1");
+    }
+
+}
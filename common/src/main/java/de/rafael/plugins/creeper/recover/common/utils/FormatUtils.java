@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+public class FormatUtils {
+
+    /**
+     * Formats a duration with a unit that keeps the number short
+     *
+     * @param nanos The duration in nanoseconds
+     * @return The formatted duration like 12µs, 3.4ms or 2.1s
+     */
+    public static @NotNull String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        } else if (nanos < 1_000_000) {
+            return String.format(Locale.ROOT, "%.1fµs", nanos / 1_000d);
+        } else if (nanos < 1_000_000_000) {
+            return String.format(Locale.ROOT, "%.1fms", nanos / 1_000_000d);
+        } else {
+            return String.format(Locale.ROOT, "%.1fs", nanos / 1_000_000_000d);
+        }
+    }
+
+    /**
+     * Formats an amount of bytes with a binary unit that keeps the number short
+     *
+     * @param bytes The amount of bytes
+     * @return The formatted amount like 512B, 3.4KiB or 2.1MiB
+     */
+    public static @NotNull String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + "B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1fKiB", bytes / 1024d);
+        } else if (bytes < 1024 * 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1fMiB", bytes / (1024d * 1024));
+        } else {
+            return String.format(Locale.ROOT, "%.1fGiB", bytes / (1024d * 1024 * 1024));
+        }
+    }
+
+    public static @NotNull String formatPercent(double share) {
+        return String.format(Locale.ROOT, "%.1f%%", share * 100);
+    }
+
+}
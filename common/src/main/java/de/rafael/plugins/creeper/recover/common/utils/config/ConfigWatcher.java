@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.utils.config;
+
+import com.google.gson.JsonObject;
+import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
+import de.rafael.plugins.creeper.recover.common.manager.MessageManager;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Objects;
+
+/**
+ * Watches the plugin folder and reloads the configuration when the config file changes.
+ * Runs on its own daemon thread, the reload only swaps the published config snapshot.
+ */
+public class ConfigWatcher implements Runnable {
+
+    // Editors often write a file in several steps, wait a moment before reading it
+    private static final long settleMillis = 250;
+
+    private final File folder;
+    private final String fileName;
+
+    private WatchService watchService;
+    private Thread thread;
+    private JsonObject lastLoaded;
+
+    public ConfigWatcher(@NotNull File folder, @NotNull String fileName) {
+        this.folder = folder;
+        this.fileName = fileName;
+    }
+
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            this.folder.toPath().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException exception) {
+            Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to watch the config file: "
+                    + exception.getMessage());
+            return;
+        }
+        this.lastLoaded = JsonConfiguration.loadConfig(this.folder, this.fileName).jsonObject();
+        this.thread = new Thread(this, "CreeperRecover-ConfigWatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public synchronized void stop() {
+        if (this.thread == null) {
+            return;
+        }
+        this.thread.interrupt();
+        this.thread = null;
+        try {
+            this.watchService.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return this.thread != null && this.thread.isAlive();
+    }
+
+    @Override
+    public void run() {
+        WatchService service = this.watchService;
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException exception) {
+                return;
+            }
+
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.context() instanceof Path path && path.getFileName().toString().equals(this.fileName)) {
+                    changed = true;
+                }
+            }
+            if (!key.reset()) {
+                return;
+            }
+
+            if (changed) {
+                try {
+                    Thread.sleep(settleMillis);
+                } catch (InterruptedException exception) {
+                    return;
+                }
+                reload();
+            }
+        }
+    }
+
+    private void reload() {
+        JsonObject current;
+        try {
+            current = JsonConfiguration.loadConfig(this.folder, this.fileName).jsonObject();
+        } catch (Exception exception) {
+            // The file is probably still being written, the next event will pick it up
+            return;
+        }
+
+        // The plugin rewrites the file itself on every load, only react to real changes
+        if (Objects.equals(current, this.lastLoaded)) {
+            return;
+        }
+
+        CreeperPlugin plugin = CreeperPlugin.instance();
+        if (plugin.configManager().reload()) {
+            this.lastLoaded = JsonConfiguration.loadConfig(this.folder, this.fileName).jsonObject();
+            Bukkit.getConsoleSender().sendMessage(plugin.messageManager().getMessage(MessageManager.Message.PREFIX)
+                    + plugin.messageManager().getMessage(MessageManager.Message.RELOADED));
+            plugin.refreshConfigWatcher();
+        } else {
+            Bukkit.getConsoleSender().sendMessage("§c[CreeperRecover] Failed to reload the changed config file.");
+        }
+    }
+
+}
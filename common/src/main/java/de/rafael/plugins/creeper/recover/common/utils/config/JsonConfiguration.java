@@ -38,8 +38,6 @@ package de.rafael.plugins.creeper.recover.common.utils.config;
 //
 //------------------------------
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.stream.JsonReader;
@@ -47,6 +45,7 @@ import lombok.Getter;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
 
 @Getter
 public class JsonConfiguration {
@@ -73,6 +72,12 @@ public class JsonConfiguration {
 
         File file = new File(folder.getPath() + "/" + fileName);
 
+        // A save that was not written yet is newer than the file on disk
+        JsonObject pending = JsonStore.pending(file);
+        if(pending != null) {
+            return new JsonConfiguration(file, pending);
+        }
+
         JsonObject jsonObject = new JsonObject();
 
         if(!file.exists()) {
@@ -88,13 +93,11 @@ public class JsonConfiguration {
             }
         } else {
 
-            try {
-
-                JsonReader jsonReader = new JsonReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            try (JsonReader jsonReader = new JsonReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
 
                 jsonObject = JsonParser.parseReader(jsonReader).getAsJsonObject();
 
-            } catch (FileNotFoundException exception) {
+            } catch (IOException exception) {
                 exception.printStackTrace();
             }
 
@@ -104,22 +107,30 @@ public class JsonConfiguration {
 
     }
 
+    /**
+     * Queues the current content to be written by the {@link JsonStore}. Never blocks on file I/O.
+     */
     public void saveConfig() {
 
-        Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().setPrettyPrinting().create();
+        JsonStore.write(file, jsonObject);
 
-        Writer out = null;
-        try {
-            out = new BufferedWriter(new OutputStreamWriter(
-                    new FileOutputStream(file), StandardCharsets.UTF_8));
-            try {
-                out.write(gson.toJson(jsonObject));
-            } finally {
-                out.close();
-            }
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+    }
+
+    /**
+     * Loads, changes and saves a config on the writer thread of the {@link JsonStore},
+     * so read-modify-write cycles from different threads can't overwrite each other.
+     *
+     * @param folder   The folder of the config
+     * @param fileName The name of the config file
+     * @param modifier Changes the loaded config, it is saved afterwards
+     */
+    public static void modifyConfig(File folder, String fileName, Consumer<JsonConfiguration> modifier) {
+
+        JsonStore.submit(() -> {
+            JsonConfiguration jsonConfiguration = loadConfig(folder, fileName);
+            modifier.accept(jsonConfiguration);
+            jsonConfiguration.saveConfig();
+        });
 
     }
 
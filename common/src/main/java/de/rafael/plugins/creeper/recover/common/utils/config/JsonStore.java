@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.common.utils.config;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Write-behind persistence for all json files of the plugin.
+ * Saves only mark a file as dirty and are written on a single background thread.
+ * Multiple saves of the same file before the writer gets to it are coalesced into one write.
+ * Every write goes to a temporary file first and is then moved over the real file,
+ * so a crash never leaves a truncated file behind.
+ */
+public final class JsonStore {
+
+    public static final Gson GSON = new GsonBuilder().disableHtmlEscaping().serializeNulls().setPrettyPrinting()
+            .create();
+
+    // Latest unsaved content per file, a file is dirty as long as it has an entry here
+    private static final Map<File, JsonObject> pending = new ConcurrentHashMap<>();
+    private static final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "CreeperRecover-JsonStore");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        writer.allowCoreThreadTimeOut(true);
+    }
+
+    private JsonStore() {
+    }
+
+    /**
+     * Marks the file as dirty with the given content. The content is copied, so the caller can keep using it.
+     *
+     * @param file       The file to write
+     * @param jsonObject The new content of the file
+     */
+    public static void write(@NotNull File file, @NotNull JsonObject jsonObject) {
+        File key = file.getAbsoluteFile();
+        if (pending.put(key, jsonObject.deepCopy()) == null) {
+            writer.execute(() -> writePending(key));
+        }
+    }
+
+    /**
+     * Returns a copy of the content that is still waiting to be written, so loads never see stale data
+     *
+     * @param file The file to look up
+     * @return The unsaved content or null if the file is not dirty
+     */
+    public static @Nullable JsonObject pending(@NotNull File file) {
+        JsonObject jsonObject = pending.get(file.getAbsoluteFile());
+        return jsonObject != null ? jsonObject.deepCopy() : null;
+    }
+
+    /**
+     * Runs a task on the writer thread, ordered with all writes that were queued before it
+     *
+     * @param runnable The task to run
+     */
+    public static void submit(@NotNull Runnable runnable) {
+        writer.execute(runnable);
+    }
+
+    /**
+     * Blocks until everything that was queued so far has been written
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     * @return true if all files were written in time
+     */
+    public static boolean flush(long timeout, @NotNull TimeUnit unit) {
+        try {
+            writer.submit(() -> {
+            }).get(timeout, unit);
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException exception) {
+            return false;
+        }
+    }
+
+    private static void writePending(File file) {
+        while (true) {
+            JsonObject jsonObject = pending.get(file);
+            if (jsonObject == null) {
+                return;
+            }
+            try {
+                writeAtomically(file.toPath(), jsonObject);
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+            // Another save may have replaced the content while writing, in that case write again
+            if (pending.remove(file, jsonObject)) {
+                return;
+            }
+        }
+    }
+
+    private static void writeAtomically(@NotNull Path target, JsonObject jsonObject) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        byte[] bytes = GSON.toJson(jsonObject).getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
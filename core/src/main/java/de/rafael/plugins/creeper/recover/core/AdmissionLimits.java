@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Upper bounds for the pending work of a {@link RecoveryEngine}, zero means unlimited.
+ * They are checked against the counters of the engine, so a check costs a few reads and no locks.
+ *
+ * @param explosions         The pending explosions of all worlds
+ * @param blocks             The pending blocks of all worlds
+ * @param bytes              The estimated heap bytes of the pending blocks of all worlds that are not spilled
+ * @param explosionsPerWorld The pending explosions of one world
+ * @param blocksPerWorld     The pending blocks of one world
+ * @param bytesPerWorld      The estimated heap bytes of the pending blocks of one world that are not spilled
+ */
+public record AdmissionLimits(long explosions, long blocks, long bytes,
+                              long explosionsPerWorld, long blocksPerWorld, long bytesPerWorld) {
+
+    public static final AdmissionLimits UNLIMITED = new AdmissionLimits(0, 0, 0, 0, 0, 0);
+
+    /**
+     * Checks if one more explosion fits
+     *
+     * @param engine    The engine
+     * @param worldName The world of the explosion
+     * @param blocks    The blocks of the explosion
+     * @param bytes     The estimated heap bytes of the blocks of the explosion
+     * @return The exceeded limit or null if the explosion fits
+     */
+    public @Nullable Limit exceeded(@NotNull RecoveryEngine<?> engine, @NotNull String worldName, int blocks,
+                                    long bytes) {
+        return exceeded(Usage.of(engine), Usage.of(engine, worldName), blocks, bytes);
+    }
+
+    /**
+     * Checks if one more explosion fits in the given usage
+     *
+     * @param total  The pending work of all worlds
+     * @param world  The pending work of the world of the explosion
+     * @param blocks The blocks of the explosion
+     * @param bytes  The estimated heap bytes of the blocks of the explosion
+     * @return The exceeded limit or null if the explosion fits
+     */
+    public @Nullable Limit exceeded(@NotNull Usage total, @NotNull Usage world, int blocks, long bytes) {
+        if (this.explosions > 0 && total.explosions() + 1 > this.explosions) {
+            return Limit.EXPLOSIONS;
+        }
+        if (this.blocks > 0 && total.blocks() + blocks > this.blocks) {
+            return Limit.BLOCKS;
+        }
+        if (this.bytes > 0 && total.bytes() + bytes > this.bytes) {
+            return Limit.BYTES;
+        }
+        if (this.explosionsPerWorld > 0 && world.explosions() + 1 > this.explosionsPerWorld) {
+            return Limit.WORLD_EXPLOSIONS;
+        }
+        if (this.blocksPerWorld > 0 && world.blocks() + blocks > this.blocksPerWorld) {
+            return Limit.WORLD_BLOCKS;
+        }
+        if (this.bytesPerWorld > 0 && world.bytes() + bytes > this.bytesPerWorld) {
+            return Limit.WORLD_BYTES;
+        }
+        return null;
+    }
+
+    /**
+     * The pending work the limits are checked against
+     *
+     * @param explosions The pending explosions
+     * @param blocks     The pending blocks
+     * @param bytes      The estimated heap bytes of the pending blocks that are not spilled,
+     *                   spilled blocks don't take heap until they are due
+     */
+    public record Usage(long explosions, long blocks, long bytes) {
+
+        public static @NotNull Usage of(@NotNull RecoveryEngine<?> engine) {
+            return new Usage(engine.pendingJobs(), engine.pendingBlocks(), engine.residentBytes());
+        }
+
+        public static @NotNull Usage of(@NotNull RecoveryEngine<?> engine, @NotNull String worldName) {
+            return new Usage(engine.pendingJobs(worldName), engine.pendingBlocks(worldName),
+                    engine.residentBytes(worldName));
+        }
+
+        /**
+         * @param job A job that is recovered
+         * @return The usage once the job is recovered
+         */
+        public @NotNull Usage without(@NotNull RecoveryJob<?> job) {
+            long bytes = job.isCold() ? 0 : job.bytes();
+            return new Usage(this.explosions - 1, this.blocks - job.remaining(), this.bytes - bytes);
+        }
+
+    }
+
+    public enum Limit {
+
+        EXPLOSIONS,
+        BLOCKS,
+        BYTES,
+        WORLD_EXPLOSIONS,
+        WORLD_BLOCKS,
+        WORLD_BYTES;
+
+        public boolean perWorld() {
+            return this == WORLD_EXPLOSIONS || this == WORLD_BLOCKS || this == WORLD_BYTES;
+        }
+
+    }
+
+}
@@ -0,0 +1,775 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core;
+
+import de.rafael.plugins.creeper.recover.core.jfr.RecoveryBatchEvent;
+import de.rafael.plugins.creeper.recover.core.tier.TieredStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Schedules recovery jobs and keeps track of the pending and suppressed blocks.
+ * The engine only knows positions, placing a block is left to the {@link WorldAccess}.
+ * The jobs of each world are changed by one thread at a time through a {@link SerialExecutor} instead of a lock.
+ *
+ * @param <B> The type of the captured block state
+ */
+public class RecoveryEngine<B> {
+
+    private final WorldAccess<B> world;
+    private final TaskScheduler scheduler;
+    private final RecoveryListener<B> listener;
+
+    // One shard per world, the jobs of a shard are only changed by the owner of its executor
+    private final Map<String, Shard<B>> shards = new ConcurrentHashMap<>();
+    // Read by the physics listener for every physics update, so lookups must not lock
+    private final Set<BlockPos> suppressed = ConcurrentHashMap.newKeySet();
+
+    // Blocks of unloaded chunks, restored in one batch when the chunk loads again
+    private final Map<ChunkKey, List<Parked<B>>> parked = new ConcurrentHashMap<>();
+    private final LongAdder parkedBlocks = new LongAdder();
+    private final Set<ChunkKey> loading = ConcurrentHashMap.newKeySet();
+    // Blocks waiting for the task of their chunk section, see WorldAccess#coalesceSections
+    private final Map<SectionKey, List<Placement<B>>> sections = new ConcurrentHashMap<>();
+
+    private final Counters pending = new Counters();
+    private final Map<String, Counters> pendingByWorld = new ConcurrentHashMap<>();
+
+    private final IntSupplier configuredRateLimit;
+    private final RateLimiter rateLimiter = new RateLimiter();
+    private volatile int rateLimitOverride = -1;
+    private volatile boolean paused = false;
+    private volatile boolean throttled = false;
+    private volatile TieredStore<B> tieredStore;
+
+    /**
+     * @param world               Places the blocks
+     * @param scheduler           Runs the recovery tasks
+     * @param listener            Receives the progress
+     * @param configuredRateLimit Supplies the configured blocks per second of the scheduled recovery,
+     *                            zero means unlimited
+     */
+    public RecoveryEngine(WorldAccess<B> world, TaskScheduler scheduler, RecoveryListener<B> listener,
+                          IntSupplier configuredRateLimit) {
+        this.world = world;
+        this.scheduler = scheduler;
+        this.listener = listener;
+        this.configuredRateLimit = configuredRateLimit;
+    }
+
+    /**
+     * Suppresses the blocks of a job and recovers one block per period after the delay
+     *
+     * @param job    The job
+     * @param delay  The delay before the first block
+     * @param period The time between two blocks
+     * @param unit   The unit of delay and period
+     */
+    public void submit(@NotNull RecoveryJob<B> job, long delay, long period, TimeUnit unit) {
+        List<PendingBlock<B>> pending = job.pending();
+        for (PendingBlock<B> block : pending) {
+            this.suppressed.add(block.position());
+        }
+        addPending(job, 1, pending.size(), job.bytes());
+        TieredStore<B> tieredStore = this.tieredStore;
+        if (tieredStore != null) {
+            tieredStore.track(job, System.nanoTime() + unit.toNanos(delay));
+        }
+        // Published last, instant recovery may take the job as soon as it is in the shard
+        Shard<B> shard = shard(job);
+        shard.executor.execute(() -> shard.add(job));
+
+        this.scheduler.runAtFixedRate(cancel -> shard.executor.execute(() -> {
+            if (job.remaining() > 0) {
+                if (this.paused || this.throttled) {
+                    return;
+                }
+                if (!this.world.isWatched(job.center())) {
+                    // Nobody sees the animation, so the rest of the job is restored in one batch
+                    recover(job, Integer.MAX_VALUE, true);
+                } else if (this.rateLimiter.tryAcquire(rateLimit())) {
+                    recover(job, 1, false);
+                }
+            }
+            // The last placement finishes the job
+            if (job.remaining() == 0) {
+                cancel.run();
+                remove(shard, job);
+                finish(job);
+            }
+        }), delay, period, unit);
+    }
+
+    /**
+     * Instantly recovers blocks of all jobs, oldest job first. The shards run the recovery, so the calling thread
+     * never waits for a shard that is busy on another thread.
+     *
+     * @param amount The maximum amount of blocks
+     * @return The amount of recovered blocks, completed by the thread that ran the last shard
+     */
+    public @NotNull CompletableFuture<Integer> recover(int amount) {
+        CompletableFuture<Integer> recovered = CompletableFuture.completedFuture(0);
+        for (RecoveryJob<B> job : jobs()) {
+            recovered = recovered.thenCompose(sum -> sum >= amount
+                    ? CompletableFuture.completedFuture(sum)
+                    : recoverInstantly(job, amount - sum).thenApply(count -> sum + count));
+        }
+        return recovered;
+    }
+
+    /**
+     * Instantly recovers all jobs in a world
+     *
+     * @param worldName The name of the world
+     * @return The amount of recovered blocks, completed by the thread that ran the shard of the world
+     */
+    public @NotNull CompletableFuture<Integer> recoverWorld(String worldName) {
+        Shard<B> shard = this.shards.get(worldName);
+        if (shard == null) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return shard.executor.submit(() -> {
+            int recovered = 0;
+            for (RecoveryJob<B> job : new ArrayList<>(shard.jobs)) {
+                recovered += recover(shard, job, Integer.MAX_VALUE);
+            }
+            return recovered;
+        });
+    }
+
+    /**
+     * Instantly recovers the oldest job
+     *
+     * @param worldName The world of the job or null for any world
+     * @return The amount of recovered blocks, zero if there was no job
+     */
+    public @NotNull CompletableFuture<Integer> recoverOldest(@Nullable String worldName) {
+        List<RecoveryJob<B>> jobs;
+        if (worldName == null) {
+            jobs = jobs();
+        } else {
+            Shard<B> shard = this.shards.get(worldName);
+            jobs = shard == null ? List.of() : shard.snapshot;
+        }
+        return jobs.isEmpty() ? CompletableFuture.completedFuture(0) : recover(jobs.get(0));
+    }
+
+    /**
+     * Instantly recovers a job
+     *
+     * @param job The job
+     * @return The amount of recovered blocks, zero if the job was already recovered
+     */
+    public @NotNull CompletableFuture<Integer> recover(@NotNull RecoveryJob<B> job) {
+        return recoverInstantly(job, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Queues the recovery of a job on its shard
+     */
+    private @NotNull CompletableFuture<Integer> recoverInstantly(@NotNull RecoveryJob<B> job, int amount) {
+        Shard<B> shard = shard(job);
+        return shard.executor.submit(() -> recover(shard, job, amount));
+    }
+
+    /**
+     * Recovers blocks of a job and removes the job once all of its blocks were polled,
+     * has to be called by the owner of the shard
+     */
+    private int recover(@NotNull Shard<B> shard, @NotNull RecoveryJob<B> job, int amount) {
+        int recovered = recover(job, amount, false);
+        if (job.remaining() == 0) {
+            remove(shard, job);
+            finish(job);
+        }
+        return recovered;
+    }
+
+    /**
+     * Has to be called by the owner of the shard of the job
+     */
+    private int recover(@NotNull RecoveryJob<B> job, int amount, boolean quiet) {
+        RecoveryBatchEvent batchEvent = new RecoveryBatchEvent();
+        batchEvent.begin();
+        long bytes = job.bytes();
+        List<PendingBlock<B>> blocks = new ArrayList<>(Math.min(amount, job.remaining()));
+        int polled;
+        try {
+            polled = job.poll(amount, blocks::add);
+        } catch (UncheckedIOException exception) {
+            discard(job, exception.getCause());
+            return 0;
+        }
+        int parked = restore(job, blocks, quiet);
+        bytes -= job.bytes();
+        batchEvent.end();
+        if (batchEvent.shouldCommit()) {
+            batchEvent.world = job.center().world();
+            batchEvent.requestedBlocks = amount;
+            batchEvent.recoveredBlocks = polled;
+            batchEvent.remainingBlocks = job.remaining();
+            batchEvent.explosionAge = System.nanoTime() - job.createdAt();
+            batchEvent.commit();
+        }
+        // Parked blocks are counted by parkedBlocks until they are placed
+        addPending(job, 0, -polled, -bytes);
+        if (polled > parked) {
+            this.listener.recovered(job, polled - parked);
+        }
+        return polled;
+    }
+
+    /**
+     * Schedules one task per chunk, so a batch does not cost a scheduler hop per block
+     *
+     * @return The amount of parked blocks
+     */
+    private int restore(@NotNull RecoveryJob<B> job, @NotNull List<PendingBlock<B>> blocks, boolean quiet) {
+        Map<ChunkKey, List<PendingBlock<B>>> chunks = new LinkedHashMap<>();
+        for (PendingBlock<B> block : blocks) {
+            chunks.computeIfAbsent(ChunkKey.of(block.position()), key -> new ArrayList<>(1)).add(block);
+        }
+        // Counted before the blocks are handed out, they may be placed right away
+        job.placing(blocks.size());
+        int parked = 0;
+        for (List<PendingBlock<B>> chunk : chunks.values()) {
+            BlockPos position = chunk.get(0).position();
+            if (!this.world.isLoaded(position)) {
+                long now = System.nanoTime();
+                List<Parked<B>> list = new ArrayList<>(chunk.size());
+                for (PendingBlock<B> block : chunk) {
+                    list.add(new Parked<>(job, block, now));
+                }
+                park(ChunkKey.of(position), list);
+                parked += list.size();
+                continue;
+            }
+            List<Placement<B>> placements = new ArrayList<>(chunk.size());
+            for (PendingBlock<B> block : chunk) {
+                placements.add(new Placement<>(job, block, quiet));
+            }
+            // A task that runs inline places the whole chunk at once anyway
+            if (this.world.coalesceSections() && !this.scheduler.runsInline(position)) {
+                placements.forEach(this::coalesce);
+                continue;
+            }
+            schedule(placements);
+        }
+        return parked;
+    }
+
+    /**
+     * Queues a block for its section, the first block of a section schedules the task that places all of them
+     */
+    private void coalesce(@NotNull Placement<B> placement) {
+        SectionKey key = SectionKey.of(placement.block().position());
+        boolean[] first = new boolean[1];
+        this.sections.compute(key, (ignored, placements) -> {
+            List<Placement<B>> list = placements;
+            if (list == null) {
+                list = new ArrayList<>();
+                first[0] = true;
+            }
+            list.add(placement);
+            return list;
+        });
+        if (first[0]) {
+            boolean scheduled = this.scheduler.runAt(placement.block().position(), () -> {
+                List<Placement<B>> placements = this.sections.remove(key);
+                if (placements != null) {
+                    place(placements);
+                }
+            });
+            if (!scheduled) {
+                List<Placement<B>> placements = this.sections.remove(key);
+                if (placements != null) {
+                    drop(placements);
+                }
+            }
+        }
+    }
+
+    private void schedule(@NotNull List<Placement<B>> placements) {
+        if (!this.scheduler.runAt(placements.get(0).block().position(), () -> place(placements))) {
+            drop(placements);
+        }
+    }
+
+    /**
+     * Gives up on placements whose task could not be scheduled, their positions are no longer protected from physics
+     */
+    private void drop(@NotNull List<Placement<B>> placements) {
+        for (Placement<B> placement : placements) {
+            this.suppressed.remove(placement.block().position());
+            placed(placement.job());
+        }
+    }
+
+    /**
+     * Places a batch and plays its effects once per job, called on the thread that owns the blocks.
+     * Blocks whose chunks unloaded since they were scheduled are parked again instead of loading the chunk.
+     */
+    private void place(@NotNull List<Placement<B>> placements) {
+        Map<RecoveryJob<B>, List<BlockPos>> effects = new LinkedHashMap<>();
+        Map<ChunkKey, List<Parked<B>>> unloaded = null;
+        for (Placement<B> placement : placements) {
+            PendingBlock<B> block = placement.block();
+            BlockPos missing = this.world.unloaded(block.position(), block.block());
+            if (missing != null) {
+                if (unloaded == null) {
+                    unloaded = new LinkedHashMap<>();
+                }
+                unloaded.computeIfAbsent(ChunkKey.of(missing), key -> new ArrayList<>())
+                        .add(new Parked<>(placement.job(), block, System.nanoTime()));
+                continue;
+            }
+            this.world.restore(block.position(), block.block());
+            this.suppressed.remove(block.position());
+            this.listener.restored(placement.job(), block);
+            placed(placement.job());
+            if (!placement.quiet()) {
+                effects.computeIfAbsent(placement.job(), job -> new ArrayList<>()).add(block.position());
+            }
+        }
+        effects.values().forEach(this.world::effects);
+        if (unloaded != null) {
+            unloaded.forEach(this::park);
+        }
+    }
+
+    /**
+     * @param key    The chunk the blocks wait for
+     * @param blocks Blocks that are already counted by {@link RecoveryJob#placing()}
+     */
+    private void park(@NotNull ChunkKey key, @NotNull List<Parked<B>> blocks) {
+        this.parked.compute(key, (ignored, parked) -> {
+            List<Parked<B>> list = parked == null ? new ArrayList<>() : parked;
+            list.addAll(blocks);
+            return list;
+        });
+        this.parkedBlocks.add(blocks.size());
+        // The chunk may have loaded between the check and parking the blocks
+        if (this.world.isLoaded(key.origin())) {
+            chunkLoaded(key.world(), key.x(), key.z());
+        }
+    }
+
+    private void placed(@NotNull RecoveryJob<B> job) {
+        job.placing(-1);
+        finish(job);
+    }
+
+    /**
+     * Restores the parked blocks of a chunk in one batch, called when a chunk loads
+     *
+     * @param worldName The world of the chunk
+     * @param chunkX    The x coordinate of the chunk
+     * @param chunkZ    The z coordinate of the chunk
+     * @return The amount of released blocks
+     */
+    public int chunkLoaded(@NotNull String worldName, int chunkX, int chunkZ) {
+        if (this.parked.isEmpty()) {
+            return 0;
+        }
+        List<Parked<B>> blocks = this.parked.remove(new ChunkKey(worldName, chunkX, chunkZ));
+        return blocks == null ? 0 : release(blocks);
+    }
+
+    /**
+     * Requests the chunks of parked blocks to load, their blocks are restored once the chunk is ready.
+     * A chunk is requested when its oldest block has been parked for the given time.
+     *
+     * @param olderThan The minimum time the oldest block of a chunk has been parked
+     * @param unit      The unit of olderThan
+     * @return The amount of requested chunks
+     */
+    public int loadParked(long olderThan, TimeUnit unit) {
+        long deadline = System.nanoTime() - unit.toNanos(olderThan);
+        int requested = 0;
+        for (ChunkKey key : this.parked.keySet()) {
+            boolean[] due = new boolean[1];
+            this.parked.computeIfPresent(key, (ignored, blocks) -> {
+                due[0] = blocks.get(0).parkedAt() - deadline <= 0;
+                return blocks;
+            });
+            if (!due[0] || !this.loading.add(key)) {
+                continue;
+            }
+            requested++;
+            // The chunk of the key, a block may wait for the chunk of a block connected to it
+            this.world.load(key.origin()).whenComplete((ignored, throwable) -> {
+                this.loading.remove(key);
+                // The blocks stay parked if the chunk can not be loaded
+                if (throwable == null) {
+                    chunkLoaded(key.world(), key.x(), key.z());
+                }
+            });
+        }
+        return requested;
+    }
+
+    /**
+     * Restores all parked blocks right away, which loads their chunks on the thread that owns them
+     *
+     * @return The amount of released blocks
+     */
+    public int releaseParked() {
+        int released = 0;
+        for (ChunkKey key : this.parked.keySet()) {
+            List<Parked<B>> blocks = this.parked.remove(key);
+            if (blocks != null) {
+                released += release(blocks);
+            }
+        }
+        return released;
+    }
+
+    private int release(@NotNull List<Parked<B>> blocks) {
+        this.parkedBlocks.add(-blocks.size());
+        // Grouped by the chunk of each block, blocks waiting for a connected block may be in the chunk next to it
+        Map<ChunkKey, List<Placement<B>>> chunks = new LinkedHashMap<>();
+        Map<RecoveryJob<B>, Boolean> watched = new HashMap<>();
+        for (Parked<B> parked : blocks) {
+            // Chunks also load and get loaded without a player near them
+            boolean quiet = !watched.computeIfAbsent(parked.job(), job -> this.world.isWatched(job.center()));
+            chunks.computeIfAbsent(ChunkKey.of(parked.block().position()), key -> new ArrayList<>())
+                    .add(new Placement<>(parked.job(), parked.block(), quiet));
+        }
+        chunks.values().forEach(this::schedule);
+        return blocks.size();
+    }
+
+    /**
+     * Finishes a job once all of its blocks were polled and placed, only the first call for a finished job counts
+     */
+    private void finish(@NotNull RecoveryJob<B> job) {
+        if (job.isFinished() && job.markFinished()) {
+            TieredStore<B> tieredStore = this.tieredStore;
+            if (tieredStore != null) {
+                tieredStore.untrack(job);
+            }
+            this.listener.finished(job);
+        }
+    }
+
+    /**
+     * Gives up on a job whose spilled blocks can't be loaded, has to be called by the owner of its shard
+     */
+    private void discard(@NotNull RecoveryJob<B> job, @NotNull IOException cause) {
+        long bytes = job.bytes();
+        List<BlockPos> positions = job.clear();
+        for (BlockPos position : positions) {
+            this.suppressed.remove(position);
+        }
+        addPending(job, 0, -positions.size(), -bytes);
+        remove(shard(job), job);
+        if (job.markFinished()) {
+            TieredStore<B> tieredStore = this.tieredStore;
+            if (tieredStore != null) {
+                tieredStore.untrack(job);
+            }
+            this.listener.discarded(job, cause);
+        }
+    }
+
+    /**
+     * Takes a job out of its shard once all of its blocks were polled, it no longer counts as pending
+     * while the last placements run. Has to be called by the owner of the shard.
+     */
+    private void remove(@NotNull Shard<B> shard, @NotNull RecoveryJob<B> job) {
+        if (shard.remove(job)) {
+            addPending(job, -1, 0, 0);
+        }
+    }
+
+    private void addPending(@NotNull RecoveryJob<B> job, long jobs, long blocks, long bytes) {
+        this.pending.add(jobs, blocks, bytes);
+        this.pendingByWorld.computeIfAbsent(job.center().world(), name -> new Counters()).add(jobs, blocks, bytes);
+    }
+
+    public boolean isSuppressed(BlockPos position) {
+        return this.suppressed.contains(position);
+    }
+
+    public boolean hasSuppressed() {
+        return !this.suppressed.isEmpty();
+    }
+
+    public int suppressedCount() {
+        return this.suppressed.size();
+    }
+
+    public void suppress(BlockPos position) {
+        this.suppressed.add(position);
+    }
+
+    public void free(BlockPos position) {
+        this.suppressed.remove(position);
+    }
+
+    /**
+     * @return The blocks that wait for their chunk to load, they are not part of {@link #pendingBlocks()}
+     */
+    public long parkedBlocks() {
+        return this.parkedBlocks.sum();
+    }
+
+    public long pendingBlocks() {
+        return this.pending.blocks.sum();
+    }
+
+    /**
+     * @return The jobs with blocks that were not polled yet
+     */
+    public long pendingJobs() {
+        return this.pending.jobs.sum();
+    }
+
+    /**
+     * @return The estimated heap bytes of the pending blocks, including spilled ones, see {@link RecoveryJob#bytes()}
+     */
+    public long pendingBytes() {
+        return this.pending.bytes.sum();
+    }
+
+    /**
+     * @return The estimated heap bytes of the pending blocks that are not spilled
+     */
+    public long residentBytes() {
+        TieredStore<B> tieredStore = this.tieredStore;
+        return pendingBytes() - (tieredStore == null ? 0 : tieredStore.coldBytes());
+    }
+
+    public long pendingBlocks(String worldName) {
+        Counters counters = this.pendingByWorld.get(worldName);
+        return counters == null ? 0 : counters.blocks.sum();
+    }
+
+    public long pendingJobs(String worldName) {
+        Counters counters = this.pendingByWorld.get(worldName);
+        return counters == null ? 0 : counters.jobs.sum();
+    }
+
+    public long pendingBytes(String worldName) {
+        Counters counters = this.pendingByWorld.get(worldName);
+        return counters == null ? 0 : counters.bytes.sum();
+    }
+
+    public long residentBytes(String worldName) {
+        TieredStore<B> tieredStore = this.tieredStore;
+        return pendingBytes(worldName) - (tieredStore == null ? 0 : tieredStore.coldBytes(worldName));
+    }
+
+    /**
+     * @return The pending blocks of every world that had a job since the engine was created
+     */
+    public @NotNull Map<String, Long> pendingBlocksByWorld() {
+        Map<String, Long> pending = new TreeMap<>();
+        this.pendingByWorld.forEach((world, counters) -> pending.put(world, counters.blocks.sum()));
+        return pending;
+    }
+
+    /**
+     * @return The estimated heap bytes of the pending blocks of every world that had a job since the engine was created
+     */
+    public @NotNull Map<String, Long> pendingBytesByWorld() {
+        Map<String, Long> pending = new TreeMap<>();
+        this.pendingByWorld.forEach((world, counters) -> pending.put(world, counters.bytes.sum()));
+        return pending;
+    }
+
+    /**
+     * Reads the published snapshots of the shards, so it never waits for the recovery
+     *
+     * @return A copy of the pending jobs, oldest first
+     */
+    public @NotNull List<RecoveryJob<B>> jobs() {
+        List<RecoveryJob<B>> jobs = new ArrayList<>();
+        for (Shard<B> shard : this.shards.values()) {
+            jobs.addAll(shard.snapshot);
+        }
+        jobs.sort(Comparator.comparingLong(RecoveryJob::createdAt));
+        return jobs;
+    }
+
+    private @NotNull Shard<B> shard(@NotNull RecoveryJob<B> job) {
+        return this.shards.computeIfAbsent(job.center().world(),
+                name -> new Shard<>(new SerialExecutor(this.listener::failed)));
+    }
+
+    public @Nullable TieredStore<B> tieredStore() {
+        return this.tieredStore;
+    }
+
+    /**
+     * Lets a store spill the jobs submitted from now on
+     *
+     * @param tieredStore The store or null to keep all jobs in the heap
+     */
+    public void tieredStore(@Nullable TieredStore<B> tieredStore) {
+        if (tieredStore != null) {
+            tieredStore.loadFailed((job, exception) -> {
+                Shard<B> shard = shard(job);
+                shard.executor.execute(() -> discard(job, exception));
+            });
+        }
+        this.tieredStore = tieredStore;
+    }
+
+    public boolean paused() {
+        return this.paused;
+    }
+
+    public void paused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * @return Whether the scheduled recovery waits because the server is over its tick budget
+     */
+    public boolean throttled() {
+        return this.throttled;
+    }
+
+    /**
+     * Holds the scheduled recovery back while the server is over its tick budget, instant recovery is not affected
+     *
+     * @param throttled Whether the server is over its tick budget
+     */
+    public void throttled(boolean throttled) {
+        this.throttled = throttled;
+    }
+
+    /**
+     * @return The maximum amount of blocks recovered per second by the scheduled recovery, zero means unlimited
+     */
+    public int rateLimit() {
+        int override = this.rateLimitOverride;
+        return override >= 0 ? override : this.configuredRateLimit.getAsInt();
+    }
+
+    /**
+     * Overrides the configured rate limit
+     *
+     * @param blocksPerSecond The new limit, zero means unlimited and a negative value restores the configured limit
+     */
+    public void rateLimit(int blocksPerSecond) {
+        this.rateLimitOverride = blocksPerSecond;
+    }
+
+    private record ChunkKey(@NotNull String world, int x, int z) {
+
+        private static @NotNull ChunkKey of(@NotNull BlockPos position) {
+            return new ChunkKey(position.world(), position.chunkX(), position.chunkZ());
+        }
+
+        private @NotNull BlockPos origin() {
+            return new BlockPos(this.world, this.x << 4, 0, this.z << 4);
+        }
+
+    }
+
+    /**
+     * The jobs of one world. Only the owner of the executor changes them, other threads read the snapshot.
+     */
+    private static final class Shard<B> {
+
+        private final SerialExecutor executor;
+        // In submit order
+        private final List<RecoveryJob<B>> jobs = new ArrayList<>();
+        private volatile List<RecoveryJob<B>> snapshot = List.of();
+
+        private Shard(@NotNull SerialExecutor executor) {
+            this.executor = executor;
+        }
+
+        private void add(@NotNull RecoveryJob<B> job) {
+            this.jobs.add(job);
+            this.snapshot = List.copyOf(this.jobs);
+        }
+
+        private boolean remove(@NotNull RecoveryJob<B> job) {
+            if (!this.jobs.remove(job)) {
+                return false;
+            }
+            this.snapshot = List.copyOf(this.jobs);
+            return true;
+        }
+
+    }
+
+    private record SectionKey(@NotNull String world, int x, int y, int z) {
+
+        private static @NotNull SectionKey of(@NotNull BlockPos position) {
+            return new SectionKey(position.world(), position.chunkX(), position.y() >> 4, position.chunkZ());
+        }
+
+    }
+
+    private record Placement<B>(@NotNull RecoveryJob<B> job, @NotNull PendingBlock<B> block, boolean quiet) {
+    }
+
+    private record Parked<B>(@NotNull RecoveryJob<B> job, @NotNull PendingBlock<B> block, long parkedAt) {
+    }
+
+    private static final class Counters {
+
+        private final LongAdder jobs = new LongAdder();
+        private final LongAdder blocks = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private void add(long jobs, long blocks, long bytes) {
+            if (jobs != 0) {
+                this.jobs.add(jobs);
+            }
+            this.blocks.add(blocks);
+            this.bytes.add(bytes);
+        }
+
+    }
+
+}
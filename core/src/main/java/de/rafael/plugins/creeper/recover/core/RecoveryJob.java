@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * The blocks of one explosion in recovery order. The blocks farthest away from the center come back first,
+ * they are stored nearest first so every recovered block is removed from the tail in constant time.
+ *
+ * @param <B> The type of the captured block state
+ */
+public class RecoveryJob<B> {
+
+    private final BlockPos center;
+    private final long createdAt = System.nanoTime();
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+    private final AtomicInteger placing = new AtomicInteger();
+    private final ToLongFunction<B> sizeEstimate;
+    private volatile long id = 0;
+
+    // Guarded by this, blocks is empty while the job is cold
+    private ArrayList<PendingBlock<B>> blocks;
+    private ColdBlocks<B> cold;
+    private int coldSize;
+    // The x, y and z of every cold block, so a job that can't be loaded anymore still knows its positions
+    private int[] coldPositions;
+    private long bytes = 0;
+
+    public RecoveryJob(@NotNull BlockPos center, @NotNull List<PendingBlock<B>> blocks) {
+        this(center, blocks, block -> 0);
+    }
+
+    /**
+     * @param center       The center of the explosion
+     * @param blocks       The blocks to recover
+     * @param sizeEstimate Estimates the heap bytes of a captured block state for {@link #bytes()}
+     */
+    public RecoveryJob(@NotNull BlockPos center, @NotNull List<PendingBlock<B>> blocks,
+                       @NotNull ToLongFunction<B> sizeEstimate) {
+        this.center = center;
+        this.sizeEstimate = sizeEstimate;
+        this.blocks = new ArrayList<>(blocks);
+        this.blocks.sort(Comparator.comparingLong(block -> block.position().distanceSquared(center)));
+        for (PendingBlock<B> block : this.blocks) {
+            this.bytes += sizeEstimate.applyAsLong(block.block());
+        }
+    }
+
+    /**
+     * @return The id the owner of the job refers to it with, zero if none was assigned
+     */
+    public long id() {
+        return this.id;
+    }
+
+    public void id(long id) {
+        this.id = id;
+    }
+
+    public BlockPos center() {
+        return this.center;
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} the job was created at
+     */
+    public long createdAt() {
+        return this.createdAt;
+    }
+
+    /**
+     * Removes up to the given amount of blocks in recovery order
+     *
+     * @param amount   The maximum amount of blocks
+     * @param consumer Receives the removed blocks
+     * @return The amount of removed blocks
+     */
+    public synchronized int poll(int amount, Consumer<PendingBlock<B>> consumer) {
+        load();
+        int polled = 0;
+        while (polled < amount && !this.blocks.isEmpty()) {
+            PendingBlock<B> block = this.blocks.removeLast();
+            this.bytes -= this.sizeEstimate.applyAsLong(block.block());
+            consumer.accept(block);
+            polled++;
+        }
+        return polled;
+    }
+
+    /**
+     * @return A copy of the pending blocks in recovery order
+     */
+    public synchronized @NotNull List<PendingBlock<B>> pending() {
+        load();
+        return new ArrayList<>(this.blocks.reversed());
+    }
+
+    /**
+     * @return The estimated heap bytes of the pending blocks, also counted while the job is cold
+     */
+    public synchronized long bytes() {
+        return this.bytes;
+    }
+
+    public synchronized int remaining() {
+        return this.cold != null ? this.coldSize : this.blocks.size();
+    }
+
+    /**
+     * @return The polled blocks that are not placed yet, including blocks that wait for their chunk to load
+     */
+    public int placing() {
+        return this.placing.get();
+    }
+
+    /**
+     * @return Whether every block was polled and placed
+     */
+    public synchronized boolean isFinished() {
+        return remaining() == 0 && this.placing.get() == 0;
+    }
+
+    /**
+     * Moves the pending blocks out of the heap until they are needed again
+     *
+     * @param store Stores the blocks in their internal order and returns the handle to load them
+     * @return true if the blocks were moved, false if the job is already cold or has no blocks left
+     */
+    public synchronized boolean spill(@NotNull Function<List<PendingBlock<B>>, ColdBlocks<B>> store) {
+        if (this.cold != null || this.blocks.isEmpty()) {
+            return false;
+        }
+        this.cold = store.apply(this.blocks);
+        this.coldSize = this.blocks.size();
+        this.coldPositions = new int[this.blocks.size() * 3];
+        for (int i = 0; i < this.blocks.size(); i++) {
+            BlockPos position = this.blocks.get(i).position();
+            this.coldPositions[i * 3] = position.x();
+            this.coldPositions[i * 3 + 1] = position.y();
+            this.coldPositions[i * 3 + 2] = position.z();
+        }
+        this.blocks = new ArrayList<>(0);
+        return true;
+    }
+
+    /**
+     * Loads the blocks of a cold job back into the heap, does nothing if the job is not cold
+     */
+    public synchronized void load() {
+        if (this.cold == null) {
+            return;
+        }
+        ColdBlocks<B> cold = this.cold;
+        this.blocks = new ArrayList<>(cold.load());
+        this.cold = null;
+        this.coldPositions = null;
+        cold.release();
+    }
+
+    /**
+     * Removes all pending blocks without loading them, used to give up on a job whose blocks can't be loaded
+     *
+     * @return The positions of the removed blocks
+     */
+    public synchronized @NotNull List<BlockPos> clear() {
+        List<BlockPos> positions = new ArrayList<>(remaining());
+        if (this.cold != null) {
+            for (int i = 0; i < this.coldPositions.length; i += 3) {
+                positions.add(new BlockPos(this.center.world(), this.coldPositions[i], this.coldPositions[i + 1],
+                        this.coldPositions[i + 2]));
+            }
+            ColdBlocks<B> cold = this.cold;
+            this.cold = null;
+            this.coldPositions = null;
+            this.coldSize = 0;
+            try {
+                cold.release();
+            } catch (RuntimeException ignored) {
+                // The storage of the blocks may be as broken as the blocks
+            }
+        } else {
+            for (PendingBlock<B> block : this.blocks) {
+                positions.add(block.position());
+            }
+            this.blocks = new ArrayList<>(0);
+        }
+        this.bytes = 0;
+        return positions;
+    }
+
+    public synchronized boolean isCold() {
+        return this.cold != null;
+    }
+
+    /**
+     * Marks the job as finished, only the first call counts
+     *
+     * @return true if this was the first call
+     */
+    boolean markFinished() {
+        return this.finished.compareAndSet(false, true);
+    }
+
+    /**
+     * @param amount The change of the polled blocks that are not placed yet
+     */
+    void placing(int amount) {
+        this.placing.addAndGet(amount);
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core;
+
+/**
+ * Receives progress of the engine, all methods may be called from any thread
+ *
+ * @param <B> The type of the captured block state
+ */
+public interface RecoveryListener<B> {
+
+    /**
+     * Called after blocks of a job were handed to the world
+     *
+     * @param job    The job
+     * @param amount The amount of blocks
+     */
+    default void recovered(RecoveryJob<B> job, int amount) {
+    }
+
+    /**
+     * Called on the thread that owns the position after a block was placed
+     *
+     * @param job   The job of the block
+     * @param block The block
+     */
+    default void restored(RecoveryJob<B> job, PendingBlock<B> block) {
+    }
+
+    /**
+     * Called once when all blocks of a job were placed, on the thread that placed the last one
+     *
+     * @param job The job
+     */
+    default void finished(RecoveryJob<B> job) {
+    }
+
+    /**
+     * Called once instead of {@link #finished(RecoveryJob)} when the spilled blocks of a job can't be loaded,
+     * the blocks that were still pending are given up
+     *
+     * @param job   The job
+     * @param cause Why the blocks can't be loaded
+     */
+    default void discarded(RecoveryJob<B> job, Exception cause) {
+    }
+
+    /**
+     * Called by the thread that ran a recovery task that failed, the other tasks keep running
+     *
+     * @param cause The failure
+     */
+    default void failed(RuntimeException cause) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, cause);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks one after another without a lock or a thread of its own. Any thread can submit tasks to the queue,
+ * the thread that finds the executor idle drains it and is the single owner of the guarded state until it is empty.
+ */
+public final class SerialExecutor implements Executor {
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Thread> owner = new AtomicReference<>();
+    private final Consumer<RuntimeException> failureHandler;
+
+    /**
+     * @param failureHandler Receives the failures of tasks, called by the thread that drained the failed task
+     */
+    public SerialExecutor(@NotNull Consumer<RuntimeException> failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Queues a task, it runs right away if no other thread is draining the queue.
+     * A failing task does not stop the others, the failure goes to the failure handler and never to the caller,
+     * which may have queued a different task than the one that failed.
+     *
+     * @param task The task
+     */
+    @Override
+    public void execute(@NotNull Runnable task) {
+        this.queue.add(task);
+        drain();
+    }
+
+    /**
+     * Queues a task without waiting for it, it runs after the current task if the calling thread owns the executor
+     *
+     * @param task The task
+     * @param <T>  The type of the result
+     * @return The result of the task, completed by the thread that runs it
+     */
+    public <T> @NotNull CompletableFuture<T> submit(@NotNull Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(task.get());
+            } catch (RuntimeException exception) {
+                future.completeExceptionally(exception);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return Whether the calling thread is draining the queue
+     */
+    public boolean isOwner() {
+        return this.owner.get() == Thread.currentThread();
+    }
+
+    private void drain() {
+        Thread current = Thread.currentThread();
+        // Checked again after releasing, a task queued while the owner stopped polling must not be left behind
+        while (!this.queue.isEmpty() && this.owner.compareAndSet(null, current)) {
+            try {
+                Runnable task;
+                while ((task = this.queue.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException exception) {
+                        this.failureHandler.accept(exception);
+                    }
+                }
+            } finally {
+                this.owner.set(null);
+            }
+        }
+    }
+
+}
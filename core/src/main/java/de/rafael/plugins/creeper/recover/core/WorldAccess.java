@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The world the engine restores blocks in
+ *
+ * @param <B> The type of the captured block state
+ */
+public interface WorldAccess<B> {
+
+    /**
+     * Places a captured block without effects, called on the thread that owns the position
+     *
+     * @param position The position of the block
+     * @param block    The captured state
+     */
+    void restore(BlockPos position, B block);
+
+    /**
+     * Plays the effects of a batch once, called after the blocks of one job were placed on the thread that owns them
+     *
+     * @param positions The placed blocks of the job, never empty
+     */
+    default void effects(List<BlockPos> positions) {
+    }
+
+    /**
+     * Checks if a player may see a position, called once per job and cycle from any thread so it has to be cheap
+     *
+     * @param position The center of a job
+     * @return Whether the job has to be animated, otherwise it is restored at once
+     */
+    default boolean isWatched(BlockPos position) {
+        return true;
+    }
+
+    /**
+     * Servers send all changes of a chunk section within one tick as a single update,
+     * so the engine can place the blocks of a section together instead of one per task
+     *
+     * @return Whether the blocks of a section are placed in one task
+     */
+    default boolean coalesceSections() {
+        return false;
+    }
+
+    /**
+     * Checks if the chunk of a position is loaded without loading it, called from any thread
+     *
+     * @param position The position
+     * @return Whether a block can be restored there without loading the chunk
+     */
+    default boolean isLoaded(BlockPos position) {
+        return true;
+    }
+
+    /**
+     * Checks the chunks a block touches right before it is placed, called on the thread that owns the position
+     *
+     * @param position The position of the block
+     * @param block    The captured state, it may reach into a neighbouring chunk
+     * @return A position in a chunk that is not loaded or null if the block can be placed without loading a chunk
+     */
+    default @Nullable BlockPos unloaded(BlockPos position, B block) {
+        return isLoaded(position) ? null : position;
+    }
+
+    /**
+     * Loads the chunk of a position, off the thread that owns it where the platform supports it
+     *
+     * @param position The position
+     * @return Completes once the chunk is loaded or fails if it can not be loaded
+     */
+    default CompletableFuture<?> load(BlockPos position) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+}
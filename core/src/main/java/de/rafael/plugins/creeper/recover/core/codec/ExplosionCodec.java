@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core.codec;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary snapshot format of an explosion.
+ * <p>
+ * A snapshot is the version, the flags and the body, deflated if {@link #COMPRESSED} is set. The body is the
+ * timestamp, the origin, the entity type and the blocks. Every block is its position as zigzag varint deltas to the
+ * origin, its block data as {@link Palette} id and its payload as length-prefixed blob. A block data string follows
+ * its id the first time it is used.
+ */
+public final class ExplosionCodec {
+
+    public static final byte VERSION = 1;
+    public static final byte COMPRESSED = 1;
+    // Larger lengths can only come from damaged data, they are rejected before anything is allocated
+    public static final int MAX_SIZE = 64 << 20;
+
+    // Every block is at least three position deltas, a palette id and a payload length
+    private static final int MIN_BLOCK_SIZE = 5;
+    // Deflate can't compress better than this
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    private ExplosionCodec() {
+    }
+
+    /**
+     * @param explosion The explosion
+     * @param palette   The palette of the writer, new block data is added to it
+     * @param compress  Whether the body is deflated
+     * @return The snapshot
+     */
+    public static byte @NotNull [] encode(@NotNull RecordedExplosion explosion, @NotNull Palette palette,
+                                          boolean compress) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(32 + explosion.blocks().size() * 6);
+        BlockPos origin = explosion.origin();
+        VarInts.write(body, explosion.timestamp());
+        VarInts.writeString(body, origin.world());
+        VarInts.writeSigned(body, origin.x());
+        VarInts.writeSigned(body, origin.y());
+        VarInts.writeSigned(body, origin.z());
+        VarInts.writeString(body, explosion.entityType());
+        VarInts.write(body, explosion.blocks().size());
+        for (RecordedBlock block : explosion.blocks()) {
+            VarInts.writeSigned(body, block.position().x() - origin.x());
+            VarInts.writeSigned(body, block.position().y() - origin.y());
+            VarInts.writeSigned(body, block.position().z() - origin.z());
+            int id = palette.id(block.blockData());
+            if (id == -1) {
+                VarInts.write(body, palette.add(block.blockData()));
+                VarInts.writeString(body, block.blockData());
+            } else {
+                VarInts.write(body, id);
+            }
+            VarInts.writeBytes(body, block.payload());
+        }
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream(body.size() + 2);
+        snapshot.write(VERSION);
+        snapshot.write(compress ? COMPRESSED : 0);
+        if (compress) {
+            VarInts.write(snapshot, body.size());
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(body.toByteArray());
+                deflater.finish();
+                byte[] buffer = new byte[Math.max(64, body.size() / 2)];
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(buffer);
+                    snapshot.write(buffer, 0, length);
+                }
+            } finally {
+                deflater.end();
+            }
+        } else {
+            snapshot.writeBytes(body.toByteArray());
+        }
+        return snapshot.toByteArray();
+    }
+
+    /**
+     * @param snapshot The snapshot
+     * @param palette  The palette of the reader, new block data is added to it
+     * @return The explosion
+     * @throws IOException If the snapshot is damaged or of an unknown version
+     */
+    public static @NotNull RecordedExplosion decode(byte @NotNull [] snapshot, @NotNull Palette palette)
+            throws IOException {
+        try {
+            ByteBuffer input = ByteBuffer.wrap(snapshot);
+            byte version = input.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            ByteBuffer body = (input.get() & COMPRESSED) != 0 ? inflate(input) : input;
+
+            long timestamp = VarInts.readLong(body);
+            BlockPos origin = new BlockPos(VarInts.readString(body), VarInts.readSigned(body),
+                    VarInts.readSigned(body), VarInts.readSigned(body));
+            String entityType = VarInts.readString(body);
+            int size = VarInts.read(body);
+            if (size < 0 || size > body.remaining() / MIN_BLOCK_SIZE) {
+                throw new IOException("Damaged explosion snapshot, " + size + " blocks don't fit in "
+                        + body.remaining() + " bytes");
+            }
+            List<RecordedBlock> blocks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                BlockPos position = new BlockPos(origin.world(), origin.x() + VarInts.readSigned(body),
+                        origin.y() + VarInts.readSigned(body), origin.z() + VarInts.readSigned(body));
+                int id = VarInts.read(body);
+                String blockData;
+                if (id == palette.size()) {
+                    blockData = VarInts.readString(body);
+                    palette.add(blockData);
+                } else {
+                    blockData = palette.get(id);
+                }
+                blocks.add(new RecordedBlock(position, blockData, VarInts.readBytes(body)));
+            }
+            return new RecordedExplosion(timestamp, origin, entityType, blocks);
+        } catch (RuntimeException exception) {
+            throw new IOException("Damaged explosion snapshot", exception);
+        }
+    }
+
+    private static @NotNull ByteBuffer inflate(@NotNull ByteBuffer input) throws IOException {
+        int size = VarInts.read(input);
+        if (size < 0 || size > MAX_SIZE || size > (long) input.remaining() * MAX_DEFLATE_RATIO) {
+            throw new IOException("Damaged compressed snapshot, " + input.remaining() + " bytes can't inflate to "
+                    + size);
+        }
+        byte[] body = new byte[size];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            int length = 0;
+            while (length < body.length && !inflater.finished()) {
+                int inflated = inflater.inflate(body, length, body.length - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new IOException("Compressed snapshot ends early");
+                }
+                if (inflated == 0 && inflater.needsDictionary()) {
+                    // Snapshots never use a preset dictionary, only a damaged header asks for one
+                    throw new IOException("Damaged compressed snapshot");
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException exception) {
+            throw new IOException("Damaged compressed snapshot", exception);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(body);
+    }
+
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core.journal;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.codec.ExplosionCodec;
+import de.rafael.plugins.creeper.recover.core.codec.Palette;
+import de.rafael.plugins.creeper.recover.core.persistence.PersistenceBackend;
+import de.rafael.plugins.creeper.recover.core.persistence.StoredExplosion;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Flat-file {@link PersistenceBackend}, an append-only journal of the captured explosions and the blocks that were
+ * restored since.
+ * <p>
+ * The file is memory-mapped, so an append is a memory copy and survives a crash or kill of the process as soon as
+ * it returns. {@link #flush()} additionally forces the pages to the disk. Every record is its length, a CRC32 and
+ * the body. The length is written last, a record that was cut off ends the journal when it is read. Explosions are
+ * stored as {@link ExplosionCodec} snapshots with their own {@link Palette}, so every record can be read on its own.
+ * <p>
+ * Restored blocks only add small markers, an explosion is done once all of its blocks are marked.
+ * {@link #compact()} rewrites the journal with the pending explosions alone, while new records keep being appended.
+ */
+public class RecoveryJournal implements PersistenceBackend {
+
+    private static final int MAGIC = 0x43524a4c;
+    private static final short VERSION = 1;
+    private static final int HEADER = 6;
+
+    private static final byte EXPLOSION = 1;
+    private static final byte BLOCK_RESTORED = 2;
+    private static final byte DISCARDED = 3;
+
+    private static final int GROWTH = 1 << 20;
+    private static final int COMPACT_MIN_SIZE = 4 << 20;
+    // Positions are ints and a mapping can't be larger
+    private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private final Path file;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer marker = ByteBuffer.allocate(21);
+
+    // Guarded by this
+    private List<StoredExplosion> pending;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private int compactedSize;
+    private long nextId;
+    // Counts the compactions, a compaction that started on an older journal file is dropped
+    private int generation;
+
+    /**
+     * Opens a journal and reads the explosions that are still pending, a missing file is created
+     *
+     * @param file The journal file
+     * @throws IOException If the file can't be opened or is not a journal
+     */
+    public RecoveryJournal(@NotNull Path file) throws IOException {
+        this.file = file;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (this.channel.size() > MAX_SIZE) {
+            this.channel.close();
+            throw new IOException(file + " is larger than a journal can be");
+        }
+        int size = (int) this.channel.size();
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, GROWTH));
+        if (size == 0) {
+            this.buffer.putInt(0, MAGIC);
+            this.buffer.putShort(4, VERSION);
+        } else if (this.buffer.getInt(0) != MAGIC || this.buffer.getShort(4) != VERSION) {
+            this.channel.close();
+            throw new IOException(file + " is not a recovery journal");
+        }
+
+        Map<Long, Live> live = new LinkedHashMap<>();
+        this.position = scan(this.buffer, HEADER, this.buffer.capacity(), live);
+        // Unknown how much of an existing journal is still pending, the first check compacts it
+        this.compactedSize = 0;
+        long maxId = 0;
+        List<StoredExplosion> pending = new ArrayList<>(live.size());
+        for (Live explosion : live.values()) {
+            maxId = Math.max(maxId, explosion.id);
+            pending.add(new StoredExplosion(explosion.id, explosion.remaining()));
+        }
+        this.nextId = maxId + 1;
+        this.pending = Collections.unmodifiableList(pending);
+    }
+
+    @Override
+    public synchronized @NotNull List<StoredExplosion> pending() {
+        List<StoredExplosion> pending = this.pending;
+        this.pending = List.of();
+        return pending;
+    }
+
+    /**
+     * @throws IllegalStateException If the journal is full even after compacting it
+     */
+    @Override
+    public long store(@NotNull RecordedExplosion explosion) {
+        byte[] snapshot = ExplosionCodec.encode(explosion, new Palette(), false);
+        synchronized (this) {
+            long id = this.nextId;
+            if (!append(explosionRecord(id, snapshot))) {
+                throw new IllegalStateException("The journal " + this.file + " is full");
+            }
+            this.nextId++;
+            return id;
+        }
+    }
+
+    @Override
+    public synchronized void restored(long id, @NotNull BlockPos position) {
+        this.marker.clear();
+        this.marker.put(BLOCK_RESTORED).putLong(id).putInt(position.x()).putInt(position.y()).putInt(position.z());
+        append(this.marker.flip());
+    }
+
+    @Override
+    public synchronized void discard(long id) {
+        this.marker.clear();
+        this.marker.put(DISCARDED).putLong(id);
+        append(this.marker.flip());
+    }
+
+    /**
+     * Reads the whole journal, the flat file has no index
+     */
+    @Override
+    public @NotNull List<StoredExplosion> pendingIn(@NotNull String world, int chunkX, int chunkZ) throws IOException {
+        List<StoredExplosion> explosions = new ArrayList<>();
+        for (Live explosion : live().values()) {
+            BlockPos origin = explosion.explosion.origin();
+            if (origin.world().equals(world) && origin.chunkX() == chunkX && origin.chunkZ() == chunkZ) {
+                explosions.add(new StoredExplosion(explosion.id, explosion.remaining()));
+            }
+        }
+        return explosions;
+    }
+
+    @Override
+    public int prune(long before) throws IOException {
+        int pruned = 0;
+        for (Live explosion : live().values()) {
+            if (explosion.explosion.timestamp() < before) {
+                discard(explosion.id);
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+    @Override
+    public void maintain() throws IOException {
+        compactIfNeeded();
+        flush();
+    }
+
+    /**
+     * @return The size of the journal in bytes
+     */
+    public synchronized int size() {
+        return this.position;
+    }
+
+    /**
+     * Compacts the journal if it grew to more than twice its size after the last compaction
+     *
+     * @return true if the journal was compacted
+     * @throws IOException If the compacted journal can't be written
+     */
+    public boolean compactIfNeeded() throws IOException {
+        synchronized (this) {
+            if (this.position < COMPACT_MIN_SIZE || this.position < this.compactedSize * 2) {
+                return false;
+            }
+        }
+        return compact();
+    }
+
+    /**
+     * Rewrites the journal with only the pending explosions.
+     * Appends are only blocked while the records written during the compaction are copied over.
+     * Compactions may run at the same time, each writes its own temporary file and only the first one to finish
+     * replaces the journal.
+     *
+     * @return false if another compaction replaced the journal first
+     * @throws IOException If the compacted journal can't be written, the current journal stays in use
+     */
+    public boolean compact() throws IOException {
+        int end;
+        int generation;
+        ByteBuffer view;
+        synchronized (this) {
+            end = this.position;
+            generation = this.generation;
+            view = this.buffer.duplicate();
+        }
+        Map<Long, Live> live = new LinkedHashMap<>();
+        scan(view, HEADER, end, live);
+
+        Path temp = Files.createTempFile(this.file.toAbsolutePath().getParent(), this.file.getFileName() + ".",
+                ".tmp");
+        FileChannel output = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            write(output, ByteBuffer.allocate(HEADER).putInt(MAGIC).putShort(VERSION).flip());
+            for (Live explosion : live.values()) {
+                byte[] snapshot = ExplosionCodec.encode(explosion.remaining(), new Palette(), false);
+                write(output, record(explosionRecord(explosion.id, snapshot)));
+            }
+
+            synchronized (this) {
+                if (this.generation != generation) {
+                    // The records after the end of this compaction are in a file that no longer exists
+                    return false;
+                }
+                // Markers for explosions that were dropped above are ignored when the journal is read
+                write(output, this.buffer.duplicate().limit(this.position).position(end));
+                output.force(true);
+                output.close();
+                try {
+                    Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException exception) {
+                    Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                this.channel.close();
+                this.channel = FileChannel.open(this.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                this.position = (int) this.channel.size();
+                this.compactedSize = this.position;
+                this.generation++;
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        Math.min(MAX_SIZE, this.position + (long) GROWTH));
+            }
+            return true;
+        } finally {
+            output.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Forces the written records to the disk
+     */
+    public synchronized void flush() {
+        this.buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.buffer.force();
+        this.channel.close();
+    }
+
+    private @NotNull Map<Long, Live> live() throws IOException {
+        int end;
+        ByteBuffer view;
+        synchronized (this) {
+            end = this.position;
+            view = this.buffer.duplicate();
+        }
+        Map<Long, Live> live = new LinkedHashMap<>();
+        scan(view, HEADER, end, live);
+        return live;
+    }
+
+    /**
+     * Called with the lock held. A full journal is compacted first, markers that still don't fit are dropped,
+     * their blocks are only restored once more after a crash.
+     *
+     * @return false if the record doesn't fit in the journal
+     */
+    private boolean append(@NotNull ByteBuffer body) {
+        int length = body.remaining();
+        if (this.position + 8L + length > MAX_SIZE) {
+            try {
+                compact();
+            } catch (IOException exception) {
+                throw new IllegalStateException("Failed to compact the full journal " + this.file, exception);
+            }
+            if (this.position + 8L + length > MAX_SIZE) {
+                return false;
+            }
+        }
+        if (this.position + 8 + length > this.buffer.capacity()) {
+            try {
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(MAX_SIZE,
+                        Math.max(this.buffer.capacity() * 2L, this.position + 8L + length + GROWTH)));
+            } catch (IOException exception) {
+                throw new IllegalStateException("Failed to grow the journal " + this.file, exception);
+            }
+        }
+        this.crc.reset();
+        this.crc.update(body.duplicate());
+        this.buffer.put(this.position + 8, body, body.position(), length);
+        this.buffer.putInt(this.position + 4, (int) this.crc.getValue());
+        this.buffer.putInt(this.position, length);
+        this.position += 8 + length;
+        return true;
+    }
+
+    private static @NotNull ByteBuffer explosionRecord(long id, byte @NotNull [] snapshot) {
+        return ByteBuffer.allocate(9 + snapshot.length).put(EXPLOSION).putLong(id).put(snapshot).flip();
+    }
+
+    private static @NotNull ByteBuffer record(@NotNull ByteBuffer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        return ByteBuffer.allocate(8 + body.remaining()).putInt(body.remaining()).putInt((int) crc.getValue())
+                .put(body).flip();
+    }
+
+    private static void write(@NotNull FileChannel channel, @NotNull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads the records between start and end
+     *
+     * @return The end of the last complete record
+     */
+    private static int scan(@NotNull ByteBuffer buffer, int start, int end, Map<Long, Live> live) throws IOException {
+        CRC32 crc = new CRC32();
+        int position = start;
+        while (position + 8 <= end) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + 8 + length > end) {
+                break;
+            }
+            ByteBuffer body = buffer.slice(position + 8, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+
+            byte type = body.get();
+            long id = body.getLong();
+            if (type == EXPLOSION) {
+                byte[] snapshot = new byte[body.remaining()];
+                body.get(snapshot);
+                live.put(id, new Live(id, ExplosionCodec.decode(snapshot, new Palette())));
+            } else if (type == BLOCK_RESTORED) {
+                Live explosion = live.get(id);
+                if (explosion != null) {
+                    explosion.restored.add(new BlockPos(explosion.explosion.origin().world(), body.getInt(),
+                            body.getInt(), body.getInt()));
+                    if (explosion.restored.size() >= explosion.explosion.blocks().size()) {
+                        live.remove(id);
+                    }
+                }
+            } else if (type == DISCARDED) {
+                live.remove(id);
+            }
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    private static final class Live {
+
+        private final long id;
+        private final RecordedExplosion explosion;
+        private final Set<BlockPos> restored = new HashSet<>();
+
+        private Live(long id, RecordedExplosion explosion) {
+            this.id = id;
+            this.explosion = explosion;
+        }
+
+        private @NotNull RecordedExplosion remaining() {
+            if (this.restored.isEmpty()) {
+                return this.explosion;
+            }
+            List<RecordedBlock> blocks = new ArrayList<>(this.explosion.blocks().size() - this.restored.size());
+            for (RecordedBlock block : this.explosion.blocks()) {
+                if (!this.restored.contains(block.position())) {
+                    blocks.add(block);
+                }
+            }
+            return new RecordedExplosion(this.explosion.timestamp(), this.explosion.origin(),
+                    this.explosion.entityType(), blocks);
+        }
+
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core.memory;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.TaskScheduler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler driven by a virtual tick clock instead of the server, so hours of recovery can be simulated in
+ * milliseconds. Nothing runs until the clock is advanced and all tasks run on the calling thread.
+ * <p>
+ * Tasks of the same tick run in the order they were scheduled. Positions are grouped into regions of
+ * {@code 1 << regionShift} chunks per axis, like Folia does. A position task scheduled from inside its own
+ * region runs inline, any other position task runs on the next tick, like a Bukkit or Folia region task
+ * scheduled from another thread. {@link #checkOwner(BlockPos)} lets a world verify that it is only touched
+ * by the owning region.
+ */
+public class VirtualScheduler implements TaskScheduler {
+
+    public static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final int regionShift;
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(Comparator.comparingLong(Task::due)
+            .thenComparingLong(Task::sequence));
+
+    private long currentTick = 0;
+    private long sequence = 0;
+    private @Nullable Region currentRegion = null;
+
+    private long executedTasks = 0;
+    private long taskNanos = 0;
+    private long totalNanos = 0;
+
+    /**
+     * Uses regions of 8x8 chunks
+     */
+    public VirtualScheduler() {
+        this(3);
+    }
+
+    /**
+     * @param regionShift The log2 of the chunks per region and axis
+     */
+    public VirtualScheduler(int regionShift) {
+        this.regionShift = regionShift;
+    }
+
+    @Override
+    public boolean runAt(BlockPos position, @NotNull Runnable task) {
+        Region region = region(position);
+        if (region.equals(this.currentRegion)) {
+            task.run();
+            return true;
+        }
+        schedule(new Task(this.currentTick + 1, this.sequence++, region, cancel -> task.run(), 0));
+        return true;
+    }
+
+    @Override
+    public boolean runsInline(BlockPos position) {
+        return region(position).equals(this.currentRegion);
+    }
+
+    @Override
+    public void runAtFixedRate(Consumer<Runnable> task, long delay, long period, TimeUnit unit) {
+        schedule(new Task(this.currentTick + Math.max(1, ticks(delay, unit)), this.sequence++, null, task,
+                Math.max(1, ticks(period, unit))));
+    }
+
+    /**
+     * Advances the clock by one tick and runs every task that is due
+     *
+     * @return The amount of tasks that ran
+     */
+    public int tick() {
+        long start = System.nanoTime();
+        this.currentTick++;
+        int executed = 0;
+        while (!this.queue.isEmpty() && this.queue.peek().due <= this.currentTick) {
+            Task task = this.queue.poll();
+            this.currentRegion = task.region;
+            long taskStart = System.nanoTime();
+            try {
+                task.task.accept(() -> task.cancelled = true);
+            } finally {
+                this.taskNanos += System.nanoTime() - taskStart;
+                this.currentRegion = null;
+            }
+            executed++;
+            if (task.period > 0 && !task.cancelled) {
+                task.due = this.currentTick + task.period;
+                schedule(task);
+            }
+        }
+        this.executedTasks += executed;
+        this.totalNanos += System.nanoTime() - start;
+        return executed;
+    }
+
+    /**
+     * Advances the clock by the given amount of ticks
+     *
+     * @param ticks The amount of ticks
+     */
+    public void advance(long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
+    /**
+     * Advances the clock by the given time, rounded up to whole ticks
+     *
+     * @param duration The time
+     * @param unit     The unit of the time
+     */
+    public void advance(long duration, @NotNull TimeUnit unit) {
+        advance(ticks(duration, unit));
+    }
+
+    /**
+     * Advances the clock until no task is scheduled anymore
+     *
+     * @param maxTicks The maximum amount of ticks to advance
+     * @return true if the scheduler is idle
+     */
+    public boolean runUntilIdle(long maxTicks) {
+        for (long i = 0; i < maxTicks && !this.queue.isEmpty(); i++) {
+            tick();
+        }
+        return this.queue.isEmpty();
+    }
+
+    /**
+     * @throws IllegalStateException If the running task does not own the position
+     */
+    public void checkOwner(BlockPos position) {
+        if (!region(position).equals(this.currentRegion)) {
+            throw new IllegalStateException(position + " was accessed from " + (this.currentRegion == null
+                    ? "outside of a region" : this.currentRegion));
+        }
+    }
+
+    /**
+     * @return The amount of ticks the clock was advanced by
+     */
+    public long currentTick() {
+        return this.currentTick;
+    }
+
+    public int pendingTasks() {
+        return this.queue.size();
+    }
+
+    public long executedTasks() {
+        return this.executedTasks;
+    }
+
+    /**
+     * @return The time spent in {@link #tick()} without the time of the tasks
+     */
+    public long overheadNanos() {
+        return this.totalNanos - this.taskNanos;
+    }
+
+    private void schedule(Task task) {
+        this.queue.add(task);
+    }
+
+    private @NotNull Region region(@NotNull BlockPos position) {
+        return new Region(position.world(), position.chunkX() >> this.regionShift,
+                position.chunkZ() >> this.regionShift);
+    }
+
+    private static long ticks(long duration, @NotNull TimeUnit unit) {
+        return (unit.toNanos(duration) + TICK_NANOS - 1) / TICK_NANOS;
+    }
+
+    private record Region(String world, int x, int z) {
+    }
+
+    private static final class Task {
+
+        private long due;
+        private final long sequence;
+        private final Region region;
+        private final Consumer<Runnable> task;
+        private final long period;
+        private boolean cancelled = false;
+
+        private Task(long due, long sequence, Region region, Consumer<Runnable> task, long period) {
+            this.due = due;
+            this.sequence = sequence;
+            this.region = region;
+            this.task = task;
+            this.period = period;
+        }
+
+        private long due() {
+            return this.due;
+        }
+
+        private long sequence() {
+            return this.sequence;
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core.persistence;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Storage of the pending explosions, so they survive restarts and crashes.
+ * All methods may be called from any thread. Writes must be cheap for the caller, a backend is free to apply them
+ * in the background as long as they are durable after {@link #close()}.
+ */
+public interface PersistenceBackend extends Closeable {
+
+    /**
+     * Hands out the explosions that were pending when the backend was opened, in capture order.
+     * The backend doesn't keep them, later calls return an empty list.
+     *
+     * @return The explosions without their restored blocks
+     * @throws IOException If the backend can't be read
+     */
+    @NotNull List<StoredExplosion> pending() throws IOException;
+
+    /**
+     * Adds a captured explosion
+     *
+     * @param explosion The explosion
+     * @return The id the restored blocks of the explosion are reported with
+     */
+    long store(@NotNull RecordedExplosion explosion);
+
+    /**
+     * Marks a block of an explosion as restored, an explosion is removed once all of its blocks are restored
+     *
+     * @param id       The id of the explosion
+     * @param position The position of the block
+     */
+    void restored(long id, @NotNull BlockPos position);
+
+    /**
+     * Drops an explosion whose remaining blocks will never be restored
+     *
+     * @param id The id of the explosion
+     */
+    void discard(long id);
+
+    /**
+     * Finds the pending explosions that originated in a chunk
+     *
+     * @param world  The name of the world
+     * @param chunkX The x coordinate of the chunk
+     * @param chunkZ The z coordinate of the chunk
+     * @return The explosions without their restored blocks
+     * @throws IOException If the backend can't be read
+     */
+    @NotNull List<StoredExplosion> pendingIn(@NotNull String world, int chunkX, int chunkZ) throws IOException;
+
+    /**
+     * Drops all explosions that were captured before the given time
+     *
+     * @param before The {@link System#currentTimeMillis()} to compare the capture time with
+     * @return The amount of dropped explosions
+     * @throws IOException If the backend can't be written
+     */
+    int prune(long before) throws IOException;
+
+    /**
+     * Called periodically off the server thread to compact or checkpoint the storage
+     *
+     * @throws IOException If the storage can't be written
+     */
+    void maintain() throws IOException;
+
+}
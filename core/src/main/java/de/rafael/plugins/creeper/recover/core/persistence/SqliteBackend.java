@@ -0,0 +1,472 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core.persistence;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.codec.ExplosionCodec;
+import de.rafael.plugins.creeper.recover.core.codec.Palette;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link PersistenceBackend} on an embedded SQLite database, using the driver that ships with the server.
+ * <p>
+ * The database runs in WAL mode and is only touched by a writer thread. Writes are queued and applied in batches of
+ * one transaction each, reads are queued behind them and wait for their result, so they see every earlier write.
+ * Explosions are indexed by the world and chunk of their origin, only their ids and remaining block counts are kept
+ * on the heap.
+ */
+public class SqliteBackend implements PersistenceBackend {
+
+    private static final int MAX_BATCH = 4096;
+    private static final int QUERY_TIMEOUT = 30;
+
+    private final Connection connection;
+    private final BlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final AtomicBoolean pendingTaken = new AtomicBoolean();
+    // Explosions below this id were stored before the backend was opened
+    private final long openedId;
+    private final AtomicLong nextId;
+    // Blocks that still have to be restored per explosion, used to delete finished explosions
+    private final Map<Long, AtomicInteger> remaining = new ConcurrentHashMap<>();
+
+    private volatile boolean closed = false;
+
+    /**
+     * Opens or creates the database and counts the remaining blocks of the pending explosions
+     *
+     * @param file The database file
+     * @throws IOException If the driver is missing or the database can't be opened
+     */
+    public SqliteBackend(@NotNull Path file) throws IOException {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Class.forName("org.sqlite.JDBC");
+            this.connection = DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+            try (Statement statement = this.connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                statement.execute("CREATE TABLE IF NOT EXISTS explosions (id INTEGER PRIMARY KEY, world TEXT NOT NULL, "
+                        + "chunk_x INTEGER NOT NULL, chunk_z INTEGER NOT NULL, created_at INTEGER NOT NULL, "
+                        + "blocks INTEGER NOT NULL, snapshot BLOB NOT NULL)");
+                statement.execute("CREATE INDEX IF NOT EXISTS explosions_chunk ON explosions (world, chunk_x, chunk_z)");
+                statement.execute("CREATE INDEX IF NOT EXISTS explosions_created ON explosions (created_at)");
+                statement.execute("CREATE TABLE IF NOT EXISTS restored (explosion INTEGER NOT NULL, x INTEGER NOT NULL, "
+                        + "y INTEGER NOT NULL, z INTEGER NOT NULL, PRIMARY KEY (explosion, x, y, z)) WITHOUT ROWID");
+            }
+            this.connection.setAutoCommit(false);
+
+            long maxId = 0;
+            try (Statement statement = this.connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT id, blocks - (SELECT COUNT(*) FROM restored "
+                         + "WHERE explosion = explosions.id) FROM explosions")) {
+                while (result.next()) {
+                    maxId = Math.max(maxId, result.getLong(1));
+                    this.remaining.put(result.getLong(1), new AtomicInteger(result.getInt(2)));
+                }
+            }
+            this.connection.commit();
+            this.openedId = maxId + 1;
+            this.nextId = new AtomicLong(this.openedId);
+        } catch (ClassNotFoundException exception) {
+            throw new IOException("The SQLite driver is not available", exception);
+        } catch (SQLException exception) {
+            throw new IOException("Failed to open the database " + file, exception);
+        }
+
+        this.writer = new Thread(this::run, "CreeperRecover-SQLite");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public @NotNull List<StoredExplosion> pending() throws IOException {
+        if (!this.pendingTaken.compareAndSet(false, true)) {
+            return List.of();
+        }
+        return query(() -> {
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "SELECT id, snapshot FROM explosions WHERE id < ? ORDER BY id")) {
+                statement.setLong(1, this.openedId);
+                return read(statement);
+            }
+        });
+    }
+
+    @Override
+    public long store(@NotNull RecordedExplosion explosion) {
+        long id = this.nextId.getAndIncrement();
+        this.remaining.put(id, new AtomicInteger(explosion.blocks().size()));
+        byte[] snapshot = ExplosionCodec.encode(explosion, new Palette(), false);
+        enqueue(new Insert(id, explosion.origin(), explosion.timestamp(), explosion.blocks().size(), snapshot));
+        return id;
+    }
+
+    @Override
+    public void restored(long id, @NotNull BlockPos position) {
+        AtomicInteger remaining = this.remaining.get(id);
+        if (remaining == null) {
+            return;
+        }
+        if (remaining.decrementAndGet() <= 0) {
+            this.remaining.remove(id);
+            enqueue(new Delete(id));
+        } else {
+            enqueue(new Restored(id, position));
+        }
+    }
+
+    @Override
+    public void discard(long id) {
+        this.remaining.remove(id);
+        enqueue(new Delete(id));
+    }
+
+    @Override
+    public @NotNull List<StoredExplosion> pendingIn(@NotNull String world, int chunkX, int chunkZ) throws IOException {
+        return query(() -> {
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "SELECT id, snapshot FROM explosions WHERE world = ? AND chunk_x = ? AND chunk_z = ? ORDER BY id")) {
+                statement.setString(1, world);
+                statement.setInt(2, chunkX);
+                statement.setInt(3, chunkZ);
+                return read(statement);
+            }
+        });
+    }
+
+    @Override
+    public int prune(long before) throws IOException {
+        return query(() -> {
+            List<Long> ids = new ArrayList<>();
+            try (PreparedStatement statement = this.connection.prepareStatement(
+                    "SELECT id FROM explosions WHERE created_at < ?")) {
+                statement.setLong(1, before);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        ids.add(result.getLong(1));
+                    }
+                }
+            }
+            delete(ids);
+            this.connection.commit();
+            ids.forEach(this.remaining::remove);
+            return ids.size();
+        });
+    }
+
+    @Override
+    public void maintain() throws IOException {
+        query(() -> {
+            try (Statement statement = this.connection.createStatement()) {
+                statement.execute("PRAGMA wal_checkpoint(PASSIVE)");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Applies all queued writes and closes the database
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (this.connection.isClosed()) {
+                return;
+            }
+            this.closed = true;
+            this.queue.add(new Stop());
+            this.writer.join();
+            this.connection.close();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException exception) {
+            throw new IOException("Failed to close the database", exception);
+        }
+    }
+
+    private void enqueue(@NotNull Operation operation) {
+        if (!this.closed) {
+            this.queue.add(operation);
+        }
+    }
+
+    private <T> T query(@NotNull SqlFunction<T> function) throws IOException {
+        if (this.closed) {
+            throw new IOException("The database is closed");
+        }
+        Query<T> query = new Query<>(function, new CompletableFuture<>());
+        this.queue.add(query);
+        try {
+            return query.result.get(QUERY_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the database", exception);
+        } catch (ExecutionException exception) {
+            throw new IOException("Database query failed", exception.getCause());
+        } catch (TimeoutException exception) {
+            throw new IOException("Timed out waiting for the database", exception);
+        }
+    }
+
+    private void run() {
+        List<Operation> batch = new ArrayList<>(MAX_BATCH);
+        try (PreparedStatement insert = this.connection.prepareStatement("INSERT OR REPLACE INTO explosions "
+                + "(id, world, chunk_x, chunk_z, created_at, blocks, snapshot) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement restored = this.connection.prepareStatement(
+                     "INSERT OR IGNORE INTO restored (explosion, x, y, z) VALUES (?, ?, ?, ?)")) {
+            boolean stop = false;
+            while (!stop) {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch, MAX_BATCH - 1);
+                try {
+                    stop = apply(batch, insert, restored);
+                } catch (SQLException exception) {
+                    // Only this batch is lost, the writer carries on with the next one
+                    exception.printStackTrace();
+                    rollback(insert, restored);
+                    for (Operation operation : batch) {
+                        if (operation instanceof Query<?> query) {
+                            query.result.completeExceptionally(exception);
+                        } else if (operation instanceof Stop) {
+                            stop = true;
+                        }
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        } finally {
+            // Nothing drains the queue anymore, fail the queries that are still waiting
+            this.closed = true;
+            batch.addAll(this.queue);
+            this.queue.clear();
+            for (Operation operation : batch) {
+                if (operation instanceof Query<?> query) {
+                    query.result.completeExceptionally(new IOException("The database writer stopped"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a batch of operations in one transaction
+     *
+     * @return true if the batch contained the stop operation
+     */
+    private boolean apply(@NotNull List<Operation> batch, @NotNull PreparedStatement insert,
+                          @NotNull PreparedStatement restored) throws SQLException {
+        List<Long> deleted = new ArrayList<>();
+        boolean stop = false;
+        for (Operation operation : batch) {
+            if (operation instanceof Insert write) {
+                insert.setLong(1, write.id);
+                insert.setString(2, write.origin.world());
+                insert.setInt(3, write.origin.chunkX());
+                insert.setInt(4, write.origin.chunkZ());
+                insert.setLong(5, write.createdAt);
+                insert.setInt(6, write.blocks);
+                insert.setBytes(7, write.snapshot);
+                insert.addBatch();
+            } else if (operation instanceof Restored write) {
+                restored.setLong(1, write.id);
+                restored.setInt(2, write.position.x());
+                restored.setInt(3, write.position.y());
+                restored.setInt(4, write.position.z());
+                restored.addBatch();
+            } else if (operation instanceof Delete write) {
+                deleted.add(write.id);
+            } else if (operation instanceof Query<?> query) {
+                // Writes queued before the query have to be visible to it
+                flush(insert, restored, deleted);
+                query.run();
+            } else if (operation instanceof Stop) {
+                stop = true;
+            }
+        }
+        flush(insert, restored, deleted);
+        return stop;
+    }
+
+    private void rollback(@NotNull PreparedStatement insert, @NotNull PreparedStatement restored) {
+        try {
+            insert.clearBatch();
+            restored.clearBatch();
+            this.connection.rollback();
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    private void flush(@NotNull PreparedStatement insert, @NotNull PreparedStatement restored,
+                       @NotNull List<Long> deleted) throws SQLException {
+        insert.executeBatch();
+        restored.executeBatch();
+        delete(deleted);
+        deleted.clear();
+        this.connection.commit();
+    }
+
+    private void delete(@NotNull List<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement explosions = this.connection.prepareStatement("DELETE FROM explosions WHERE id = ?");
+             PreparedStatement restored = this.connection.prepareStatement("DELETE FROM restored WHERE explosion = ?")) {
+            for (long id : ids) {
+                explosions.setLong(1, id);
+                explosions.addBatch();
+                restored.setLong(1, id);
+                restored.addBatch();
+            }
+            explosions.executeBatch();
+            restored.executeBatch();
+        }
+    }
+
+    private @NotNull List<StoredExplosion> read(@NotNull PreparedStatement statement) throws SQLException {
+        List<StoredExplosion> explosions = new ArrayList<>();
+        try (ResultSet result = statement.executeQuery()) {
+            while (result.next()) {
+                long id = result.getLong(1);
+                try {
+                    explosions.add(new StoredExplosion(id, ExplosionCodec.decode(result.getBytes(2), new Palette())));
+                } catch (IOException exception) {
+                    throw new SQLException("Explosion " + id + " is damaged", exception);
+                }
+            }
+        }
+        if (explosions.isEmpty()) {
+            return explosions;
+        }
+
+        Map<Long, Set<BlockPos>> restored = new HashMap<>();
+        try (PreparedStatement select = this.connection.prepareStatement(
+                "SELECT x, y, z FROM restored WHERE explosion = ?")) {
+            for (StoredExplosion explosion : explosions) {
+                select.setLong(1, explosion.id());
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        restored.computeIfAbsent(explosion.id(), id -> new HashSet<>()).add(new BlockPos(
+                                explosion.explosion().origin().world(), result.getInt(1), result.getInt(2),
+                                result.getInt(3)));
+                    }
+                }
+            }
+        }
+        List<StoredExplosion> remaining = new ArrayList<>(explosions.size());
+        for (StoredExplosion explosion : explosions) {
+            Set<BlockPos> positions = restored.get(explosion.id());
+            if (positions == null) {
+                remaining.add(explosion);
+                continue;
+            }
+            RecordedExplosion recorded = explosion.explosion();
+            List<RecordedBlock> blocks = new ArrayList<>(recorded.blocks().size() - positions.size());
+            for (RecordedBlock block : recorded.blocks()) {
+                if (!positions.contains(block.position())) {
+                    blocks.add(block);
+                }
+            }
+            remaining.add(new StoredExplosion(explosion.id(), new RecordedExplosion(recorded.timestamp(),
+                    recorded.origin(), recorded.entityType(), blocks)));
+        }
+        return remaining;
+    }
+
+    @FunctionalInterface
+    private interface SqlFunction<T> {
+
+        T apply() throws SQLException;
+
+    }
+
+    private sealed interface Operation permits Insert, Restored, Delete, Query, Stop {
+    }
+
+    private record Insert(long id, BlockPos origin, long createdAt, int blocks, byte[] snapshot) implements Operation {
+    }
+
+    private record Restored(long id, BlockPos position) implements Operation {
+    }
+
+    private record Delete(long id) implements Operation {
+    }
+
+    private record Stop() implements Operation {
+    }
+
+    private record Query<T>(SqlFunction<T> function, CompletableFuture<T> result) implements Operation {
+
+        private void run() {
+            try {
+                this.result.complete(this.function.apply());
+            } catch (Throwable throwable) {
+                this.result.completeExceptionally(throwable);
+            }
+        }
+
+    }
+
+}
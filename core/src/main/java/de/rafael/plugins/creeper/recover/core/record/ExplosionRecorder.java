@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core.record;
+
+import de.rafael.plugins.creeper.recover.core.codec.ExplosionCodec;
+import de.rafael.plugins.creeper.recover.core.codec.Palette;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends captured explosions to a recording file.
+ * Writing happens on a background thread, so {@link #record(RecordedExplosion)} can be called from the server thread.
+ * <p>
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, followed by the length and the compressed
+ * {@link ExplosionCodec} snapshot of every explosion. All snapshots share one {@link Palette}.
+ */
+public class ExplosionRecorder implements Closeable {
+
+    static final int MAGIC = 0x43524543;
+    static final short VERSION = 1;
+
+    private final Path file;
+    private final DataOutputStream output;
+    // Only used by the writer thread
+    private final Palette palette = new Palette();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CreeperRecover-Recorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Creates a new recording
+     *
+     * @param file The recording file
+     * @throws IOException If the file can't be created or already exists
+     */
+    public ExplosionRecorder(@NotNull Path file) throws IOException {
+        this.file = file;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)));
+        this.output.writeInt(MAGIC);
+        this.output.writeShort(VERSION);
+        this.output.flush();
+    }
+
+    public Path file() {
+        return this.file;
+    }
+
+    /**
+     * Queues an explosion for writing
+     *
+     * @param explosion The explosion
+     */
+    public void record(@NotNull RecordedExplosion explosion) {
+        this.writer.execute(() -> {
+            try {
+                byte[] snapshot = ExplosionCodec.encode(explosion, this.palette, true);
+                this.output.writeInt(snapshot.length);
+                this.output.write(snapshot);
+                this.output.flush();
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Writes all queued explosions and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        this.writer.shutdown();
+        try {
+            if (!this.writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                this.writer.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        this.output.close();
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core.record;
+
+import de.rafael.plugins.creeper.recover.core.codec.ExplosionCodec;
+import de.rafael.plugins.creeper.recover.core.codec.Palette;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the explosions of a recording written by the {@link ExplosionRecorder}
+ */
+public class RecordingReader implements Closeable {
+
+    private final DataInputStream input;
+    private final Palette palette = new Palette();
+
+    /**
+     * @param file The recording file
+     * @throws IOException If the file can't be opened or is not a recording
+     */
+    public RecordingReader(@NotNull Path file) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        if (this.input.readInt() != ExplosionRecorder.MAGIC) {
+            this.input.close();
+            throw new IOException(file + " is not an explosion recording");
+        }
+        short version = this.input.readShort();
+        if (version != ExplosionRecorder.VERSION) {
+            this.input.close();
+            throw new IOException(file + " has the unsupported version " + version);
+        }
+    }
+
+    /**
+     * Reads all explosions of a recording
+     *
+     * @param file The recording file
+     * @return The explosions in recording order
+     * @throws IOException If the file can't be read
+     */
+    public static @NotNull List<RecordedExplosion> readAll(@NotNull Path file) throws IOException {
+        List<RecordedExplosion> explosions = new ArrayList<>();
+        try (RecordingReader reader = new RecordingReader(file)) {
+            RecordedExplosion explosion;
+            while ((explosion = reader.next()) != null) {
+                explosions.add(explosion);
+            }
+        }
+        return explosions;
+    }
+
+    /**
+     * Reads the next explosion. A record that was cut off by a crash counts as the end of the recording.
+     *
+     * @return The explosion or null at the end of the recording
+     * @throws IOException If the file can't be read
+     */
+    public @Nullable RecordedExplosion next() throws IOException {
+        try {
+            byte[] snapshot = new byte[length(this.input.readInt())];
+            this.input.readFully(snapshot);
+            return ExplosionCodec.decode(snapshot, this.palette);
+        } catch (EOFException exception) {
+            return null;
+        }
+    }
+
+    private static int length(int length) throws IOException {
+        if (length < 0 || length > ExplosionCodec.MAX_SIZE) {
+            throw new IOException("Damaged recording, invalid length " + length);
+        }
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.input.close();
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core.tier;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only storage for spilled blocks, split into files of {@link #FILE_SIZE} bytes.
+ * A file is deleted as soon as none of its segments are used anymore, so space is reclaimed without compaction.
+ * The content is only valid while the server runs, the directory is cleared when it is opened.
+ */
+public class SpillFile implements Closeable {
+
+    public static final long FILE_SIZE = 64L * 1024 * 1024;
+
+    private final Path directory;
+    // Guarded by this
+    private final List<Generation> generations = new ArrayList<>();
+    private Generation current;
+    private int nextGeneration = 0;
+    private long size = 0;
+
+    /**
+     * @param directory The directory for the spill files, files left from a previous run are deleted
+     * @throws IOException If the directory can't be created or cleared
+     */
+    public SpillFile(@NotNull Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(".spill")).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * @param bytes The data
+     * @return The segment to read the data back
+     * @throws IOException If the data can't be written
+     */
+    public synchronized @NotNull Segment write(byte @NotNull [] bytes) throws IOException {
+        if (this.current == null || this.current.position + bytes.length > FILE_SIZE) {
+            roll();
+        }
+        Generation generation = this.current;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = generation.position;
+        while (buffer.hasRemaining()) {
+            generation.channel.write(buffer, position + buffer.position());
+        }
+        generation.position += bytes.length;
+        generation.segments++;
+        this.size += bytes.length;
+        return new Segment(generation, position, bytes.length);
+    }
+
+    /**
+     * Reads a segment, can be called concurrently
+     *
+     * @param segment The segment
+     * @return The data
+     * @throws IOException If the segment can't be read
+     */
+    public byte @NotNull [] read(@NotNull Segment segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(segment.length);
+        while (buffer.hasRemaining()) {
+            if (segment.generation.channel.read(buffer, segment.position + buffer.position()) < 0) {
+                throw new IOException("Spill file " + segment.generation.file + " is truncated");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Marks a segment as unused, deletes its file if it was the last used segment
+     *
+     * @param segment The segment
+     * @throws IOException If the file can't be deleted
+     */
+    public synchronized void free(@NotNull Segment segment) throws IOException {
+        Generation generation = segment.generation;
+        generation.segments--;
+        if (generation.segments > 0) {
+            return;
+        }
+        this.size -= generation.position;
+        if (generation == this.current) {
+            // Reuse the file from the start instead of rolling over
+            generation.channel.truncate(0);
+            generation.position = 0;
+        } else {
+            this.generations.remove(generation);
+            generation.channel.close();
+            Files.deleteIfExists(generation.file);
+        }
+    }
+
+    /**
+     * @return The bytes on disk, including unused segments that share a file with used ones
+     */
+    public synchronized long size() {
+        return this.size;
+    }
+
+    private void roll() throws IOException {
+        if (this.current != null && this.current.segments == 0) {
+            this.current.channel.truncate(0);
+            this.current.position = 0;
+            return;
+        }
+        Path file = this.directory.resolve("blocks-" + this.nextGeneration++ + ".spill");
+        this.current = new Generation(file, FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+        this.generations.add(this.current);
+    }
+
+    /**
+     * Closes and deletes all files
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (Generation generation : this.generations) {
+            generation.channel.close();
+            Files.deleteIfExists(generation.file);
+        }
+        this.generations.clear();
+        this.current = null;
+        this.size = 0;
+    }
+
+    /**
+     * A written block of data
+     */
+    public static final class Segment {
+
+        private final Generation generation;
+        private final long position;
+        private final int length;
+
+        private Segment(Generation generation, long position, int length) {
+            this.generation = generation;
+            this.position = position;
+            this.length = length;
+        }
+
+        public int length() {
+            return this.length;
+        }
+
+    }
+
+    private static final class Generation {
+
+        private final Path file;
+        private final FileChannel channel;
+        // Guarded by the spill file
+        private long position = 0;
+        private int segments = 0;
+
+        private Generation(Path file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+        }
+
+    }
+
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package de.rafael.plugins.creeper.recover.core.tier;
+
+import de.rafael.plugins.creeper.recover.core.ColdBlocks;
+import de.rafael.plugins.creeper.recover.core.PendingBlock;
+import de.rafael.plugins.creeper.recover.core.RecoveryJob;
+import de.rafael.plugins.creeper.recover.core.codec.ExplosionCodec;
+import de.rafael.plugins.creeper.recover.core.codec.Palette;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps the blocks of jobs that are due soon in the heap and spills the others to a {@link SpillFile}.
+ * <p>
+ * {@link #maintain()} has to be called periodically. It spills jobs that are not due within the spill threshold,
+ * then spills the jobs that are due last until the estimated heap use is below the ceiling, and finally loads cold
+ * jobs that are due within {@link #READ_AHEAD} as long as they fit below the ceiling. A cold job that is recovered
+ * before it was loaded is loaded on access.
+ *
+ * @param <B> The type of the captured block state
+ */
+public class TieredStore<B> implements Closeable {
+
+    public static final long READ_AHEAD = TimeUnit.SECONDS.toNanos(5);
+
+    private final SpillFile file;
+    private final BlockCodec<B> codec;
+    private final long memoryCeiling;
+    private final long spillAfter;
+
+    private final Map<RecoveryJob<B>, Entry<B>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder spills = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private volatile long residentBytes = 0;
+    // The bytes of the jobs while they are cold, by world
+    private final Map<String, LongAdder> coldBytes = new ConcurrentHashMap<>();
+    private volatile BiConsumer<RecoveryJob<B>, IOException> loadFailed = (job, exception) -> {
+    };
+
+    /**
+     * @param file          The file for the spilled blocks
+     * @param codec         Converts the blocks
+     * @param memoryCeiling The estimated heap bytes the pending blocks may use
+     * @param spillAfter    Jobs that are not due within this time are spilled
+     * @param unit          The unit of spillAfter
+     */
+    public TieredStore(@NotNull SpillFile file, @NotNull BlockCodec<B> codec, long memoryCeiling, long spillAfter,
+                       @NotNull TimeUnit unit) {
+        this.file = file;
+        this.codec = codec;
+        this.memoryCeiling = memoryCeiling;
+        this.spillAfter = unit.toNanos(spillAfter);
+    }
+
+    /**
+     * Starts tracking a submitted job
+     *
+     * @param job   The job
+     * @param dueAt The {@link System#nanoTime()} the first block is recovered at
+     */
+    public void track(@NotNull RecoveryJob<B> job, long dueAt) {
+        this.entries.put(job, new Entry<>(job, dueAt, this.sequence.getAndIncrement()));
+    }
+
+    /**
+     * Stops tracking a finished job
+     *
+     * @param job The job
+     */
+    public void untrack(@NotNull RecoveryJob<B> job) {
+        this.entries.remove(job);
+    }
+
+    /**
+     * Moves jobs between the heap and the spill file. A job that fails to spill stays in the heap, a job that fails
+     * to load is no longer tracked and handed to the {@link #loadFailed(BiConsumer)} handler.
+     *
+     * @throws IOException The first failure after all other jobs were maintained
+     */
+    public void maintain() throws IOException {
+        long now = System.nanoTime();
+        List<Entry<B>> entries = new ArrayList<>(this.entries.values());
+        entries.sort(Comparator.<Entry<B>>comparingLong(entry -> entry.dueAt)
+                .thenComparingLong(entry -> entry.sequence));
+
+        long resident = 0;
+        for (Entry<B> entry : entries) {
+            entry.spilledNow = false;
+            if (!entry.job.isCold()) {
+                resident += entry.bytes();
+            }
+        }
+
+        IOException failure = null;
+        try {
+            for (Entry<B> entry : entries) {
+                if (entry.dueAt - now > this.spillAfter && !entry.hot(now)) {
+                    try {
+                        resident -= spill(entry);
+                    } catch (UncheckedIOException exception) {
+                        failure = first(failure, exception.getCause());
+                    }
+                }
+            }
+            for (int i = entries.size() - 1; i >= 0 && resident > this.memoryCeiling; i--) {
+                Entry<B> entry = entries.get(i);
+                if (!entry.hot(now)) {
+                    try {
+                        resident -= spill(entry);
+                    } catch (UncheckedIOException exception) {
+                        failure = first(failure, exception.getCause());
+                    }
+                }
+            }
+            for (Entry<B> entry : entries) {
+                if (entry.dueAt - now > READ_AHEAD) {
+                    break;
+                }
+                if (!entry.job.isCold() || entry.spilledNow) {
+                    continue;
+                }
+                long bytes = entry.bytes();
+                if (resident + bytes > this.memoryCeiling) {
+                    break;
+                }
+                try {
+                    entry.job.load();
+                } catch (UncheckedIOException exception) {
+                    // Would fail again in every cycle and hold back the jobs due after it
+                    this.entries.remove(entry.job);
+                    this.loadFailed.accept(entry.job, exception.getCause());
+                    failure = first(failure, exception.getCause());
+                    continue;
+                }
+                resident += bytes;
+            }
+        } finally {
+            this.residentBytes = resident;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static @NotNull IOException first(@Nullable IOException failure, @NotNull IOException exception) {
+        return failure == null ? exception : failure;
+    }
+
+    /**
+     * @param loadFailed Receives the jobs the read-ahead of {@link #maintain()} failed to load, they can't be
+     *                   recovered anymore and have to be given up by the owner
+     */
+    public void loadFailed(@NotNull BiConsumer<RecoveryJob<B>, IOException> loadFailed) {
+        this.loadFailed = loadFailed;
+    }
+
+    /**
+     * Spills a tracked job right away
+     *
+     * @param job The job
+     * @return true if the job is cold afterwards
+     * @throws IOException If the job can't be written
+     */
+    public boolean spill(@NotNull RecoveryJob<B> job) throws IOException {
+        Entry<B> entry = this.entries.get(job);
+        if (entry == null) {
+            return false;
+        }
+        try {
+            spill(entry);
+            return job.isCold();
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    private long spill(@NotNull Entry<B> entry) {
+        long bytes = entry.bytes();
+        if (!entry.job.spill(blocks -> write(entry, blocks))) {
+            return 0;
+        }
+        entry.spilledNow = true;
+        this.spills.increment();
+        return bytes;
+    }
+
+    private @NotNull ColdBlocks<B> write(@NotNull Entry<B> entry, @NotNull List<PendingBlock<B>> blocks) {
+        List<RecordedBlock> recorded = new ArrayList<>(blocks.size());
+        for (PendingBlock<B> block : blocks) {
+            recorded.add(this.codec.encode(block));
+        }
+        byte[] bytes = ExplosionCodec.encode(new RecordedExplosion(0, entry.job.center(), "", recorded),
+                new Palette(), true);
+        try {
+            return new Spilled(entry, this.file.write(bytes), entry.bytes());
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * @return The estimated heap bytes of the pending blocks that are not spilled, as of the last maintenance
+     */
+    public long residentBytes() {
+        return this.residentBytes;
+    }
+
+    /**
+     * Unlike {@link #residentBytes()} this is updated with every spill and load
+     *
+     * @return The estimated heap bytes the cold jobs take once they are loaded, see {@link RecoveryJob#bytes()}
+     */
+    public long coldBytes() {
+        long bytes = 0;
+        for (LongAdder world : this.coldBytes.values()) {
+            bytes += world.sum();
+        }
+        return bytes;
+    }
+
+    /**
+     * @param worldName The name of the world
+     * @return The estimated heap bytes the cold jobs of the world take once they are loaded
+     */
+    public long coldBytes(@NotNull String worldName) {
+        LongAdder bytes = this.coldBytes.get(worldName);
+        return bytes == null ? 0 : bytes.sum();
+    }
+
+    /**
+     * @return The bytes used by the spill file
+     */
+    public long spilledBytes() {
+        return this.file.size();
+    }
+
+    public long coldJobs() {
+        return this.entries.values().stream().filter(entry -> entry.job.isCold()).count();
+    }
+
+    /**
+     * @return How often a job was spilled since the store was created
+     */
+    public long spills() {
+        return this.spills.sum();
+    }
+
+    /**
+     * @return How often a job was loaded since the store was created, including read-ahead
+     */
+    public long loads() {
+        return this.loads.sum();
+    }
+
+    /**
+     * Deletes the spill file, jobs that are still cold can't be loaded anymore
+     */
+    @Override
+    public void close() throws IOException {
+        this.entries.clear();
+        this.file.close();
+    }
+
+    private static final class Entry<B> {
+
+        private final RecoveryJob<B> job;
+        private final long dueAt;
+        private final long sequence;
+        // Only used by the maintenance
+        private boolean spilledNow = false;
+        private volatile long loadedAt = Long.MIN_VALUE / 2;
+
+        private Entry(RecoveryJob<B> job, long dueAt, long sequence) {
+            this.job = job;
+            this.dueAt = dueAt;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Jobs that were loaded recently are being recovered, spilling them would only load them again
+         */
+        private boolean hot(long now) {
+            return now - this.loadedAt <= READ_AHEAD;
+        }
+
+        private long bytes() {
+            return this.job.bytes();
+        }
+
+    }
+
+    private final class Spilled implements ColdBlocks<B> {
+
+        private final Entry<B> entry;
+        private final SpillFile.Segment segment;
+        private final LongAdder coldBytes;
+        private final long bytes;
+
+        private Spilled(Entry<B> entry, SpillFile.Segment segment, long bytes) {
+            this.entry = entry;
+            this.segment = segment;
+            this.bytes = bytes;
+            // The bytes of a cold job don't change, it is loaded before blocks are polled
+            this.coldBytes = TieredStore.this.coldBytes.computeIfAbsent(entry.job.center().world(),
+                    name -> new LongAdder());
+            this.coldBytes.add(bytes);
+        }
+
+        @Override
+        public @NotNull List<PendingBlock<B>> load() {
+            try {
+                RecordedExplosion recorded = ExplosionCodec.decode(file.read(this.segment), new Palette());
+                List<PendingBlock<B>> blocks = new ArrayList<>(recorded.blocks().size());
+                for (RecordedBlock block : recorded.blocks()) {
+                    blocks.add(codec.decode(block));
+                }
+                loads.increment();
+                this.entry.loadedAt = System.nanoTime();
+                return blocks;
+            } catch (IOException exception) {
+                throw new UncheckedIOException("Failed to load the blocks of the explosion at "
+                        + this.entry.job.center(), exception);
+            }
+        }
+
+        @Override
+        public void release() {
+            this.coldBytes.add(-this.bytes);
+            try {
+                file.free(this.segment);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.rafael.plugins.creeper.recover.core;
+
+import de.rafael.plugins.creeper.recover.core.memory.InMemoryWorld;
+import de.rafael.plugins.creeper.recover.core.memory.VirtualScheduler;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.tier.BlockCodec;
+import de.rafael.plugins.creeper.recover.core.tier.SpillFile;
+import de.rafael.plugins.creeper.recover.core.tier.TieredStore;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecoveryEngineTest {
+
+    private static final BlockPos CENTER = new BlockPos("world", 0, 64, 0);
+
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+    private final List<Long> restoredAt = new ArrayList<>();
+    private final List<BlockPos> restoredOrder = new ArrayList<>();
+    private final List<RecoveryJob<String>> finished = new ArrayList<>();
+    private final List<RecoveryJob<String>> discarded = new ArrayList<>();
+    // Positions whose chunks are not loaded
+    private final Set<BlockPos> unloaded = new HashSet<>();
+    private boolean watched = true;
+
+    @TempDir
+    Path directory;
+
+    private TestWorld world;
+    private RecoveryEngine<String> engine;
+
+    @BeforeEach
+    void setUp() {
+        this.world = new TestWorld();
+        this.engine = new RecoveryEngine<>(this.world, this.scheduler, new RecoveryListener<>() {
+            @Override
+            public void restored(RecoveryJob<String> job, PendingBlock<String> block) {
+                restoredAt.add(scheduler.currentTick());
+                restoredOrder.add(block.position());
+            }
+
+            @Override
+            public void finished(RecoveryJob<String> job) {
+                finished.add(job);
+            }
+
+            @Override
+            public void discarded(RecoveryJob<String> job, Exception cause) {
+                discarded.add(job);
+            }
+        }, () -> 0);
+    }
+
+    @Test
+    void recoversFarthestBlockFirstAtThePeriod() {
+        RecoveryJob<String> job = job(CENTER, 5);
+        this.engine.submit(job, 1000, 100, TimeUnit.MILLISECONDS);
+        for (PendingBlock<String> block : job.pending()) {
+            assertTrue(this.engine.isSuppressed(block.position()));
+        }
+
+        this.scheduler.advance(20);
+        assertTrue(this.restoredAt.isEmpty());
+        assertTrue(this.scheduler.runUntilIdle(1000));
+
+        // One block every two ticks after a delay of twenty, placed on the tick after the engine polled it
+        assertEquals(List.of(21L, 23L, 25L, 27L, 29L), this.restoredAt);
+        assertEquals(List.of(at(5), at(4), at(3), at(2), at(1)), this.restoredOrder);
+        assertEquals("block 3", this.world.get(at(3)));
+        assertFalse(this.engine.hasSuppressed());
+        assertEquals(List.of(job), this.finished);
+        assertEquals(0, this.engine.pendingJobs());
+        assertEquals(0, this.engine.pendingBlocks());
+    }
+
+    @Test
+    void restoresUnwatchedJobsInOneBatch() {
+        this.watched = false;
+        this.engine.submit(job(CENTER, 50), 1, 1, TimeUnit.SECONDS);
+
+        this.scheduler.advance(21);
+        assertEquals(50, this.world.size());
+        assertEquals(1, this.finished.size());
+        assertFalse(this.engine.hasSuppressed());
+    }
+
+    @Test
+    void recoversTheOldestJobInstantly() {
+        RecoveryJob<String> oldest = job(CENTER, 10);
+        RecoveryJob<String> newest = job(new BlockPos("world", 1000, 64, 1000), 10);
+        this.engine.submit(oldest, 1, 1, TimeUnit.MINUTES);
+        this.engine.submit(newest, 1, 1, TimeUnit.MINUTES);
+
+        int recovered = this.engine.recoverOldest(null).join();
+        assertEquals(10, recovered);
+        assertEquals(List.of(newest), this.engine.jobs());
+        // Fully polled, so it no longer counts against the admission limits
+        assertEquals(1, this.engine.pendingJobs());
+        // Placed by the region on its next tick, the job finishes with its last placement
+        assertEquals(0, this.world.size());
+        assertTrue(this.finished.isEmpty());
+        this.scheduler.tick();
+        assertEquals(10, this.world.size());
+        assertEquals(List.of(oldest), this.finished);
+        assertEquals(10, this.engine.pendingBlocks());
+    }
+
+    @Test
+    void pauseHoldsTheRecovery() {
+        this.engine.paused(true);
+        this.engine.submit(job(CENTER, 3), 0, 1, TimeUnit.SECONDS);
+
+        this.scheduler.advance(10, TimeUnit.SECONDS);
+        assertEquals(0, this.world.size());
+        this.engine.paused(false);
+        this.scheduler.advance(3, TimeUnit.SECONDS);
+        assertEquals(3, this.world.size());
+    }
+
+    @Test
+    void parksBlocksOfUnloadedChunks() {
+        BlockPos far = new BlockPos("world", 64, 64, 0);
+        this.unloaded.add(far);
+        List<PendingBlock<String>> blocks = new ArrayList<>(job(CENTER, 3).pending());
+        blocks.add(new PendingBlock<>(far, "far"));
+        RecoveryJob<String> job = new RecoveryJob<>(CENTER, blocks);
+        this.engine.submit(job, 0, 1, TimeUnit.SECONDS);
+
+        assertTrue(this.scheduler.runUntilIdle(1000));
+        assertEquals(3, this.world.size());
+        assertEquals(1, this.engine.parkedBlocks());
+        assertTrue(this.engine.isSuppressed(far));
+        // The parked block keeps the job open, it is no longer pending
+        assertTrue(this.finished.isEmpty());
+        assertEquals(0, this.engine.pendingJobs());
+
+        this.unloaded.clear();
+        assertEquals(1, this.engine.chunkLoaded("world", far.chunkX(), far.chunkZ()));
+        this.scheduler.tick();
+        assertEquals("far", this.world.get(far));
+        assertEquals(0, this.engine.parkedBlocks());
+        assertFalse(this.engine.hasSuppressed());
+        assertEquals(List.of(job), this.finished);
+    }
+
+    @Test
+    void parksBlocksWhoseChunkUnloadsBeforeTheirPlacement() {
+        RecoveryJob<String> job = job(CENTER, 3);
+        this.engine.submit(job, 1, 1, TimeUnit.MINUTES);
+        int recovered = this.engine.recoverOldest(null).join();
+        assertEquals(3, recovered);
+
+        this.unloaded.add(CENTER);
+        this.scheduler.tick();
+        assertEquals(0, this.world.size());
+        assertEquals(3, this.engine.parkedBlocks());
+        assertTrue(this.finished.isEmpty());
+
+        this.unloaded.clear();
+        assertEquals(3, this.engine.chunkLoaded("world", CENTER.chunkX(), CENTER.chunkZ()));
+        this.scheduler.tick();
+        assertEquals(3, this.world.size());
+        assertEquals(List.of(job), this.finished);
+    }
+
+    @Test
+    void byteLimitsCountResidentBlocksAndTheNewExplosion() throws IOException {
+        AdmissionLimits limits = new AdmissionLimits(0, 0, 1000, 0, 0, 1000);
+        try (TieredStore<String> store = store(false)) {
+            this.engine.tieredStore(store);
+            RecoveryJob<String> job = new RecoveryJob<>(CENTER, job(CENTER, 5).pending(), block -> 100);
+            this.engine.submit(job, 1, 1, TimeUnit.MINUTES);
+            assertNull(limits.exceeded(this.engine, "world", 5, 500));
+            assertEquals(AdmissionLimits.Limit.BYTES, limits.exceeded(this.engine, "world", 6, 600));
+
+            // Spilled blocks don't take heap until they are due
+            assertTrue(store.spill(job));
+            assertNull(limits.exceeded(this.engine, "world", 6, 600));
+            job.load();
+            assertEquals(AdmissionLimits.Limit.BYTES, limits.exceeded(this.engine, "world", 6, 600));
+        }
+    }
+
+    @Test
+    void discardsJobsTheReadAheadCantLoad() throws IOException {
+        try (TieredStore<String> store = store(true)) {
+            this.engine.tieredStore(store);
+            RecoveryJob<String> broken = job(CENTER, 5);
+            this.engine.submit(broken, 1, 1, TimeUnit.SECONDS);
+            this.engine.submit(job(new BlockPos("world", 1000, 64, 0), 5), 2, 1, TimeUnit.SECONDS);
+            assertTrue(store.spill(broken));
+
+            assertThrows(IOException.class, store::maintain);
+            assertEquals(List.of(broken), this.discarded);
+            assertEquals(1, this.engine.pendingJobs());
+            assertEquals(5, this.engine.pendingBlocks());
+            for (PendingBlock<String> block : job(CENTER, 5).pending()) {
+                assertFalse(this.engine.isSuppressed(block.position()));
+            }
+
+            // Only the broken job is given up
+            assertTrue(this.scheduler.runUntilIdle(1000));
+            assertEquals(5, this.world.size());
+            assertEquals(1, this.finished.size());
+            assertFalse(this.engine.hasSuppressed());
+        }
+    }
+
+    @Test
+    void discardsJobsThatFailToLoadOnAccess() throws IOException {
+        try (TieredStore<String> store = store(true)) {
+            this.engine.tieredStore(store);
+            RecoveryJob<String> broken = job(CENTER, 5);
+            this.engine.submit(broken, 1, 1, TimeUnit.SECONDS);
+            assertTrue(store.spill(broken));
+
+            assertTrue(this.scheduler.runUntilIdle(1000));
+            assertEquals(List.of(broken), this.discarded);
+            assertTrue(this.finished.isEmpty());
+            assertEquals(0, this.world.size());
+            assertEquals(0, this.engine.pendingJobs());
+            assertFalse(this.engine.hasSuppressed());
+        }
+    }
+
+    /**
+     * @param broken Whether the spilled blocks can't be decoded anymore
+     */
+    private TieredStore<String> store(boolean broken) throws IOException {
+        return new TieredStore<>(new SpillFile(this.directory), new BlockCodec<>() {
+            @Override
+            public @NotNull RecordedBlock encode(@NotNull PendingBlock<String> block) {
+                return new RecordedBlock(block.position(), block.block(), new byte[0]);
+            }
+
+            @Override
+            public @NotNull PendingBlock<String> decode(@NotNull RecordedBlock block) throws IOException {
+                if (broken) {
+                    throw new IOException("Broken block");
+                }
+                return new PendingBlock<>(block.position(), block.blockData());
+            }
+        }, Long.MAX_VALUE, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * @return A job with blocks at the distances 1 to the given amount east of the center
+     */
+    private static RecoveryJob<String> job(BlockPos center, int blocks) {
+        List<PendingBlock<String>> pending = new ArrayList<>(blocks);
+        for (int i = 1; i <= blocks; i++) {
+            pending.add(new PendingBlock<>(new BlockPos(center.world(), center.x() + i, center.y(), center.z()),
+                    "block " + i));
+        }
+        return new RecoveryJob<>(center, pending);
+    }
+
+    private static BlockPos at(int distance) {
+        return new BlockPos(CENTER.world(), CENTER.x() + distance, CENTER.y(), CENTER.z());
+    }
+
+    private final class TestWorld extends InMemoryWorld<String> {
+
+        @Override
+        public void restore(BlockPos position, String block) {
+            scheduler.checkOwner(position);
+            super.restore(position, block);
+        }
+
+        @Override
+        public boolean isWatched(BlockPos position) {
+            return watched;
+        }
+
+        @Override
+        public boolean isLoaded(BlockPos position) {
+            for (BlockPos chunk : unloaded) {
+                if (chunk.world().equals(position.world()) && chunk.chunkX() == position.chunkX()
+                        && chunk.chunkZ() == position.chunkZ()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
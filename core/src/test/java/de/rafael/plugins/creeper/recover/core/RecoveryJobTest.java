@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.rafael.plugins.creeper.recover.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecoveryJobTest {
+
+    private static final BlockPos CENTER = new BlockPos("world", 0, 64, 0);
+
+    @Test
+    void pollsFarthestBlockFirst() {
+        RecoveryJob<Integer> job = job(2, 5, 1, 4, 3);
+        List<Integer> polled = new ArrayList<>();
+        assertEquals(2, job.poll(2, block -> polled.add(block.block())));
+        assertEquals(List.of(5, 4), polled);
+        assertEquals(List.of(3, 2, 1), job.pending().stream().map(PendingBlock::block).toList());
+        assertEquals(3, job.remaining());
+        assertFalse(job.isFinished());
+
+        assertEquals(3, job.poll(10, block -> polled.add(block.block())));
+        assertEquals(List.of(5, 4, 3, 2, 1), polled);
+        assertTrue(job.isFinished());
+    }
+
+    @Test
+    void spilledBlocksComeBackInOrder() {
+        RecoveryJob<Integer> job = new RecoveryJob<>(CENTER, job(1, 2, 3, 4).pending(), block -> 16);
+        assertEquals(64, job.bytes());
+        List<PendingBlock<Integer>> stored = new ArrayList<>();
+        boolean[] released = new boolean[1];
+        assertTrue(job.spill(blocks -> {
+            stored.addAll(blocks);
+            return new ColdBlocks<>() {
+                @Override
+                public List<PendingBlock<Integer>> load() {
+                    return stored;
+                }
+
+                @Override
+                public void release() {
+                    released[0] = true;
+                }
+            };
+        }));
+        assertTrue(job.isCold());
+        assertFalse(job.spill(blocks -> {
+            throw new AssertionError("A cold job is spilled again");
+        }));
+        // Counted while cold, without loading the blocks
+        assertEquals(4, job.remaining());
+        assertEquals(64, job.bytes());
+        assertFalse(released[0]);
+
+        List<Integer> polled = new ArrayList<>();
+        job.poll(1, block -> polled.add(block.block()));
+        assertFalse(job.isCold());
+        assertTrue(released[0]);
+        assertEquals(List.of(4), polled);
+        assertEquals(List.of(3, 2, 1), job.pending().stream().map(PendingBlock::block).toList());
+        assertEquals(48, job.bytes());
+    }
+
+    /**
+     * @param distances The distances east of the center, also used as the block state
+     */
+    private static RecoveryJob<Integer> job(int... distances) {
+        List<PendingBlock<Integer>> blocks = new ArrayList<>(distances.length);
+        for (int distance : distances) {
+            blocks.add(new PendingBlock<>(new BlockPos(CENTER.world(), CENTER.x() + distance, CENTER.y(),
+                    CENTER.z()), distance));
+        }
+        return new RecoveryJob<>(CENTER, blocks);
+    }
+
+}
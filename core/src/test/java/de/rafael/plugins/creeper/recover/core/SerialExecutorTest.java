@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.rafael.plugins.creeper.recover.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SerialExecutorTest {
+
+    private final List<RuntimeException> failures = new ArrayList<>();
+    private final SerialExecutor executor = new SerialExecutor(this.failures::add);
+
+    @Test
+    void tasksQueuedWhileDrainingRunOnTheOwner() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch queued = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        Thread owner = new Thread(() -> this.executor.execute(() -> {
+            threads.add(Thread.currentThread());
+            running.countDown();
+            await(queued);
+        }));
+        owner.start();
+        await(running);
+
+        // The owner is busy, so the task is handed over instead of running here
+        this.executor.execute(() -> threads.add(Thread.currentThread()));
+        queued.countDown();
+        owner.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(List.of(owner, owner), threads);
+        assertFalse(this.executor.isOwner());
+    }
+
+    @Test
+    void submitFromTheOwnerRunsAfterTheCurrentTask() {
+        List<String> order = new ArrayList<>();
+        CompletableFuture<Integer> nested = this.executor.submit(() -> {
+            CompletableFuture<Integer> inner = this.executor.submit(() -> {
+                order.add("inner");
+                return 42;
+            });
+            // Queued, the owner never waits for its own queue
+            assertFalse(inner.isDone());
+            order.add("outer");
+            return 1;
+        });
+        assertTrue(nested.isDone());
+        assertEquals(List.of("outer", "inner"), order);
+    }
+
+    @Test
+    void submitCompletesWithTheFailure() {
+        IllegalStateException failure = new IllegalStateException();
+        CompletableFuture<Integer> future = this.executor.submit(() -> {
+            throw failure;
+        });
+        assertSame(failure, assertThrows(CompletionException.class, future::join).getCause());
+        assertTrue(this.failures.isEmpty());
+        // The executor is released and keeps working
+        int result = this.executor.submit(() -> 1).join();
+        assertEquals(1, result);
+    }
+
+    @Test
+    void failuresGoToTheHandlerInsteadOfTheDrainingThread() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch queued = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException();
+        Thread owner = new Thread(() -> this.executor.execute(() -> {
+            running.countDown();
+            await(queued);
+        }));
+        owner.start();
+        await(running);
+
+        // Drained by the owner, which must not see the failure of a task it did not queue
+        this.executor.execute(() -> {
+            throw failure;
+        });
+        queued.countDown();
+        owner.join(TimeUnit.SECONDS.toMillis(10));
+        this.executor.execute(() -> {
+            throw failure;
+        });
+
+        assertEquals(List.of(failure, failure), this.failures);
+    }
+
+    @Test
+    void tasksNeverOverlap() throws InterruptedException {
+        int threads = 8;
+        int tasks = 10_000;
+        AtomicInteger active = new AtomicInteger();
+        int[] counter = new int[1];
+        boolean[] overlapped = new boolean[1];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads * tasks);
+        for (int thread = 0; thread < threads; thread++) {
+            pool.execute(() -> {
+                for (int i = 0; i < tasks; i++) {
+                    this.executor.execute(() -> {
+                        if (active.incrementAndGet() != 1) {
+                            overlapped[0] = true;
+                        }
+                        counter[0]++;
+                        active.decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertFalse(overlapped[0]);
+        int count = this.executor.submit(() -> counter[0]).join();
+        assertEquals(threads * tasks, count);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+}
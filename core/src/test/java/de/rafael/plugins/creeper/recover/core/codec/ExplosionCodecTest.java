@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.rafael.plugins.creeper.recover.core.codec;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExplosionCodecTest {
+
+    @Test
+    void roundTripUncompressed() throws IOException {
+        RecordedExplosion explosion = explosion(100, -1);
+        assertExplosion(explosion, ExplosionCodec.decode(ExplosionCodec.encode(explosion, new Palette(), false),
+                new Palette()));
+    }
+
+    @Test
+    void roundTripCompressed() throws IOException {
+        RecordedExplosion explosion = explosion(500, 64);
+        byte[] compressed = ExplosionCodec.encode(explosion, new Palette(), true);
+        assertTrue(compressed.length < ExplosionCodec.encode(explosion, new Palette(), false).length);
+        assertExplosion(explosion, ExplosionCodec.decode(compressed, new Palette()));
+    }
+
+    @Test
+    void sharedPaletteWritesBlockDataOnce() throws IOException {
+        RecordedExplosion first = explosion(50, 3);
+        RecordedExplosion second = explosion(50, 3);
+        Palette writer = new Palette();
+        byte[] firstSnapshot = ExplosionCodec.encode(first, writer, false);
+        byte[] secondSnapshot = ExplosionCodec.encode(second, writer, false);
+        assertTrue(secondSnapshot.length < firstSnapshot.length);
+
+        Palette reader = new Palette();
+        assertExplosion(first, ExplosionCodec.decode(firstSnapshot, reader));
+        assertExplosion(second, ExplosionCodec.decode(secondSnapshot, reader));
+        assertEquals(writer.size(), reader.size());
+    }
+
+    @Test
+    void rejectsDamagedSnapshots() {
+        byte[] snapshot = ExplosionCodec.encode(explosion(100, 8), new Palette(), true);
+        assertThrows(IOException.class, () -> ExplosionCodec.decode(new byte[0], new Palette()));
+        assertThrows(IOException.class, () -> ExplosionCodec.decode(Arrays.copyOf(snapshot, snapshot.length / 2),
+                new Palette()));
+
+        byte[] version = snapshot.clone();
+        version[0] = ExplosionCodec.VERSION + 1;
+        assertThrows(IOException.class, () -> ExplosionCodec.decode(version, new Palette()));
+
+        // A block count no body could hold must not be allocated
+        ByteArrayOutputStream count = new ByteArrayOutputStream();
+        count.write(ExplosionCodec.VERSION);
+        count.write(0);
+        VarInts.write(count, 0L);
+        VarInts.writeString(count, "world");
+        VarInts.writeSigned(count, 0);
+        VarInts.writeSigned(count, 0);
+        VarInts.writeSigned(count, 0);
+        VarInts.writeString(count, "CREEPER");
+        VarInts.write(count, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> ExplosionCodec.decode(count.toByteArray(), new Palette()));
+    }
+
+    /**
+     * @param blocks  The amount of blocks
+     * @param payload Every block with a multiple of this index gets a payload, -1 for none
+     */
+    private static RecordedExplosion explosion(int blocks, int payload) {
+        BlockPos origin = new BlockPos("world", 100, 64, -200);
+        List<RecordedBlock> recorded = new ArrayList<>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            byte[] bytes = payload > 0 && i % payload == 0 ? new byte[]{(byte) i, 1, 2, 3} : new byte[0];
+            recorded.add(new RecordedBlock(new BlockPos("world", origin.x() + i % 7 - 3, origin.y() - i / 49,
+                    origin.z() + i / 7 % 7 - 3), i % 3 == 0 ? "minecraft:stone" : "minecraft:dirt", bytes));
+        }
+        return new RecordedExplosion(1_700_000_000_000L, origin, "CREEPER", recorded);
+    }
+
+    static void assertExplosion(RecordedExplosion expected, RecordedExplosion actual) {
+        assertEquals(expected.timestamp(), actual.timestamp());
+        assertEquals(expected.origin(), actual.origin());
+        assertEquals(expected.entityType(), actual.entityType());
+        assertEquals(expected.blocks().size(), actual.blocks().size());
+        for (int i = 0; i < expected.blocks().size(); i++) {
+            RecordedBlock block = expected.blocks().get(i);
+            assertEquals(block.position(), actual.blocks().get(i).position());
+            assertEquals(block.blockData(), actual.blocks().get(i).blockData());
+            assertArrayEquals(block.payload(), actual.blocks().get(i).payload());
+        }
+    }
+
+}
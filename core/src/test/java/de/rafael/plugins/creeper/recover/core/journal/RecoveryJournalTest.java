@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.rafael.plugins.creeper.recover.core.journal;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.persistence.StoredExplosion;
+import de.rafael.plugins.creeper.recover.core.record.RecordedBlock;
+import de.rafael.plugins.creeper.recover.core.record.RecordedExplosion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecoveryJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumesWithTheBlocksThatWereNotRestored() throws IOException {
+        Path file = this.directory.resolve("journal.bin");
+        RecordedExplosion first = explosion(0, 10);
+        RecordedExplosion second = explosion(100, 10);
+        RecordedExplosion third = explosion(200, 10);
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            assertTrue(journal.pending().isEmpty());
+            long firstId = journal.store(first);
+            long secondId = journal.store(second);
+            long thirdId = journal.store(third);
+            for (RecordedBlock block : first.blocks()) {
+                journal.restored(firstId, block.position());
+            }
+            for (int i = 0; i < 4; i++) {
+                journal.restored(secondId, second.blocks().get(i).position());
+            }
+            journal.discard(thirdId);
+        }
+
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            List<StoredExplosion> pending = journal.pending();
+            assertEquals(1, pending.size());
+            RecordedExplosion remaining = pending.get(0).explosion();
+            assertEquals(second.origin(), remaining.origin());
+            assertEquals(second.timestamp(), remaining.timestamp());
+            assertEquals(second.blocks().subList(4, 10).stream().map(RecordedBlock::position).toList(),
+                    remaining.blocks().stream().map(RecordedBlock::position).toList());
+            // Handed out once, the caller owns the list
+            assertTrue(journal.pending().isEmpty());
+            // New explosions never reuse an id of the file
+            assertTrue(journal.store(first) > pending.get(0).id());
+        }
+    }
+
+    @Test
+    void ignoresATornRecord() throws IOException {
+        Path file = this.directory.resolve("journal.bin");
+        long end;
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            journal.store(explosion(0, 10));
+            end = journal.size();
+            journal.store(explosion(100, 10));
+        }
+        // Cut the second record off in the middle, like a crash while it was written
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(end + 10);
+        }
+
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            List<StoredExplosion> pending = journal.pending();
+            assertEquals(1, pending.size());
+            assertEquals(10, pending.get(0).explosion().blocks().size());
+            assertEquals(end, journal.size());
+        }
+    }
+
+    @Test
+    void compactionKeepsThePendingBlocks() throws IOException {
+        Path file = this.directory.resolve("journal.bin");
+        List<Long> ids = new ArrayList<>();
+        List<RecordedExplosion> explosions = new ArrayList<>();
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            for (int i = 0; i < 100; i++) {
+                RecordedExplosion explosion = explosion(i * 100, 20);
+                explosions.add(explosion);
+                ids.add(journal.store(explosion));
+            }
+            for (int i = 0; i < 90; i++) {
+                for (RecordedBlock block : explosions.get(i).blocks()) {
+                    journal.restored(ids.get(i), block.position());
+                }
+            }
+            journal.restored(ids.get(95), explosions.get(95).blocks().get(0).position());
+            int size = journal.size();
+            journal.compact();
+            assertTrue(journal.size() < size);
+            // Appends keep working on the compacted file
+            journal.restored(ids.get(96), explosions.get(96).blocks().get(0).position());
+        }
+
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            List<StoredExplosion> pending = journal.pending();
+            assertEquals(ids.subList(90, 100), pending.stream().map(StoredExplosion::id).toList());
+            assertEquals(19, pending.get(5).explosion().blocks().size());
+            assertEquals(19, pending.get(6).explosion().blocks().size());
+            assertEquals(20, pending.get(7).explosion().blocks().size());
+        }
+        assertEquals(List.of(file), files());
+    }
+
+    @Test
+    void concurrentCompactionsKeepTheRecords() throws Exception {
+        Path file = this.directory.resolve("journal.bin");
+        List<Long> ids = new ArrayList<>();
+        List<RecordedExplosion> explosions = new ArrayList<>();
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            for (int i = 0; i < 20; i++) {
+                RecordedExplosion explosion = explosion(i * 100, 20);
+                explosions.add(explosion);
+                ids.add(journal.store(explosion));
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            List<Future<?>> compactions = new ArrayList<>();
+            for (int thread = 0; thread < 2; thread++) {
+                compactions.add(pool.submit(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        journal.compact();
+                    }
+                    return null;
+                }));
+            }
+            // Appended while the compactions run, none of them may be lost
+            for (int i = 0; i < 10; i++) {
+                for (RecordedBlock block : explosions.get(i).blocks()) {
+                    journal.restored(ids.get(i), block.position());
+                }
+            }
+            for (Future<?> compaction : compactions) {
+                compaction.get(30, TimeUnit.SECONDS);
+            }
+            pool.shutdown();
+        }
+
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            assertEquals(ids.subList(10, 20), journal.pending().stream().map(StoredExplosion::id).toList());
+        }
+        assertEquals(List.of(file), files());
+    }
+
+    @Test
+    void findsThePendingExplosionsOfAChunk() throws IOException {
+        try (RecoveryJournal journal = new RecoveryJournal(this.directory.resolve("journal.bin"))) {
+            long inside = journal.store(explosion(0, 5));
+            journal.store(explosion(1000, 5));
+            List<StoredExplosion> pending = journal.pendingIn("world", 0, 0);
+            assertEquals(1, pending.size());
+            assertEquals(inside, pending.get(0).id());
+            assertTrue(journal.pendingIn("other", 0, 0).isEmpty());
+        }
+    }
+
+    @Test
+    void prunesOldExplosions() throws IOException {
+        Path file = this.directory.resolve("journal.bin");
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            journal.store(new RecordedExplosion(1, new BlockPos("world", 0, 64, 0), "TNT", explosion(0, 5).blocks()));
+            journal.store(explosion(100, 5));
+            assertEquals(1, journal.prune(2));
+        }
+        try (RecoveryJournal journal = new RecoveryJournal(file)) {
+            assertEquals(1, journal.pending().size());
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = this.directory.resolve("journal.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> new RecoveryJournal(file));
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.toList();
+        }
+    }
+
+    /**
+     * @param x      The x coordinate of the origin
+     * @param blocks The amount of blocks
+     */
+    private static RecordedExplosion explosion(int x, int blocks) {
+        BlockPos origin = new BlockPos("world", x, 64, 0);
+        List<RecordedBlock> recorded = new ArrayList<>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            recorded.add(new RecordedBlock(new BlockPos("world", x + i % 4, 64 - i / 4, 0), "minecraft:stone",
+                    new byte[0]));
+        }
+        return new RecordedExplosion(System.currentTimeMillis(), origin, "CREEPER", recorded);
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package de.rafael.plugins.creeper.recover.core.memory;
+
+import de.rafael.plugins.creeper.recover.core.BlockPos;
+import de.rafael.plugins.creeper.recover.core.PendingBlock;
+import de.rafael.plugins.creeper.recover.core.RecoveryEngine;
+import de.rafael.plugins.creeper.recover.core.RecoveryJob;
+import de.rafael.plugins.creeper.recover.core.RecoveryListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualSchedulerTest {
+
+    private static final BlockPos ORIGIN = new BlockPos("world", 0, 64, 0);
+    // Chunk 8 is the first chunk of the next region
+    private static final BlockPos OTHER_REGION = new BlockPos("world", 8 * 16, 64, 0);
+
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+
+    @Test
+    void nothingRunsUntilTheClockIsAdvanced() {
+        List<String> order = new ArrayList<>();
+        this.scheduler.runAtFixedRate(cancel -> {
+            order.add("repeating");
+            cancel.run();
+        }, 100, 50, TimeUnit.MILLISECONDS);
+        this.scheduler.runAt(ORIGIN, () -> order.add("first"));
+        this.scheduler.runAt(OTHER_REGION, () -> order.add("second"));
+        assertTrue(order.isEmpty());
+
+        this.scheduler.tick();
+        assertEquals(List.of("first", "second"), order);
+        this.scheduler.tick();
+        assertEquals(List.of("first", "second", "repeating"), order);
+        assertTrue(this.scheduler.runUntilIdle(100));
+        assertEquals(2, this.scheduler.currentTick());
+        assertEquals(3, this.scheduler.executedTasks());
+    }
+
+    @Test
+    void tasksOfTheOwningRegionRunInline() {
+        List<String> order = new ArrayList<>();
+        this.scheduler.runAt(ORIGIN, () -> {
+            assertTrue(this.scheduler.runsInline(ORIGIN));
+            assertFalse(this.scheduler.runsInline(OTHER_REGION));
+            this.scheduler.runAt(ORIGIN, () -> order.add("inline"));
+            this.scheduler.runAt(OTHER_REGION, () -> order.add("next tick"));
+            order.add("outer");
+        });
+        this.scheduler.tick();
+        assertEquals(List.of("inline", "outer"), order);
+        this.scheduler.tick();
+        assertEquals(List.of("inline", "outer", "next tick"), order);
+    }
+
+    @Test
+    void checkOwnerRejectsOtherRegions() {
+        assertThrows(IllegalStateException.class, () -> this.scheduler.checkOwner(ORIGIN));
+        boolean[] checked = new boolean[1];
+        this.scheduler.runAt(ORIGIN, () -> {
+            this.scheduler.checkOwner(new BlockPos("world", 127, 0, 127));
+            assertThrows(IllegalStateException.class, () -> this.scheduler.checkOwner(OTHER_REGION));
+            assertThrows(IllegalStateException.class, () -> this.scheduler.checkOwner(new BlockPos("nether", 0, 0,
+                    0)));
+            checked[0] = true;
+        });
+        this.scheduler.tick();
+        assertTrue(checked[0]);
+    }
+
+    @Test
+    void simulatesAnHourOfRecovery() {
+        InMemoryWorld<Integer> world = new InMemoryWorld<>() {
+            @Override
+            public void restore(BlockPos position, Integer block) {
+                scheduler.checkOwner(position);
+                super.restore(position, block);
+            }
+        };
+        Map<BlockPos, Long> restoredAt = new HashMap<>();
+        RecoveryEngine<Integer> engine = new RecoveryEngine<>(world, this.scheduler, new RecoveryListener<>() {
+            @Override
+            public void restored(RecoveryJob<Integer> job, PendingBlock<Integer> block) {
+                restoredAt.put(block.position(), scheduler.currentTick());
+            }
+        }, () -> 0);
+
+        // One explosion per minute, recovered after a minute with one block per second
+        int explosions = 60;
+        int blocks = 30;
+        long minute = TimeUnit.MINUTES.toNanos(1) / VirtualScheduler.TICK_NANOS;
+        long second = TimeUnit.SECONDS.toNanos(1) / VirtualScheduler.TICK_NANOS;
+        Map<BlockPos, Long> expected = new HashMap<>();
+        for (int explosion = 0; explosion < explosions; explosion++) {
+            BlockPos center = new BlockPos("world", explosion * 1000, 64, 0);
+            List<PendingBlock<Integer>> pending = new ArrayList<>(blocks);
+            for (int i = 0; i < blocks; i++) {
+                BlockPos position = new BlockPos("world", center.x() + blocks - i, 64, 0);
+                pending.add(new PendingBlock<>(position, i));
+                // Farthest block first, placed by its region on the tick after the engine polled it
+                expected.put(position, this.scheduler.currentTick() + minute + i * second + 1);
+            }
+            engine.submit(new RecoveryJob<>(center, pending), 60, 1, TimeUnit.SECONDS);
+            this.scheduler.advance(minute);
+        }
+
+        assertTrue(this.scheduler.runUntilIdle(minute * 2));
+        assertEquals(explosions * blocks, world.size());
+        assertEquals(expected, restoredAt);
+        assertFalse(engine.hasSuppressed());
+        // Idle right after the last block of the last explosion
+        long last = Collections.max(expected.values());
+        assertEquals(last, this.scheduler.currentTick());
+        assertTrue(this.scheduler.overheadNanos() >= 0);
+    }
+
+}
@@ -33,7 +33,9 @@ package de.rafael.plugins.creeper.recover.scheduler;
 import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -49,6 +51,12 @@ public class FoliaScheduler implements CreeperPlugin.Scheduler {
         Bukkit.getRegionScheduler().run(CreeperPlugin.instance(), location, scheduledTask -> runnable.run());
     }
 
+    @Override
+    public boolean runsInline(Location location) {
+        // Region tasks always run on a later tick
+        return false;
+    }
+
     @Override
     public void runAsync(Runnable runnable) {
         Bukkit.getAsyncScheduler().runNow(CreeperPlugin.instance(), scheduledTask -> runnable.run());
@@ -59,4 +67,14 @@ public class FoliaScheduler implements CreeperPlugin.Scheduler {
         Bukkit.getAsyncScheduler().runAtFixedRate(CreeperPlugin.instance(), scheduledTask -> runnable.accept(scheduledTask::cancel), delay, period, unit);
     }
 
+    @Override
+    public void runAsyncLater(Runnable runnable, long delay, TimeUnit unit) {
+        Bukkit.getAsyncScheduler().runDelayed(CreeperPlugin.instance(), scheduledTask -> runnable.run(), delay, unit);
+    }
+
+    @Override
+    public CompletableFuture<?> loadChunk(World world, int chunkX, int chunkZ) {
+        return world.getChunkAtAsync(chunkX, chunkZ);
+    }
+
 }
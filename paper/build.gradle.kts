@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2023. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *         notice, this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the developer nor the names of its contributors
+ *         may be used to endorse or promote products derived from this software
+ *         without specific prior written permission.
+ *     * Redistributions in source or binary form must keep the original package
+ *         and class name.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+plugins {
+    id("java")
+    id("com.gradleup.shadow") version "9.0.0-beta4"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_21
+    targetCompatibility = JavaVersion.VERSION_21
+}
+
+repositories {
+    mavenCentral()
+
+    maven("https://repo.papermc.io/repository/maven-public")
+}
+
+// The plugin.yml of Spigot already covers Paper
+sourceSets {
+    main {
+        resources.srcDir(project(":spigot").file("src/main/resources"))
+    }
+}
+
+dependencies {
+    implementation(project(":common"))
+    implementation("org.bstats:bstats-bukkit:" + findProperty("bstats_version"))
+    implementation("org.jetbrains:annotations:" + findProperty("jetbrains_annotations_version"))
+
+    compileOnly("io.papermc.paper:paper-api:" + findProperty("paper_version"))
+
+    compileOnly("org.projectlombok:lombok:" + findProperty("lombok_version"))
+    annotationProcessor("org.projectlombok:lombok:" + findProperty("lombok_version"))
+}
+
+tasks.jar {
+    archiveBaseName.set(findProperty("archives_base_name").toString())
+    archiveClassifier.set(project.name)
+}
+
+tasks.shadowJar {
+    archiveBaseName.set(findProperty("archives_base_name").toString())
+    archiveClassifier.set(project.name)
+
+    relocate("org.bstats", "de.rafael.plugins.creeper.recover.utils")
+}
+
+tasks.assemble {
+    dependsOn(tasks.shadowJar)
+}
+
+tasks {
+    javadoc {
+        options.encoding = "UTF-8"
+    }
+    compileJava {
+        options.encoding = "UTF-8"
+        options.release.set(21)
+    }
+    compileTestJava {
+        options.encoding = "UTF-8"
+        options.release.set(21)
+    }
+}
\ No newline at end of file
@@ -30,4 +30,4 @@
 
 rootProject.name = "creeper-recover"
 
-include("common", "spigot", "folia")
\ No newline at end of file
+include("core", "common", "spigot", "paper", "folia", "benchmarks")
\ No newline at end of file
@@ -39,7 +39,7 @@ package de.rafael.plugins.creeper.recover;
 //------------------------------
 
 import de.rafael.plugins.creeper.recover.common.CreeperPlugin;
-import de.rafael.plugins.creeper.recover.scheduler.BukkitScheduler;
+import de.rafael.plugins.creeper.recover.common.scheduler.BukkitScheduler;
 import org.bukkit.Bukkit;
 
 public class CreeperRecover extends CreeperPlugin {